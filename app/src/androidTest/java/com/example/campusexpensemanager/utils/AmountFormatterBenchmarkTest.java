@@ -0,0 +1,61 @@
+package com.example.campusexpensemanager.utils;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Microbenchmark: 100k amount formats with the old per-call NumberFormat / String.format path
+ * vs AmountFormatter; both must produce the same total length.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AmountFormatterBenchmarkTest {
+
+    private static final String TAG = "AmountFormatterBenchmark";
+    private static final int FORMATS = 100_000;
+
+    @Test
+    public void formatHundredThousandAmounts() {
+        double[] amounts = new double[FORMATS];
+        for (int i = 0; i < FORMATS; i++) {
+            amounts[i] = (i % 10 == 0) ? i / 100.0 : i * 1000.0;
+        }
+
+        long[] nanos = BenchmarkTimer.compare(formatOld(amounts),
+                () -> formatOld(amounts), () -> formatNew(amounts));
+
+        Log.i(TAG, "per-call formatter: " + (nanos[0] / FORMATS) + " ns/format, "
+                + "AmountFormatter: " + (nanos[1] / FORMATS) + " ns/format");
+    }
+
+    private long formatOld(double[] amounts) {
+        long length = 0;
+        for (int i = 0; i < amounts.length; i++) {
+            if (i % 2 == 0) {
+                NumberFormat format = NumberFormat.getInstance(new Locale("vi", "VN"));
+                length += format.format(amounts[i]).length();
+            } else {
+                length += String.format("%.2f", amounts[i]).length();
+            }
+        }
+        return length;
+    }
+
+    private long formatNew(double[] amounts) {
+        long length = 0;
+        for (int i = 0; i < amounts.length; i++) {
+            if (i % 2 == 0) {
+                length += AmountFormatter.formatVnd(amounts[i]).length();
+            } else {
+                length += AmountFormatter.formatUsd(amounts[i]).length();
+            }
+        }
+        return length;
+    }
+}
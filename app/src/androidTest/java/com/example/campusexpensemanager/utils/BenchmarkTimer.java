@@ -0,0 +1,41 @@
+package com.example.campusexpensemanager.utils;
+
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Before/after timing shared by the microbenchmarks. Each variant runs once untimed (so both are
+ * JIT-compiled), then ROUNDS alternating timed runs keep the fastest; every run must return
+ * {@code expected}. Callers log the timings - nothing but that result is asserted.
+ */
+final class BenchmarkTimer {
+
+    private static final int ROUNDS = 5;
+
+    private BenchmarkTimer() {
+    }
+
+    /**
+     * @return {fastest nanos of before, fastest nanos of after}
+     */
+    static long[] compare(long expected, LongSupplier before, LongSupplier after) {
+        assertEquals(expected, before.getAsLong());
+        assertEquals(expected, after.getAsLong());
+
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int i = 0; i < ROUNDS; i++) {
+            best[0] = Math.min(best[0], time(expected, before));
+            best[1] = Math.min(best[1], time(expected, after));
+        }
+        return best;
+    }
+
+    private static long time(long expected, LongSupplier variant) {
+        long start = System.nanoTime();
+        long result = variant.getAsLong();
+        long elapsed = System.nanoTime() - start;
+        assertEquals(expected, result);
+        return elapsed;
+    }
+}
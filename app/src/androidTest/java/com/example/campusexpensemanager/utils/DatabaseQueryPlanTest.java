@@ -0,0 +1,195 @@
+package com.example.campusexpensemanager.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.models.Money;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Query-plan regression tests: every hot query in DatabaseHelper must be served by an index.
+ * Fails if EXPLAIN QUERY PLAN reports a full table SCAN (or a temp B-tree sort for ordered lists).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseQueryPlanTest {
+
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext).getReadableDatabase();
+    }
+
+    @Test
+    public void expensesByUser_usesIndexWithoutSort() {
+        List<String> plan = explain(DatabaseHelper.QUERY_EXPENSES_BY_USER, "1");
+        assertNoFullScan(plan);
+        assertNoTempSort(plan);
+    }
+
+    @Test
+    public void dueRecurring_usesIndex() {
+        assertNoFullScan(explain(DatabaseHelper.QUERY_DUE_RECURRING, "0"));
+    }
+
+    @Test
+    public void rangeTotals_useIndex() {
+        assertNoFullScan(explain(DatabaseHelper.QUERY_TOTAL_INCOME, "1", "0", "1"));
+        assertNoFullScan(explain(DatabaseHelper.QUERY_TOTAL_EXPENSE, "1", "0", "1"));
+        assertNoFullScan(explain(DatabaseHelper.QUERY_COUNT_IN_RANGE, "1", "0", "1"));
+        assertNoFullScan(explain(DatabaseHelper.QUERY_DASHBOARD, "1", "0", "1", "1"));
+        assertNoFullScan(explain(DatabaseHelper.QUERY_TOP_CATEGORY, "1", "0", "1", "1"));
+    }
+
+    @Test
+    public void expensesPage_usesIndex() {
+        List<String> args = new ArrayList<>();
+        String sql = DatabaseHelper.buildExpenseQuery(ExpenseQuery.forUser(1).limit(50).build(), args);
+        assertNoFullScan(explain(sql, args.toArray(new String[0])));
+    }
+
+    @Test
+    public void expensesPage_everySortOrderUsesIndex() {
+        String[] sortOrders = {
+                ExpenseQuery.SORT_DATE_NEWEST, ExpenseQuery.SORT_DATE_OLDEST,
+                ExpenseQuery.SORT_AMOUNT_HIGHEST, ExpenseQuery.SORT_AMOUNT_LOWEST, ExpenseQuery.SORT_CATEGORY
+        };
+        Expense after = new Expense(1, 1, 1000, 1000L, "cursor");
+        after.setId(10);
+
+        for (String sortOrder : sortOrders) {
+            for (Expense cursor : new Expense[]{null, after}) {
+                List<String> args = new ArrayList<>();
+                String sql = DatabaseHelper.buildExpenseQuery(
+                        ExpenseQuery.forUser(1).sort(sortOrder).after(cursor).limit(50).build(), args);
+                List<String> plan = explain(sql, args.toArray(new String[0]));
+                assertNoFullScan(plan);
+                // Every order, including its id tie-break, comes straight off an index
+                assertNoTempSort(plan);
+            }
+        }
+    }
+
+    @Test
+    public void expensesSearch_usesFullTextIndex() {
+        List<String> args = new ArrayList<>();
+        String sql = DatabaseHelper.buildExpenseQuery(
+                ExpenseQuery.forUser(1).search("an sang", 1).limit(50).build(), args);
+        List<String> plan = explain(sql, args.toArray(new String[0]));
+        assertNoFullScan(plan);
+        assertNoTempSort(plan);
+    }
+
+    @Test
+    public void filteredQueries_useIndex() {
+        ExpenseQuery[] queries = {
+                ExpenseQuery.forUser(1).type(Expense.TYPE_EXPENSE).dateRange(1, 2).limit(50).build(),
+                ExpenseQuery.forUser(1).categories(1, 2, 3).sort(ExpenseQuery.SORT_AMOUNT_HIGHEST).build(),
+                ExpenseQuery.forUser(1).amountRange(Money.of(1000), null)
+                        .sort(ExpenseQuery.SORT_AMOUNT_LOWEST).build()
+        };
+        for (ExpenseQuery query : queries) {
+            List<String> args = new ArrayList<>();
+            String sql = DatabaseHelper.buildExpenseQuery(query, args);
+            assertNoFullScan(explain(sql, args.toArray(new String[0])));
+        }
+    }
+
+    @Test
+    public void sectionTotals_useIndex() {
+        List<String> args = new ArrayList<>();
+        String sql = DatabaseHelper.buildDayTotalsQuery(
+                ExpenseQuery.forUser(1).type(Expense.TYPE_EXPENSE).dateRange(1, 2).build(), args);
+        assertNoFullScan(explain(sql, args.toArray(new String[0])));
+    }
+
+    @Test
+    public void futureOccurrences_useIndex() {
+        String sql = "SELECT id FROM expenses WHERE " + DatabaseHelper.WHERE_FUTURE_OCCURRENCES;
+        assertNoFullScan(explain(sql, "1", "0"));
+    }
+
+    @Test
+    public void budgetsByUser_usesIndexWithoutSort() {
+        List<String> plan = explain(DatabaseHelper.QUERY_BUDGETS_BY_USER, "1");
+        assertNoFullScan(plan);
+        assertNoTempSort(plan);
+    }
+
+    @Test
+    public void budgetProgress_joinsThroughIndexes() {
+        assertNoFullScan(explain(DatabaseHelper.QUERY_BUDGET_PROGRESS, "1"));
+    }
+
+    @Test
+    public void singleRecordLookups_usePrimaryKey() {
+        assertNoFullScan(explain(DatabaseHelper.QUERY_EXPENSE_BY_ID, "1"));
+        assertNoFullScan(explain(DatabaseHelper.QUERY_BUDGET_BY_ID, "1"));
+    }
+
+    @Test
+    public void monthlySummary_usesPrimaryKey() {
+        assertNoFullScan(explain(DatabaseHelper.QUERY_SUMMARY_DASHBOARD, "1", "202401", "1"));
+        assertNoFullScan(explain(DatabaseHelper.QUERY_SUMMARY_TOP_CATEGORY, "1", "202401", "1"));
+        assertNoFullScan(explain(DatabaseHelper.QUERY_SUMMARY_MONTHLY_TOTALS, "1", "202401", "202406", "0", "1"));
+    }
+
+    // =============== HELPERS ===============
+
+    private List<String> explain(String sql, String... args) {
+        List<String> details = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+        assertFalse("Empty query plan for: " + sql, details.isEmpty());
+        return details;
+    }
+
+    private void assertNoFullScan(List<String> plan) {
+        for (String detail : plan) {
+            if (isFullTextLookup(detail) || isCategoryRankWalk(detail)) continue;
+            assertFalse("Full table scan: " + plan, detail.startsWith("SCAN"));
+            if (detail.startsWith("SEARCH")) {
+                assertTrue("Search without index: " + plan, detail.contains("INDEX") || detail.contains("PRIMARY KEY"));
+            }
+        }
+    }
+
+    // FTS MATCH is reported as a SCAN of the virtual table; idxNum 0 would be a real full scan
+    private boolean isFullTextLookup(String detail) {
+        return detail.startsWith("SCAN") && detail.contains("VIRTUAL TABLE INDEX")
+                && !detail.contains("VIRTUAL TABLE INDEX 0:");
+    }
+
+    // The category sort walks the (small) categories table in sort_rank order through its index
+    private boolean isCategoryRankWalk(String detail) {
+        return detail.startsWith("SCAN") && detail.contains("COVERING INDEX idx_categories_sort_rank");
+    }
+
+    private void assertNoTempSort(List<String> plan) {
+        for (String detail : plan) {
+            assertFalse("Temp B-tree sort: " + plan, detail.contains("TEMP B-TREE"));
+        }
+    }
+}
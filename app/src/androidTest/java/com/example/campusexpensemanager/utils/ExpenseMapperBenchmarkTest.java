@@ -0,0 +1,74 @@
+package com.example.campusexpensemanager.utils;
+
+import android.database.MatrixCursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.campusexpensemanager.models.Expense;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Microbenchmark: per-row cost of mapping 50k expense rows when column indexes are
+ * resolved on every row (old cursorToExpense) vs once per cursor (ExpenseColumns).
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExpenseMapperBenchmarkTest {
+
+    private static final String TAG = "ExpenseMapperBenchmark";
+    private static final int ROWS = 50_000;
+
+    private static final String[] COLUMNS = {
+            "id", "user_id", "category_id", "currency_id", "amount", "date", "description",
+            "receipt_path", "created_at", "type", "is_recurring", "recurrence_period",
+            "next_occurrence_date", "recurring_group_id", "recurring_end_date"
+    };
+
+    @Test
+    public void mapFiftyThousandRows() {
+        MatrixCursor cursor = buildCursor();
+        try {
+            long[] nanos = BenchmarkTimer.compare(ROWS, () -> mapPerRow(cursor), () -> mapOnce(cursor));
+
+            Log.i(TAG, "resolve per row: " + (nanos[0] / ROWS) + " ns/row, "
+                    + "resolve once: " + (nanos[1] / ROWS) + " ns/row");
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private int mapPerRow(MatrixCursor cursor) {
+        int mapped = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            Expense expense = DatabaseHelper.cursorToExpense(cursor, new DatabaseHelper.ExpenseColumns(cursor));
+            mapped += expense.getId() > 0 ? 1 : 0;
+        }
+        return mapped;
+    }
+
+    private int mapOnce(MatrixCursor cursor) {
+        int mapped = 0;
+        DatabaseHelper.ExpenseColumns columns = new DatabaseHelper.ExpenseColumns(cursor);
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            Expense expense = DatabaseHelper.cursorToExpense(cursor, columns);
+            mapped += expense.getId() > 0 ? 1 : 0;
+        }
+        return mapped;
+    }
+
+    private MatrixCursor buildCursor() {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS, ROWS);
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= ROWS; i++) {
+            cursor.addRow(new Object[]{
+                    i, 1, (i % 10) + 1, 1, i * 100_000L, now - i * 60_000L, "Expense " + i,
+                    null, now, i % 2, 0, null, 0L, 0, 0L
+            });
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.campusexpensemanager.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.models.Money;
+import com.example.campusexpensemanager.models.User;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Before/after benchmark of the expense write path under a concurrent reader, on the app's real schema
+ * (summary and search triggers included). Before: the file reopened with the default rollback journal
+ * and one ContentValues insert per row. After: a DatabaseHelper on a throwaway database, so WAL,
+ * synchronous=NORMAL, the idle timeout and insertExpense's cached statement are what gets measured.
+ * Each insert commits on its own; a second thread runs the expense-total query meanwhile.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExpenseWriteBenchmarkTest {
+
+    private static final String TAG = "ExpenseWriteBenchmark";
+    private static final int WRITES = 2_000;
+
+    @Test
+    public void mixedReadWrite_walWithCompiledStatement() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        long[] before = runRollbackJournal(context, "bench_rollback.db");
+        long[] after = runDatabaseHelper(context, "bench_wal.db");
+
+        Log.i(TAG, "rollback journal + ContentValues: " + perSecond(WRITES, before[0]) + " writes/s, "
+                + perSecond(before[1], before[0]) + " reads/s");
+        Log.i(TAG, "DatabaseHelper (WAL + cached statement): " + perSecond(WRITES, after[0]) + " writes/s, "
+                + perSecond(after[1], after[0]) + " reads/s");
+    }
+
+    /**
+     * @return {elapsed nanos of the write loop, reads completed meanwhile}
+     */
+    private long[] runRollbackJournal(Context context, String name) throws Exception {
+        int userId = createDatabase(context, name);
+
+        // Opened without WAL, Android puts the file back on its default rollback journal
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                context.getDatabasePath(name).getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        db.execSQL("PRAGMA foreign_keys=ON"); // as DatabaseHelper.onOpen
+
+        String[] args = {String.valueOf(userId), "0", String.valueOf(Long.MAX_VALUE)};
+        long now = System.currentTimeMillis();
+        long[] result;
+        try {
+            result = timeWrites(() -> {
+                Cursor cursor = db.rawQuery(DatabaseHelper.QUERY_TOTAL_EXPENSE, args);
+                cursor.moveToFirst();
+                cursor.close();
+            }, i -> {
+                ContentValues values = new ContentValues();
+                values.put("user_id", userId);
+                values.put("category_id", (i % 10) + 1);
+                values.put("currency_id", 1);
+                values.put("amount", Money.of(i * 1_000L).getMinorUnits());
+                values.put("date", now - i * 60_000L);
+                values.put("description", "Expense " + i);
+                values.put("type", i % 2);
+                values.put("created_at", now);
+                db.insert("expenses", null, values);
+            });
+            assertEquals(WRITES, DatabaseUtils.queryNumEntries(db, "expenses"));
+        } finally {
+            db.close();
+            deleteDatabase(context, name);
+        }
+        return result;
+    }
+
+    /**
+     * @return {elapsed nanos of the write loop, reads completed meanwhile}
+     */
+    private long[] runDatabaseHelper(Context context, String name) throws Exception {
+        deleteDatabase(context, name);
+        DatabaseHelper helper = new DatabaseHelper(context, name);
+        int userId = (int) helper.insertUser(new User("bench@example.com", "x", "Bench", "", ""));
+
+        long now = System.currentTimeMillis();
+        long[] result;
+        try {
+            result = timeWrites(
+                    () -> helper.sumInRange(userId, 0, Long.MAX_VALUE, Expense.TYPE_EXPENSE, 0),
+                    i -> helper.insertExpense(new Expense(userId, (i % 10) + 1, i * 1_000L,
+                            now - i * 60_000L, "Expense " + i, i % 2)));
+            assertEquals(WRITES, DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), "expenses"));
+        } finally {
+            helper.close();
+            deleteDatabase(context, name);
+        }
+        return result;
+    }
+
+    private interface Write {
+        void run(int i);
+    }
+
+    /**
+     * Run WRITES single-row writes while {@code read} loops on a second thread
+     *
+     * @return {elapsed nanos of the write loop, reads completed meanwhile}
+     */
+    private static long[] timeWrites(Runnable read, Write write) throws InterruptedException {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger reads = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                read.run();
+                reads.incrementAndGet();
+            }
+        }, "bench-reader");
+
+        long elapsed;
+        try {
+            reader.start();
+            long start = System.nanoTime();
+            for (int i = 1; i <= WRITES; i++) {
+                write.run(i);
+            }
+            elapsed = System.nanoTime() - start;
+        } finally {
+            writing.set(false);
+            reader.join();
+        }
+        return new long[]{elapsed, reads.get()};
+    }
+
+    /**
+     * Fresh database with the app schema and one user; returns the user's id
+     */
+    private static int createDatabase(Context context, String name) {
+        deleteDatabase(context, name);
+        DatabaseHelper helper = new DatabaseHelper(context, name);
+        int userId = (int) helper.insertUser(new User("bench@example.com", "x", "Bench", "", ""));
+        helper.close();
+        return userId;
+    }
+
+    private static void deleteDatabase(Context context, String name) {
+        File file = context.getDatabasePath(name);
+        SQLiteDatabase.deleteDatabase(file);
+        context.deleteSharedPreferences(DatabaseHelper.metaPrefsName(name));
+    }
+
+    private static long perSecond(long count, long nanos) {
+        return nanos > 0 ? count * 1_000_000_000L / nanos : 0;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.campusexpensemanager;
 
 import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.StrictMode;
 
 import androidx.annotation.NonNull;
 import androidx.work.Configuration;
@@ -16,6 +18,11 @@ public class CampusExpenseApp extends Application implements Configuration.Provi
     public void onCreate() {
         super.onCreate();
 
+        // ✅ Debug builds: flag any disk I/O on the main thread (SQLite belongs in ExpenseRepository)
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            enableStrictMode();
+        }
+
 //        // Manual WorkManager initialization
 //        WorkManager.initialize(
 //                this,
@@ -23,6 +30,22 @@ public class CampusExpenseApp extends Application implements Configuration.Provi
 //        );
     }
 
+    private void enableStrictMode() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .penaltyLog()
+                .penaltyFlashScreen()
+                .build());
+
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedSqlLiteObjects()
+                .detectLeakedClosableObjects()
+                .penaltyLog()
+                .build());
+    }
+
     @NonNull
     @Override
     public Configuration getWorkManagerConfiguration() {
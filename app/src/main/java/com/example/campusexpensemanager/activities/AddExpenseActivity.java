@@ -35,8 +35,12 @@ import com.example.campusexpensemanager.models.Budget;
 import com.example.campusexpensemanager.models.Category;
 import com.example.campusexpensemanager.models.Currency;
 import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.models.ExpenseChange;
 import com.example.campusexpensemanager.models.ExpenseTemplate;
+import com.example.campusexpensemanager.models.Money;
+import com.example.campusexpensemanager.utils.AmountFormatter;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
+import com.example.campusexpensemanager.utils.ExpenseRepository;
 import com.example.campusexpensemanager.utils.SessionManager;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
@@ -54,7 +58,6 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.util.Log;
 import androidx.core.app.NotificationCompat;
-import java.text.NumberFormat;
 
 /**
  * AddExpenseActivity - Fully Localized
@@ -95,6 +98,7 @@ public class    AddExpenseActivity extends BaseActivity implements TemplateAdapt
     private FloatingActionButton fabSave;
 
     private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
     private SessionManager sessionManager;
 
     private List<Category> categories;
@@ -116,6 +120,7 @@ public class    AddExpenseActivity extends BaseActivity implements TemplateAdapt
 
         // Initialize helpers
         dbHelper = DatabaseHelper.getInstance(this);
+        repository = ExpenseRepository.getInstance(this);
         sessionManager = new SessionManager(this);
 
         if (!sessionManager.isLoggedIn()) {
@@ -312,15 +317,15 @@ public class    AddExpenseActivity extends BaseActivity implements TemplateAdapt
     }
 
     private void loadTemplates() {
-        templates = dbHelper.getAllTemplates();
-
-        if (!templates.isEmpty()) {
-            templateAdapter = new TemplateAdapter(this, templates, this);
-            recyclerTemplates.setAdapter(templateAdapter);
-            recyclerTemplates.setVisibility(View.VISIBLE);
-        } else {
-            recyclerTemplates.setVisibility(View.GONE);
-        }
+        recyclerTemplates.setVisibility(View.GONE);
+        repository.execute(this, () -> dbHelper.getAllTemplates(), result -> {
+            templates = result;
+            if (!templates.isEmpty()) {
+                templateAdapter = new TemplateAdapter(this, templates, this);
+                recyclerTemplates.setAdapter(templateAdapter);
+                recyclerTemplates.setVisibility(View.VISIBLE);
+            }
+        });
     }
 
     private void setupCameraLauncher() {
@@ -591,6 +596,7 @@ public class    AddExpenseActivity extends BaseActivity implements TemplateAdapt
             expense.setNextOccurrenceDate(nextOcc.getTimeInMillis());
         }
 
+        fabSave.setEnabled(false); // Re-enabled if the save is cancelled or fails
         if (currentType == Expense.TYPE_EXPENSE) {
             // Nếu là chi tiêu -> Kiểm tra ngân sách trước
             checkBudgetAndConfirmSave(expense);
@@ -601,89 +607,74 @@ public class    AddExpenseActivity extends BaseActivity implements TemplateAdapt
     }
 
     /**
-     * ✅ Check if new expense exceeds budget and send notification
-     * @param categoryId Category ID of the expense
-     * @param newAmount Amount of new expense
+     * ✅ FIX: Budget lookup result, computed off the main thread by {@link #loadBudgetCheck}
      */
-    private void checkBudgetAndNotify(int categoryId, double newAmount) {
-        try {
-            int userId = sessionManager.getUserId();
-            List<Budget> budgets = dbHelper.getBudgetsByUser(userId);
-
-            // Find budget for this category or total budget (categoryId = 0)
-            Budget relevantBudget = null;
-            for (Budget budget : budgets) {
-                // Check if budget is currently active
-                long currentTime = System.currentTimeMillis();
-                if (currentTime < budget.getPeriodStart() || currentTime > budget.getPeriodEnd()) {
-                    continue; // Skip expired budgets
+    private static class BudgetCheck {
+        Budget budget; // null when no budget covers the date
+        double spent;
+    }
+
+    /**
+     * ✅ FIX: Find the budget covering {@code date} for the category (or the total budget)
+     * and sum what was already spent in its period, both on a background thread
+     */
+    private void loadBudgetCheck(int categoryId, long date, ExpenseRepository.Callback<BudgetCheck> callback) {
+        int userId = sessionManager.getUserId();
+        repository.execute(this, () -> {
+            BudgetCheck check = new BudgetCheck();
+            for (Budget budget : dbHelper.getBudgetsByUser(userId)) {
+                if (date < budget.getPeriodStart() || date > budget.getPeriodEnd()) {
+                    continue; // Skip budgets outside the period
                 }
 
-                // Match category-specific budget or total budget
+                // Match category-specific budget or total budget (categoryId = 0)
                 if (budget.getCategoryId() == categoryId || budget.getCategoryId() == 0) {
-                    relevantBudget = budget;
+                    check.budget = budget;
                     break;
                 }
             }
 
-            if (relevantBudget == null) {
-                return; // No active budget found, no need to check
+            if (check.budget != null) {
+                check.spent = calculateSpentInPeriod(userId, check.budget.getCategoryId(),
+                        check.budget.getPeriodStart(), check.budget.getPeriodEnd());
             }
+            return check;
+        }, callback);
+    }
 
-            // Calculate current spending in this budget period
-            double currentSpending = calculateSpentInPeriod(
-                    userId,
-                    relevantBudget.getCategoryId(),
-                    relevantBudget.getPeriodStart(),
-                    relevantBudget.getPeriodEnd()
-            );
+    /**
+     * ✅ Check if new expense exceeds budget and send notification
+     * @param categoryId Category ID of the expense
+     * @param newAmount Amount of new expense
+     */
+    private void checkBudgetAndNotify(int categoryId, double newAmount) {
+        loadBudgetCheck(categoryId, System.currentTimeMillis(), check -> {
+            if (check.budget == null) {
+                return; // No active budget found, no need to check
+            }
 
             // Add new expense to calculate projected total
-            double projectedTotal = currentSpending + newAmount;
-            double budgetLimit = relevantBudget.getAmount();
-            double percentageUsed = (projectedTotal / budgetLimit) * 100;
+            Money projectedTotal = Money.of(check.spent).plus(Money.of(newAmount));
+            Money budgetLimit = check.budget.getMoney();
 
-            // Check if threshold exceeded (80% or 100%)
-            if (percentageUsed >= 80) {
+            // Check if threshold exceeded (80% or 100%) - exact minor-unit comparison
+            if (projectedTotal.reachesPercentOf(budgetLimit, 80)) {
                 sendBudgetNotification(
-                        relevantBudget,
-                        projectedTotal,
-                        budgetLimit,
-                        percentageUsed
+                        check.budget,
+                        projectedTotal.toDouble(),
+                        budgetLimit.toDouble(),
+                        projectedTotal.percentOf(budgetLimit)
                 );
             }
-
-        } catch (Exception e) {
-            Log.e("AddExpenseActivity", "Error checking budget: " + e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }
 
     /**
-     * ✅ Calculate spent amount in budget period
+     * ✅ Calculate spent amount in budget period (background thread)
      */
     private double calculateSpentInPeriod(int userId, int categoryId, long periodStart, long periodEnd) {
-        List<Expense> allExpenses = dbHelper.getExpensesByUser(userId);
-        double total = 0;
-
-        for (Expense expense : allExpenses) {
-            // Only count expenses (not income)
-            if (expense.getType() != Expense.TYPE_EXPENSE) {
-                continue;
-            }
-
-            // Check if expense is in period
-            if (expense.getDate() < periodStart || expense.getDate() > periodEnd) {
-                continue;
-            }
-
-            // Check category match (categoryId = 0 means total budget)
-            if (categoryId == 0 || expense.getCategoryId() == categoryId) {
-                total += expense.getAmount();
-            }
-        }
-
-        return total;
+        // Only expenses (not income) in period; categoryId = 0 means total budget
+        return dbHelper.sumInRange(userId, periodStart, periodEnd, Expense.TYPE_EXPENSE, categoryId);
     }
 
     /**
@@ -701,9 +692,8 @@ public class    AddExpenseActivity extends BaseActivity implements TemplateAdapt
             }
 
             // Format amounts
-            NumberFormat currencyFormat = NumberFormat.getInstance(new Locale("vi", "VN"));
-            String spentAmount = currencyFormat.format(spent) + "đ";
-            String limitAmount = currencyFormat.format(limit) + "đ";
+            String spentAmount = AmountFormatter.formatVnd(spent) + "đ";
+            String limitAmount = AmountFormatter.formatVnd(limit) + "đ";
 
             // Build notification content
             String title;
@@ -763,71 +753,59 @@ public class    AddExpenseActivity extends BaseActivity implements TemplateAdapt
      * ✅ NEW: Kiểm tra ngân sách và hiện Dialog cảnh báo (Đã tối ưu đa ngôn ngữ)
      */
     private void checkBudgetAndConfirmSave(Expense expense) {
-        int userId = sessionManager.getUserId();
-        List<Budget> budgets = dbHelper.getBudgetsByUser(userId);
-        Budget relevantBudget = null;
-
-        // Tìm ngân sách phù hợp
-        for (Budget budget : budgets) {
-            if (expense.getDate() >= budget.getPeriodStart() && expense.getDate() <= budget.getPeriodEnd()) {
-                if (budget.getCategoryId() == expense.getCategoryId() || budget.getCategoryId() == 0) {
-                    relevantBudget = budget;
-                    break; // Ưu tiên tìm thấy ngân sách category cụ thể
-                }
+        // Tìm ngân sách phù hợp và tính chi tiêu hiện tại (chạy nền)
+        loadBudgetCheck(expense.getCategoryId(), expense.getDate(), check -> {
+            if (check.budget == null) {
+                proceedToSaveExpense(expense); // Không có ngân sách -> Lưu luôn
+                return;
             }
-        }
 
-        if (relevantBudget == null) {
-            proceedToSaveExpense(expense); // Không có ngân sách -> Lưu luôn
-            return;
-        }
-
-        // Tính toán chi tiêu hiện tại
-        double currentSpent = calculateSpentInPeriod(userId, relevantBudget.getCategoryId(),
-                relevantBudget.getPeriodStart(), relevantBudget.getPeriodEnd());
-        double newTotal = currentSpent + expense.getAmount();
-
-        // Nếu vượt quá 100% -> Hiện cảnh báo
-        if (newTotal > relevantBudget.getAmount()) {
-            String formattedBudget = String.format("%,.0f", relevantBudget.getAmount()) + "đ";
-            String formattedProjected = String.format("%,.0f", newTotal) + "đ";
-            String message = getString(R.string.dialog_budget_exceeded_message, formattedBudget, formattedProjected);
-
-            new androidx.appcompat.app.AlertDialog.Builder(this)
-                    .setTitle(getString(R.string.budget_exceeded_title))
-                    .setMessage(message)
-                    .setPositiveButton(getString(R.string.action_save), (dialog, which) -> proceedToSaveExpense(expense))
-                    .setNegativeButton(getString(R.string.action_cancel), null)
-                    .setIcon(R.drawable.ic_warning)
-                    .show();
-        } else {
-            proceedToSaveExpense(expense);
-        }
+            double newTotal = check.spent + expense.getAmount();
+
+            // Nếu vượt quá 100% -> Hiện cảnh báo
+            if (newTotal > check.budget.getAmount()) {
+                String formattedBudget = String.format("%,.0f", check.budget.getAmount()) + "đ";
+                String formattedProjected = String.format("%,.0f", newTotal) + "đ";
+                String message = getString(R.string.dialog_budget_exceeded_message, formattedBudget, formattedProjected);
+
+                new androidx.appcompat.app.AlertDialog.Builder(this)
+                        .setTitle(getString(R.string.budget_exceeded_title))
+                        .setMessage(message)
+                        .setPositiveButton(getString(R.string.action_save), (dialog, which) -> proceedToSaveExpense(expense))
+                        .setNegativeButton(getString(R.string.action_cancel), (dialog, which) -> fabSave.setEnabled(true))
+                        .setOnCancelListener(dialog -> fabSave.setEnabled(true))
+                        .setIcon(R.drawable.ic_warning)
+                        .show();
+            } else {
+                proceedToSaveExpense(expense);
+            }
+        });
     }
 
     /**
      * ✅ NEW: Hàm thực hiện lưu vào DB (Đã tối ưu đa ngôn ngữ)
      */
     private void proceedToSaveExpense(Expense expense) {
-        long expenseId = dbHelper.insertExpense(expense);
+        repository.execute(this, () -> dbHelper.insertExpense(expense), expenseId -> {
+            if (expenseId != -1) {
+                String typeText = expense.getType() == Expense.TYPE_INCOME ?
+                        getString(R.string.label_income) : getString(R.string.label_expense);
 
-        if (expenseId != -1) {
-            String typeText = currentType == Expense.TYPE_INCOME ?
-                    getString(R.string.label_income) : getString(R.string.label_expense);
+                // Format lại số tiền để hiển thị Toast đẹp hơn
+                String formattedAmount = AmountFormatter.formatVnd(expense.getAmount()) + "đ";
 
-            // Format lại số tiền để hiển thị Toast đẹp hơn
-            java.text.NumberFormat format = java.text.NumberFormat.getInstance(new java.util.Locale("vi", "VN"));
-            String formattedAmount = format.format(expense.getAmount()) + "đ";
+                Toast.makeText(this, getString(R.string.msg_transaction_added, typeText, formattedAmount),
+                        Toast.LENGTH_SHORT).show();
 
-            Toast.makeText(this, getString(R.string.msg_transaction_added, typeText, formattedAmount),
-                    Toast.LENGTH_SHORT).show();
-
-            setResult(RESULT_OK);
-            finish();
-        } else {
-            // Sử dụng string resource cho thông báo lỗi
-            Toast.makeText(this, getString(R.string.msg_save_error), Toast.LENGTH_SHORT).show();
-        }
+                // The list inserts just this row instead of reloading
+                setResult(RESULT_OK, ExpenseChange.inserted(expenseId.intValue()).toIntent());
+                finish();
+            } else {
+                // Sử dụng string resource cho thông báo lỗi
+                Toast.makeText(this, getString(R.string.msg_save_error), Toast.LENGTH_SHORT).show();
+                fabSave.setEnabled(true);
+            }
+        });
     }
 
 
@@ -15,13 +15,15 @@ import androidx.core.content.ContextCompat;
 
 import com.example.campusexpensemanager.R;
 import com.example.campusexpensemanager.models.Budget;
+import com.example.campusexpensemanager.models.BudgetProgress;
 import com.example.campusexpensemanager.models.Category;
 import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.utils.AmountFormatter;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
+import com.example.campusexpensemanager.utils.ExpenseRepository;
 import com.example.campusexpensemanager.utils.SessionManager;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -40,9 +42,10 @@ public class BudgetDashboardActivity extends BaseActivity {
     private FloatingActionButton fabAddBudget;
 
     private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
+    private ExpenseRepository.Task loadTask;
     private SessionManager sessionManager;
 
-    private NumberFormat currencyFormat;
     private SimpleDateFormat dateFormat;
 
     @Override
@@ -51,6 +54,7 @@ public class BudgetDashboardActivity extends BaseActivity {
         setContentView(R.layout.activity_budget_dashboard);
 
         dbHelper = DatabaseHelper.getInstance(this);
+        repository = ExpenseRepository.getInstance(this);
         sessionManager = new SessionManager(this);
 
         if (!sessionManager.isLoggedIn()) {
@@ -59,7 +63,6 @@ public class BudgetDashboardActivity extends BaseActivity {
         }
 
         // ✅ FIX: Sử dụng Locale mặc định của máy để format tiền tệ và ngày tháng
-        currencyFormat = NumberFormat.getInstance(new Locale("vi", "VN"));
         dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
 
         initializeViews();
@@ -83,8 +86,14 @@ public class BudgetDashboardActivity extends BaseActivity {
 
     private void loadBudgets() {
         int userId = sessionManager.getUserId();
-        List<Budget> budgets = dbHelper.getBudgetsByUser(userId);
+        // ✅ Spent for every budget in one query instead of one history scan per budget (off the main thread)
+        if (loadTask != null) {
+            loadTask.cancel();
+        }
+        loadTask = repository.loadBudgetProgress(this, userId, this::showBudgets);
+    }
 
+    private void showBudgets(List<BudgetProgress> budgets) {
         budgetContainer.removeAllViews();
 
         if (budgets.isEmpty()) {
@@ -94,8 +103,9 @@ public class BudgetDashboardActivity extends BaseActivity {
             tvEmptyState.setVisibility(View.GONE);
             budgetContainer.setVisibility(View.VISIBLE);
 
-            for (Budget budget : budgets) {
-                View budgetCard = createBudgetCard(budget);
+            for (BudgetProgress progress : budgets) {
+                Budget budget = progress.getBudget();
+                View budgetCard = createBudgetCard(progress);
 
                 // Click để chỉnh sửa
                 budgetCard.setOnClickListener(v -> {
@@ -112,7 +122,8 @@ public class BudgetDashboardActivity extends BaseActivity {
     /**
      * ✅ FIX: Tạo thẻ ngân sách với Text đã được dịch (Localized)
      */
-    private View createBudgetCard(Budget budget) {
+    private View createBudgetCard(BudgetProgress progress) {
+        Budget budget = progress.getBudget();
         View cardView = getLayoutInflater().inflate(R.layout.item_budget_dashboard, budgetContainer, false);
 
         TextView tvCategoryName = cardView.findViewById(R.id.tv_budget_category);
@@ -138,14 +149,14 @@ public class BudgetDashboardActivity extends BaseActivity {
         tvCategoryName.setText(categoryName);
 
         // Tính toán
-        double spent = calculateSpent(budget);
-        double remaining = budget.getAmount() - spent;
-        double percentageSpent = budget.calculatePercentageSpent(spent);
+        double spent = progress.getSpent();
+        double remaining = progress.getRemaining();
+        double percentageSpent = progress.getPercentage();
 
         // Format số tiền
-        String budgetAmount = currencyFormat.format(budget.getAmount()) + "đ";
-        String spentAmount = currencyFormat.format(spent) + "đ";
-        String remainingAmount = currencyFormat.format(remaining) + "đ";
+        String budgetAmount = AmountFormatter.formatVnd(budget.getAmount()) + "đ";
+        String spentAmount = AmountFormatter.formatVnd(spent) + "đ";
+        String remainingAmount = AmountFormatter.formatVnd(remaining) + "đ";
 
         // ✅ FIX: Sử dụng getString() với prefix
         tvBudgetAmount.setText(getString(R.string.label_budget_prefix) + budgetAmount);
@@ -186,24 +197,6 @@ public class BudgetDashboardActivity extends BaseActivity {
         return cardView;
     }
 
-    private double calculateSpent(Budget budget) {
-        List<Expense> allExpenses = dbHelper.getExpensesByUser(budget.getUserId());
-        double total = 0;
-        for (Expense expense : allExpenses) {
-            // Chỉ tính chi tiêu (TYPE_EXPENSE = 0)
-            if (expense.getType() == Expense.TYPE_EXPENSE) {
-                if (expense.getDate() >= budget.getPeriodStart() &&
-                        expense.getDate() <= budget.getPeriodEnd()) {
-                    if (budget.getCategoryId() == 0 ||
-                            expense.getCategoryId() == budget.getCategoryId()) {
-                        total += expense.getAmount();
-                    }
-                }
-            }
-        }
-        return total;
-    }
-
     /**
      * ✅ FIX: Hàm tính dự báo trả về chuỗi đa ngôn ngữ
      */
@@ -228,7 +221,7 @@ public class BudgetDashboardActivity extends BaseActivity {
         double predictedExcess = predictedTotal - budget.getAmount();
 
         if (predictedExcess > 0) {
-            String excessAmount = currencyFormat.format(predictedExcess) + "đ";
+            String excessAmount = AmountFormatter.formatVnd(predictedExcess) + "đ";
             return getString(R.string.prediction_warning, excessAmount);
         } else {
             return getString(R.string.prediction_safe);
@@ -244,7 +237,7 @@ public class BudgetDashboardActivity extends BaseActivity {
 
         // Dùng string resource có tham số %s
         String title = getString(R.string.budget_alert_title, categoryName);
-        String message = getString(R.string.budget_alert_message, currencyFormat.format(remaining) + "đ");
+        String message = getString(R.string.budget_alert_message, AmountFormatter.formatVnd(remaining) + "đ");
 
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setSmallIcon(R.drawable.ic_warning) // Đảm bảo có icon này
@@ -96,13 +96,11 @@ public class EditBudgetActivity extends BaseActivity {
     }
 
     private void loadBudget(int budgetId) {
-        List<Budget> budgets = dbHelper.getBudgetsByUser(sessionManager.getUserId());
+        Budget budget = dbHelper.getBudgetById(budgetId);
 
-        for (Budget budget : budgets) {
-            if (budget.getId() == budgetId) {
-                currentBudget = budget;
-                break;
-            }
+        // Only the owner may edit
+        if (budget != null && budget.getUserId() == sessionManager.getUserId()) {
+            currentBudget = budget;
         }
     }
 
@@ -293,7 +291,7 @@ public class EditBudgetActivity extends BaseActivity {
                 currentBudget.getId(),
                 currentBudget.getUserId(),
                 currentBudget.getCategoryId(),
-                currentBudget.getAmount(),
+                currentBudget.getMoney(),
                 currentBudget.getPeriodStart(),
                 currentBudget.getPeriodEnd(),
                 currentBudget.getCreatedAt()
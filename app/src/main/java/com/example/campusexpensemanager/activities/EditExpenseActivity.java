@@ -19,7 +19,10 @@ import com.example.campusexpensemanager.R;
 import com.example.campusexpensemanager.models.Category;
 import com.example.campusexpensemanager.models.Currency;
 import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.models.ExpenseChange;
+import com.example.campusexpensemanager.utils.AmountFormatter;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
+import com.example.campusexpensemanager.utils.ExpenseRepository;
 import com.example.campusexpensemanager.utils.RecurringActionDialog;
 import com.example.campusexpensemanager.utils.SessionManager;
 import com.google.android.material.chip.Chip;
@@ -30,7 +33,6 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 
 import java.io.File;
-import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.List;
@@ -66,6 +68,7 @@ public class EditExpenseActivity extends BaseActivity {
     private FloatingActionButton fabUpdate;
 
     private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
     private SessionManager sessionManager;
 
     private Expense currentExpense;
@@ -74,7 +77,7 @@ public class EditExpenseActivity extends BaseActivity {
     private Calendar selectedDateTime;
     private int currentType;
 
-    private Expense deletedExpense;
+    private List<Expense> deletedExpenses; // Full rows removed by the last delete (for Undo)
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -83,6 +86,7 @@ public class EditExpenseActivity extends BaseActivity {
         hideBottomNavigation();
 
         dbHelper = DatabaseHelper.getInstance(this);
+        repository = ExpenseRepository.getInstance(this);
         sessionManager = new SessionManager(this);
 
         if (!sessionManager.isLoggedIn()) {
@@ -97,12 +101,10 @@ public class EditExpenseActivity extends BaseActivity {
             return;
         }
 
-        loadExpense(expenseId);
         initializeViews();
         loadCategories();
         loadCurrencies();
-        prefillForm();
-        setupClickListeners();
+        loadExpense(expenseId); // Prefills the form and enables the actions once the row arrives
     }
 
     private void initializeViews() {
@@ -144,20 +146,33 @@ public class EditExpenseActivity extends BaseActivity {
         spinnerRecurrencePeriod.setAdapter(periodAdapter);
     }
 
+    /**
+     * ✅ FIX: Read the row off the main thread
+     */
     private void loadExpense(int expenseId) {
-        List<Expense> allExpenses = dbHelper.getExpensesByUser(sessionManager.getUserId());
-
-        for (Expense expense : allExpenses) {
-            if (expense.getId() == expenseId) {
-                currentExpense = expense;
-                break;
+        int userId = sessionManager.getUserId();
+        setActionsEnabled(false);
+        repository.execute(this, () -> dbHelper.getExpenseById(expenseId), expense -> {
+            // Only the owner may edit
+            if (expense == null || expense.getUserId() != userId) {
+                Toast.makeText(this, "Expense not found", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
             }
-        }
 
-        if (currentExpense == null) {
-            Toast.makeText(this, "Expense not found", Toast.LENGTH_SHORT).show();
-            finish();
-        }
+            currentExpense = expense;
+            prefillForm();
+            setupClickListeners();
+            setActionsEnabled(true);
+        });
+    }
+
+    /**
+     * Update/Delete stay disabled until the row is loaded and while a write is running
+     */
+    private void setActionsEnabled(boolean enabled) {
+        fabUpdate.setEnabled(enabled);
+        btnDelete.setEnabled(enabled);
     }
 
     /**
@@ -524,30 +539,33 @@ public class EditExpenseActivity extends BaseActivity {
             currentExpense.setRecurringEndDate(0);
         }
 
-        int rowsAffected;
-        if (updateFuture) {
-            rowsAffected = dbHelper.updateAllFutureOccurrences(currentExpense);
-        } else {
-            rowsAffected = dbHelper.updateExpense(currentExpense);
-        }
-
-        if (rowsAffected > 0) {
-            NumberFormat currencyFormat = NumberFormat.getInstance(new Locale("vi", "VN"));
-            String formattedAmount = currencyFormat.format(amount) + "đ";
-
-            String message = getString(R.string.msg_expense_updated) + ": " + formattedAmount;
+        // IDs come from the write itself, so the list re-reads exactly the rows that changed
+        Expense edited = currentExpense;
+        setActionsEnabled(false);
+        repository.execute(this, () -> {
             if (updateFuture) {
-                message += getString(R.string.msg_update_all_future_suffix);
+                return dbHelper.updateAllFutureOccurrences(edited);
             }
+            return dbHelper.updateExpense(edited) > 0 ? new int[]{edited.getId()} : new int[0];
+        }, updatedIds -> {
+            if (updatedIds.length > 0) {
+                String formattedAmount = AmountFormatter.formatVnd(amount) + "đ";
+
+                String message = getString(R.string.msg_expense_updated) + ": " + formattedAmount;
+                if (updateFuture) {
+                    message += getString(R.string.msg_update_all_future_suffix);
+                }
 
-            Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+                Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
 
-            // Trả về kết quả OK để list tự refresh
-            setResult(RESULT_OK);
-            finish();
-        } else {
-            Toast.makeText(this, getString(R.string.msg_expense_update_failed), Toast.LENGTH_SHORT).show();
-        }
+                // Trả về kết quả OK kèm các ID đã sửa để list chỉ cập nhật những dòng đó
+                setResult(RESULT_OK, ExpenseChange.updated(updatedIds).toIntent());
+                finish();
+            } else {
+                Toast.makeText(this, getString(R.string.msg_expense_update_failed), Toast.LENGTH_SHORT).show();
+                setActionsEnabled(true);
+            }
+        });
     }
 
     private void showDeleteConfirmation() {
@@ -563,63 +581,79 @@ public class EditExpenseActivity extends BaseActivity {
      * ✅ FIX: Delete with localized messages and Undo
      */
     private void deleteExpense(boolean deleteFuture) {
-        // Clone current expense for Undo
-        deletedExpense = new Expense(
-                currentExpense.getId(), currentExpense.getUserId(), currentExpense.getCategoryId(),
-                currentExpense.getCurrencyId(), currentExpense.getAmount(), currentExpense.getDate(),
-                currentExpense.getDescription(), currentExpense.getReceiptPath(),
-                currentExpense.getCreatedAt(), currentExpense.getType()
-        );
-        // Copy recurring fields manually if needed...
+        // ✅ Keep the complete rows (incl. recurring fields) so Undo restores exactly what was deleted
+        Expense target = currentExpense;
+        setActionsEnabled(false);
+        repository.execute(this, () -> {
+            if (deleteFuture) {
+                return dbHelper.deleteAllFutureOccurrences(target);
+            }
+            List<Expense> deleted = new java.util.ArrayList<>();
+            if (dbHelper.deleteExpense(target.getId()) > 0) {
+                deleted.add(target);
+            }
+            return deleted;
+        }, deleted -> {
+            deletedExpenses = deleted;
+            if (deleted.isEmpty()) {
+                Toast.makeText(this, getString(R.string.msg_expense_delete_failed), Toast.LENGTH_SHORT).show();
+                setActionsEnabled(true);
+                return;
+            }
+            showDeletedSnackbar(deleteFuture);
+        });
+    }
 
-        int rowsDeleted;
+    private void showDeletedSnackbar(boolean deleteFuture) {
+        String message = getString(R.string.msg_expense_deleted);
         if (deleteFuture) {
-            rowsDeleted = dbHelper.deleteAllFutureOccurrences(currentExpense);
-        } else {
-            rowsDeleted = dbHelper.deleteExpense(currentExpense.getId());
+            message += getString(R.string.msg_delete_all_future_suffix);
         }
 
-        if (rowsDeleted > 0) {
-            String message = getString(R.string.msg_expense_deleted);
-            if (deleteFuture) {
-                message += getString(R.string.msg_delete_all_future_suffix);
-            }
-
-            Snackbar snackbar = Snackbar.make(
-                    findViewById(android.R.id.content),
-                    message,
-                    Snackbar.LENGTH_LONG
-            );
+        Snackbar snackbar = Snackbar.make(
+                findViewById(android.R.id.content),
+                message,
+                Snackbar.LENGTH_LONG
+        );
 
-            snackbar.setAction(getString(R.string.action_undo), v -> undoDelete());
+        snackbar.setAction(getString(R.string.action_undo), v -> undoDelete());
 
-            snackbar.addCallback(new Snackbar.Callback() {
-                @Override
-                public void onDismissed(Snackbar transientBottomBar, int event) {
-                    if (event != DISMISS_EVENT_ACTION) {
-                        setResult(RESULT_OK); // Chỉ finish khi không Undo
-                        finish();
-                    }
+        snackbar.addCallback(new Snackbar.Callback() {
+            @Override
+            public void onDismissed(Snackbar transientBottomBar, int event) {
+                if (event != DISMISS_EVENT_ACTION) {
+                    // Chỉ finish khi không Undo
+                    setResult(RESULT_OK, ExpenseChange.deleted(idsOf(deletedExpenses)).toIntent());
+                    finish();
                 }
-            });
+            }
+        });
 
-            snackbar.show();
-        } else {
-            Toast.makeText(this, getString(R.string.msg_expense_delete_failed), Toast.LENGTH_SHORT).show();
+        snackbar.show();
+    }
+
+    private static int[] idsOf(List<Expense> rows) {
+        int[] ids = new int[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.get(i).getId();
         }
+        return ids;
     }
 
     private void undoDelete() {
-        if (deletedExpense != null) {
-            long newId = dbHelper.insertExpense(deletedExpense);
-            if (newId != -1) {
-                deletedExpense.setId((int) newId);
-                currentExpense = deletedExpense;
-                Toast.makeText(this, getString(R.string.msg_expense_restored), Toast.LENGTH_SHORT).show();
-                prefillForm(); // Nạp lại dữ liệu vào form
-            } else {
-                Toast.makeText(this, getString(R.string.msg_expense_restore_failed), Toast.LENGTH_SHORT).show();
-            }
+        if (deletedExpenses != null && !deletedExpenses.isEmpty()) {
+            // One transaction, original IDs kept - currentExpense stays valid
+            List<Expense> toRestore = deletedExpenses;
+            repository.execute(this, () -> dbHelper.insertExpensesBatch(toRestore), restored -> {
+                if (restored == toRestore.size()) {
+                    deletedExpenses = null;
+                    Toast.makeText(this, getString(R.string.msg_expense_restored), Toast.LENGTH_SHORT).show();
+                    prefillForm(); // Nạp lại dữ liệu vào form
+                    setActionsEnabled(true);
+                } else {
+                    Toast.makeText(this, getString(R.string.msg_expense_restore_failed), Toast.LENGTH_SHORT).show();
+                }
+            });
         }
     }
 
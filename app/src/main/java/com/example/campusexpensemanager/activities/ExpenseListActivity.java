@@ -1,7 +1,11 @@
 package com.example.campusexpensemanager.activities;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.View;
@@ -24,18 +28,21 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.campusexpensemanager.R;
 import com.example.campusexpensemanager.adapters.ExpenseAdapter;
-import com.example.campusexpensemanager.models.Category;
 import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.models.ExpenseChange;
+import com.example.campusexpensemanager.utils.AmountFormatter;
+import com.example.campusexpensemanager.utils.CategoryResolver;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
+import com.example.campusexpensemanager.utils.ExpenseQuery;
+import com.example.campusexpensemanager.utils.ExpenseRepository;
+import com.example.campusexpensemanager.utils.ExpenseSections;
 import com.example.campusexpensemanager.utils.SessionManager;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.text.NumberFormat;
 import java.util.Calendar;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * ExpenseListActivity - Enhanced Sprint 6
@@ -51,16 +58,43 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
     private ChipGroup chipGroupFilter;
     private Chip chipAll, chipIncome, chipExpense;
     private Spinner spinnerSort;
-    private String currentSortOption = "date_newest";
+    private String currentSortOption = ExpenseQuery.SORT_DATE_NEWEST;
 
     private TextView tvMonthlyTotal, tvExpenseCount, tvEmptyState;
     private FloatingActionButton fabAddExpense;
 
     private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
     private SessionManager sessionManager;
 
-    private List<Expense> expenses;
-    private int currentFilter = -1; // -1=All, 0=Expense, 1=Income
+    // Background loads; a newer reload cancels whatever is still in flight
+    private ExpenseRepository.Task listTask;
+    private ExpenseRepository.Task pageTask;
+    private ExpenseRepository.Task summaryTask;
+
+    private List<Expense> expenses = new ArrayList<>();
+    private ExpenseSections sections = ExpenseSections.flat(0); // day headers of expenses (date orders)
+    private int currentFilter = Expense.TYPE_ALL; // -1=All, 0=Expense, 1=Income
+    private String currentQuery = ""; // query of the rows on screen; typing updates it after the debounce
+
+    // ✅ NEW: Search-as-you-type waits for a pause in typing, then reloads only the list
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private String pendingQuery = "";
+    private final Runnable searchRunnable = this::applySearch;
+
+    // ✅ NEW: Keyset pagination state (every sort order pages; the cursor is the last loaded row)
+    private static final int PAGE_SIZE = 50;
+    private static final int LOAD_MORE_THRESHOLD = 10; // rows before the end that trigger the next page
+    private Expense pageCursor = null;
+    private ExpenseQuery listQuery; // criteria of the rows on screen; next pages continue it
+    private boolean hasMorePages = false;
+    private boolean isLoadingPage = false;
+    private boolean isLoadingList = false;
+
+    // ✅ NEW: Add/Edit results patch the rows on screen; onResume reloads only after other writes
+    private static final int MAX_PATCH_ROWS = 200; // bigger changes (long recurring groups) reload
+    private int listVersion = -1; // DatabaseHelper.getExpenseVersion() when the rows were read
 
     // Activity Result Launcher for Add/Edit
     private ActivityResultLauncher<Intent> addExpenseLauncher;
@@ -76,6 +110,7 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
         }
 
         dbHelper = DatabaseHelper.getInstance(this);
+        repository = ExpenseRepository.getInstance(this);
         sessionManager = new SessionManager(this);
 
         if (!sessionManager.isLoggedIn()) {
@@ -134,9 +169,10 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                if (adapter != null) {
-                    adapter.filter(s.toString());
-                }
+                // ✅ v12: Search runs in SQL (FTS index), so results page like the unfiltered list
+                pendingQuery = s.toString();
+                searchHandler.removeCallbacks(searchRunnable);
+                searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
             }
 
             @Override
@@ -144,10 +180,22 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
         });
     }
 
+    /**
+     * Debounced search: one query per pause in typing; loadList(true) cancels the previous one
+     */
+    private void applySearch() {
+        if (adapter == null || pendingQuery.trim().equals(currentQuery.trim())) {
+            currentQuery = pendingQuery; // whitespace-only edits return the same rows
+            return;
+        }
+        currentQuery = pendingQuery;
+        loadList(true);
+    }
+
     private void setupFilterChips() {
         chipGroupFilter.setOnCheckedChangeListener((group, checkedId) -> {
             if (checkedId == R.id.chip_all) {
-                currentFilter = -1;
+                currentFilter = Expense.TYPE_ALL;
             } else if (checkedId == R.id.chip_income) {
                 currentFilter = Expense.TYPE_INCOME;
             } else if (checkedId == R.id.chip_expense) {
@@ -182,19 +230,19 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 switch (position) {
                     case 0:
-                        currentSortOption = "date_newest";
+                        currentSortOption = ExpenseQuery.SORT_DATE_NEWEST;
                         break;
                     case 1:
-                        currentSortOption = "date_oldest";
+                        currentSortOption = ExpenseQuery.SORT_DATE_OLDEST;
                         break;
                     case 2:
-                        currentSortOption = "amount_highest";
+                        currentSortOption = ExpenseQuery.SORT_AMOUNT_HIGHEST;
                         break;
                     case 3:
-                        currentSortOption = "amount_lowest";
+                        currentSortOption = ExpenseQuery.SORT_AMOUNT_LOWEST;
                         break;
                     case 4:
-                        currentSortOption = "category";
+                        currentSortOption = ExpenseQuery.SORT_CATEGORY;
                         break;
                 }
                 applySortAndFilter();
@@ -220,6 +268,16 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
                 } else if (dy < 0) {
                     fabAddExpense.show();
                 }
+
+                // ✅ NEW: Infinite scroll - fetch the next page when nearing the end
+                if (dy > 0 && hasMorePages && !isLoadingPage && adapter != null) {
+                    LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                    if (layoutManager != null && layoutManager.findLastVisibleItemPosition()
+                            >= adapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                        // Adapter must not be mutated inside the scroll callback itself
+                        recyclerView.post(() -> loadNextPage());
+                    }
+                }
             }
         });
     }
@@ -229,59 +287,230 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
         addExpenseLauncher = registerForActivityResult(
                 new ActivityResultContracts.StartActivityForResult(),
                 result -> {
-                    // ALWAYS reload expenses when returning from Add/Edit
-                    // Even if result code is not OK (user may have added then pressed back)
-                    loadExpenses();
+                    // Back without saving: nothing to do (onResume still catches other writes)
+                    if (result.getResultCode() != RESULT_OK) return;
+
+                    ExpenseChange change = ExpenseChange.fromIntent(result.getData());
+                    if (change != null) {
+                        applyChange(change);
+                    } else {
+                        loadExpenses(); // Caller didn't say what changed
+                    }
                 }
         );
     }
 
+    /**
+     * ✅ NEW: Reload the list from the first page
+     * Every sort order is an indexed ORDER BY with keyset pagination, with or without a search
+     */
     private void loadExpenses() {
-        int userId = sessionManager.getUserId();
-        expenses = dbHelper.getExpensesByUser(userId);
+        loadExpenses(false);
+    }
 
-        if (expenses.isEmpty()) {
-            recyclerView.setVisibility(View.GONE);
-            tvEmptyState.setVisibility(View.VISIBLE);
-        } else {
-            recyclerView.setVisibility(View.VISIBLE);
-            tvEmptyState.setVisibility(View.GONE);
+    /**
+     * @param restart true when the filter, sort or search changed (first page, back to the top);
+     *                false to refresh what is shown in place (after an edit or onResume)
+     */
+    private void loadExpenses(boolean restart) {
+        loadList(restart);
+        updateSummary();
+    }
 
-            adapter = new ExpenseAdapter(this, expenses, this);
+    /**
+     * List rows only - the monthly summary does not depend on the search text
+     */
+    private void loadList(boolean restart) {
+        // Reuse a single adapter instance instead of recreating it on every reload
+        if (adapter == null) {
+            adapter = new ExpenseAdapter(this, new ArrayList<>(), this);
             recyclerView.setAdapter(adapter);
-
-            // Apply current filter
-            applyTypeFilter();
         }
 
-        updateSummary();
+        cancelListLoads();
+        isLoadingPage = false;
+        isLoadingList = true;
+        listVersion = dbHelper.getExpenseVersion();
+
+        // Snapshot UI state for the background thread
+        // A refresh re-reads every row already paged in, so the diff keeps the scroll position
+        int limit = restart ? PAGE_SIZE : Math.max(PAGE_SIZE, expenses.size());
+        ExpenseQuery query = buildQuery().limit(limit).build();
+        Context context = this;
+
+        // The signal aborts a superseded query (older search text) inside SQLite
+        listTask = repository.execute(this, signal -> {
+            if (ExpenseQuery.SORT_CATEGORY.equals(query.getSortOrder())) {
+                CategoryResolver.ensureSortRanks(context); // category order of the current language
+            }
+            return sectionRows(query, dbHelper.queryExpenses(query, signal), signal);
+        }, data -> {
+            isLoadingList = false;
+            listQuery = query;
+            expenses = new ArrayList<>(data.rows);
+            sections = data.sections;
+            pageCursor = null;
+            advancePageCursor(data.rows, limit);
+
+            // ListAdapter diffs off the main thread; only changed rows are rebound
+            adapter.updateExpenses(expenses, sections, restart ? () -> recyclerView.scrollToPosition(0) : null);
+            updateEmptyState();
+        }, error -> {
+            // Keep the rows on screen; the next refresh or filter change retries
+            isLoadingList = false;
+            updateEmptyState();
+        });
     }
 
-    private void applyTypeFilter() {
-        applySortAndFilter();
+    /**
+     * Rows loaded on the background thread, with their section layout
+     */
+    private static class ListData {
+        List<Expense> rows;
+        ExpenseSections sections;
     }
 
     /**
-     * ✅ Apply both Filter and Sort
+     * ✅ NEW: Day sections (boundaries + SQL subtotals) for date orders; other orders have no headers.
+     * Runs on the loading thread, so binds only read the finished arrays.
      */
-    private void applySortAndFilter() {
-        if (adapter == null) return;
-        List<Expense> filtered = new ArrayList<>();
-        // Step 1: Filter by type
-        for (Expense expense : expenses) {
-            if (currentFilter == -1) {
-                filtered.add(expense);
-            } else if (expense.getType() == currentFilter) {
-                filtered.add(expense);
+    private ListData sectionRows(ExpenseQuery query, List<Expense> rows, CancellationSignal signal) {
+        ListData data = new ListData();
+        data.rows = rows;
+        data.sections = query.isDateOrder() ? ExpenseSections.byDay(rows) : ExpenseSections.flat(rows.size());
+        dbHelper.loadSectionTotals(query, data.sections, 0, signal);
+        return data;
+    }
+
+    /**
+     * ✅ NEW: Append the next keyset page to the adapter
+     */
+    private void loadNextPage() {
+        // A reload or patch in flight replaces the rows this page would be appended to
+        if (isLoadingPage || isLoadingList || !hasMorePages || listQuery == null) return;
+
+        isLoadingPage = true;
+        ExpenseQuery nextPage = listQuery.toBuilder().limit(PAGE_SIZE).after(pageCursor).build();
+        ExpenseSections loaded = sections;
+        pageTask = repository.execute(this, signal -> {
+            ListData data = new ListData();
+            data.rows = dbHelper.queryExpenses(nextPage, signal);
+            // Only the page's rows are sectioned; a day continued from the last page keeps its total
+            data.sections = loaded.append(data.rows);
+            dbHelper.loadSectionTotals(nextPage, data.sections, loaded.getSectionCount(), signal);
+            return data;
+        }, data -> {
+            advancePageCursor(data.rows, PAGE_SIZE);
+            expenses.addAll(data.rows);
+            sections = data.sections;
+            adapter.appendExpenses(data.rows, sections);
+            isLoadingPage = false;
+        }, error -> isLoadingPage = false); // the next scroll retries the page
+    }
+
+    /**
+     * ✅ NEW: Apply an Add/Edit result to the rows on screen instead of re-reading every page
+     * Written rows are re-read through the list's own query (so type and search filters still
+     * apply) and inserted where SQL would return them; a row that now sorts past the last loaded
+     * row is left for the next keyset page.
+     */
+    private void applyChange(ExpenseChange change) {
+        if (change.size() == 0) return;
+        updateSummary();
+
+        if (adapter == null || listQuery == null || isLoadingList || change.size() > MAX_PATCH_ROWS) {
+            loadList(false);
+            return;
+        }
+
+        // A page read before the write could bring back stale rows; scrolling fetches it again
+        cancelListLoads();
+        isLoadingPage = false;
+        isLoadingList = true;
+        listVersion = dbHelper.getExpenseVersion();
+
+        // Snapshot for the background thread; no page can be appended while isLoadingList
+        ExpenseQuery query = listQuery;
+        List<Expense> loaded = new ArrayList<>(expenses);
+        Expense lastLoaded = hasMorePages ? pageCursor : null;
+        int[] categoryRanks = ExpenseQuery.SORT_CATEGORY.equals(query.getSortOrder())
+                ? CategoryResolver.getSortRanks(this) : null;
+        int[] writtenIds = change.getWrittenIds();
+
+        listTask = repository.execute(this, signal -> {
+            List<Expense> written = writtenIds.length > 0
+                    ? dbHelper.queryExpenses(query.toBuilder().ids(writtenIds).limit(ExpenseQuery.NO_LIMIT).build(), signal)
+                    : new ArrayList<>();
+            List<Expense> patched = patchRows(loaded, change, written, query.rowOrder(categoryRanks), lastLoaded);
+            // Any day may have gained or lost rows, so every section and subtotal is rebuilt
+            return sectionRows(query, patched, signal);
+        }, data -> {
+            isLoadingList = false;
+            expenses = data.rows;
+            sections = data.sections;
+            adapter.updateExpenses(expenses, sections);
+            updateEmptyState();
+        }, error -> {
+            // The rows on screen predate the write: fall back to a full reload
+            isLoadingList = false;
+            loadList(false);
+        });
+    }
+
+    /**
+     * @param lastLoaded Keyset cursor when more pages follow (rows sorting after it are left to
+     *                   the next page), null when everything is loaded
+     */
+    private static List<Expense> patchRows(List<Expense> loaded, ExpenseChange change, List<Expense> writtenRows,
+                                           Comparator<Expense> order, Expense lastLoaded) {
+        List<Expense> patched = new ArrayList<>(loaded.size() + writtenRows.size());
+        for (Expense row : loaded) {
+            if (!change.touches(row.getId())) {
+                patched.add(row);
+            }
+        }
+        for (Expense row : writtenRows) {
+            if (lastLoaded != null && order.compare(row, lastLoaded) > 0) {
+                continue; // The keyset cursor is unchanged, so the next page returns it
             }
+            int position = Collections.binarySearch(patched, row, order);
+            patched.add(position < 0 ? -(position + 1) : position, row);
         }
-        // Step 2: Sort filtered list
-        sortExpenses(filtered);
-        // Step 3: Update adapter
-        adapter.updateExpenses(filtered);
+        return patched;
+    }
 
-        // Update empty state
-        if (filtered.isEmpty()) {
+    private void advancePageCursor(List<Expense> page, int limit) {
+        if (!page.isEmpty()) {
+            pageCursor = page.get(page.size() - 1);
+        }
+        hasMorePages = page.size() == limit;
+    }
+
+    private void cancelListLoads() {
+        if (listTask != null) {
+            listTask.cancel();
+        }
+        if (pageTask != null) {
+            pageTask.cancel();
+        }
+    }
+
+    /**
+     * Type chip + search box + sort spinner as one SQL query; category labels are matched in
+     * the current language
+     */
+    private ExpenseQuery.Builder buildQuery() {
+        ExpenseQuery.Builder query = ExpenseQuery.forUser(sessionManager.getUserId())
+                .type(currentFilter)
+                .sort(currentSortOption);
+        if (!currentQuery.trim().isEmpty()) {
+            query.search(currentQuery, CategoryResolver.findCategoryIds(this, currentQuery));
+        }
+        return query;
+    }
+
+    private void updateEmptyState() {
+        if (expenses.isEmpty()) {
             recyclerView.setVisibility(View.GONE);
             tvEmptyState.setVisibility(View.VISIBLE);
             tvEmptyState.setText(getString(R.string.msg_no_expenses));
@@ -289,49 +518,18 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
             recyclerView.setVisibility(View.VISIBLE);
             tvEmptyState.setVisibility(View.GONE);
         }
+    }
 
-        updateSummary();
+    private void applyTypeFilter() {
+        applySortAndFilter();
     }
 
     /**
-     * ✅ Sort expenses based on current option
+     * ✅ Apply both Filter and Sort
      */
-    private void sortExpenses(List<Expense> expenseList) {
-        switch (currentSortOption) {
-            case "date_newest":
-                Collections.sort(expenseList, (e1, e2) ->
-                        Long.compare(e2.getDate(), e1.getDate()));
-                break;
-
-            case "date_oldest":
-                Collections.sort(expenseList, (e1, e2) ->
-                        Long.compare(e1.getDate(), e2.getDate()));
-                break;
-
-            case "amount_highest":
-                Collections.sort(expenseList, (e1, e2) ->
-                        Double.compare(e2.getAmount(), e1.getAmount()));
-                break;
-
-            case "amount_lowest":
-                Collections.sort(expenseList, (e1, e2) ->
-                        Double.compare(e1.getAmount(), e2.getAmount()));
-                break;
-
-            case "category":
-                Collections.sort(expenseList, (e1, e2) -> {
-                    Category cat1 = dbHelper.getCategoryById(e1.getCategoryId());
-                    Category cat2 = dbHelper.getCategoryById(e2.getCategoryId());
-
-                    String name1 = (cat1 != null) ?
-                            DatabaseHelper.getLocalizedCategoryName(this, cat1.getName()) : "";
-                    String name2 = (cat2 != null) ?
-                            DatabaseHelper.getLocalizedCategoryName(this, cat2.getName()) : "";
-
-                    return name1.compareTo(name2);
-                });
-                break;
-        }
+    private void applySortAndFilter() {
+        if (adapter == null) return;
+        loadExpenses(true);
     }
 
     /**
@@ -346,46 +544,52 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
         long monthStart = calendar.getTimeInMillis();
 
         calendar.add(Calendar.MONTH, 1);
-        long monthEnd = calendar.getTimeInMillis();
-
-        double monthlyTotal = 0;
-        int monthlyCount = 0;
+        long monthEnd = calendar.getTimeInMillis() - 1;
 
-        for (Expense expense : expenses) {
-            if (expense.getDate() >= monthStart && expense.getDate() < monthEnd) {
-                // Apply filter logic to summary
-                if (currentFilter == -1 || expense.getType() == currentFilter) {
+        // ✅ Summary comes from SQL - the adapter only holds the loaded pages
+        int userId = sessionManager.getUserId();
+        int filterType = currentFilter;
 
-                    // Sửa lại logic tính tổng cho phù hợp bộ lọc:
-                    if (currentFilter == Expense.TYPE_INCOME) {
-                        monthlyTotal += expense.getAmount(); // Tổng thu nhập
-                    } else if (currentFilter == Expense.TYPE_EXPENSE) {
-                        monthlyTotal += expense.getAmount(); // Tổng chi tiêu
-                    } else {
+        if (summaryTask != null) {
+            summaryTask.cancel();
+        }
+        summaryTask = repository.execute(this, () -> {
+            // Sửa lại logic tính tổng cho phù hợp bộ lọc: Thu nhập khi lọc thu nhập, còn lại là chi tiêu
+            int totalType = (filterType == Expense.TYPE_INCOME) ? Expense.TYPE_INCOME : Expense.TYPE_EXPENSE;
+            SummaryData data = new SummaryData();
+            data.monthlyCount = dbHelper.countInRange(userId, monthStart, monthEnd, filterType, 0);
+            data.totalCount = dbHelper.countExpenses(ExpenseQuery.forUser(userId).build());
+            data.monthlyTotal = dbHelper.sumInRange(userId, monthStart, monthEnd, totalType, 0);
+            return data;
+        }, data -> showSummary(filterType, data));
+    }
 
-                        if (expense.isExpense()) {
-                            monthlyTotal += expense.getAmount();
-                        }
-                    }
+    /**
+     * Results of the background summary load
+     */
+    private static class SummaryData {
+        int monthlyCount;
+        int totalCount;
+        double monthlyTotal;
+    }
 
-                    monthlyCount++;
-                }
-            }
-        }
+    private void showSummary(int filterType, SummaryData data) {
+        int monthlyCount = data.monthlyCount;
+        int totalCount = data.totalCount;
+        double monthlyTotal = data.monthlyTotal;
 
-        NumberFormat currencyFormat = NumberFormat.getInstance(new Locale("vi", "VN"));
-        String formattedTotal = currencyFormat.format(monthlyTotal) + "đ";
+        String formattedTotal = AmountFormatter.formatVnd(monthlyTotal) + "đ";
 
         // Xác định hậu tố (Suffix) dựa trên bộ lọc
         String filterSuffix = "";
-        if (currentFilter == Expense.TYPE_INCOME) {
+        if (filterType == Expense.TYPE_INCOME) {
             filterSuffix = getString(R.string.filter_income_suffix);
-        } else if (currentFilter == Expense.TYPE_EXPENSE) {
+        } else if (filterType == Expense.TYPE_EXPENSE) {
             filterSuffix = getString(R.string.filter_expense_suffix);
         }
 
         tvMonthlyTotal.setText(getString(R.string.summary_monthly_total, filterSuffix, formattedTotal));
-        tvExpenseCount.setText(getString(R.string.summary_expense_count, monthlyCount, expenses.size()));
+        tvExpenseCount.setText(getString(R.string.summary_expense_count, monthlyCount, totalCount));
     }
 
     @Override
@@ -398,7 +602,17 @@ public class ExpenseListActivity extends BaseActivity implements ExpenseAdapter.
     @Override
     protected void onResume() {
         super.onResume();
-        loadExpenses();
+        // Add/Edit results are patched by the launcher; reload only if something else wrote
+        // (e.g. the recurring worker) - onCreate's first load already counts
+        if (listVersion != dbHelper.getExpenseVersion()) {
+            loadExpenses();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        searchHandler.removeCallbacks(searchRunnable);
+        super.onDestroy();
     }
 
     @Override
@@ -22,9 +22,12 @@ import androidx.work.WorkManager;
 import com.example.campusexpensemanager.R;
 import com.example.campusexpensemanager.adapters.BudgetPreviewAdapter;
 import com.example.campusexpensemanager.models.Budget;
+import com.example.campusexpensemanager.models.BudgetProgress;
 import com.example.campusexpensemanager.models.Category;
+import com.example.campusexpensemanager.models.Currency;
 import com.example.campusexpensemanager.utils.CurrencyConverter;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
+import com.example.campusexpensemanager.utils.ExpenseRepository;
 import com.example.campusexpensemanager.utils.LocaleHelper;
 import com.example.campusexpensemanager.utils.SessionManager;
 import com.example.campusexpensemanager.workers.RecurringExpenseWorker;
@@ -42,7 +45,6 @@ import com.github.mikephil.charting.formatter.PercentFormatter;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -83,8 +85,15 @@ public class MainActivity extends BaseActivity {
 
     // ===== Data & State =====
     private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
+    private ExpenseRepository.Task dashboardTask;
+    private ExpenseRepository.Task budgetPreviewTask;
     private SessionManager sessionManager;
     private CurrencyConverter currencyConverter;
+
+    // Dashboard totals are converted to this currency in SQL (DatabaseHelper v10)
+    private static final int DASHBOARD_CURRENCY_ID = Currency.ID_VND;
+
     private String currentLanguageCode;
     private boolean isBalanceVisible = true;
     private double currentBalance = 0; // For eye toggle
@@ -103,7 +112,8 @@ public class MainActivity extends BaseActivity {
         setContentView(R.layout.activity_main);
 
         dbHelper = DatabaseHelper.getInstance(this);
-        currencyConverter = new CurrencyConverter(this);
+        repository = ExpenseRepository.getInstance(this);
+        currencyConverter = CurrencyConverter.getInstance(this);
 
         initializeViews();
         setupRecurringWorker();
@@ -182,7 +192,7 @@ public class MainActivity extends BaseActivity {
                         isBalanceVisible = false;
                     } else {
                         // Show balance
-                        String formattedBalance = currencyConverter.format(Math.abs(currentBalance), 1);
+                        String formattedBalance = currencyConverter.format(Math.abs(currentBalance), DASHBOARD_CURRENCY_ID);
                         tvBalanceAmount.setText((currentBalance >= 0 ? "+" : "-") + formattedBalance);
                         btnToggleBalanceVisibility.setImageResource(R.drawable.ic_eye);
                         isBalanceVisible = true;
@@ -302,39 +312,37 @@ public class MainActivity extends BaseActivity {
     }
 
     private void loadDashboardData() {
-        try {
-            int userId = sessionManager.getUserId();
-
-            // Display greeting
-            String userName = sessionManager.getUserName();
-            if (userName == null || userName.isEmpty()) {
-                userName = getString(R.string.auth_name);
-            }
-            tvGreeting.setText(getString(R.string.dashboard_greeting, userName));
+        int userId = sessionManager.getUserId();
 
-            // Calculate month boundaries
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.DAY_OF_MONTH, 1);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            long monthStart = calendar.getTimeInMillis();
+        // Display greeting
+        String userName = sessionManager.getUserName();
+        if (userName == null || userName.isEmpty()) {
+            userName = getString(R.string.auth_name);
+        }
+        tvGreeting.setText(getString(R.string.dashboard_greeting, userName));
 
-            calendar.add(Calendar.MONTH, 1);
-            long monthEnd = calendar.getTimeInMillis();
+        // Current month from the trigger-maintained monthly summary (loaded off the main thread)
+        int currentYearMonth = DatabaseHelper.toYearMonth(System.currentTimeMillis());
+        if (dashboardTask != null) {
+            dashboardTask.cancel();
+        }
+        dashboardTask = repository.loadDashboard(this, userId, currentYearMonth, DASHBOARD_CURRENCY_ID,
+                this::bindDashboardData);
 
-            // Get optimized dashboard data
-            DatabaseHelper.DashboardData dashboardData =
-                    dbHelper.getDashboardDataOptimized(userId, monthStart, monthEnd);
+        // ✅ NEW: Load Budget Preview
+        loadBudgetPreview();
+    }
 
+    private void bindDashboardData(DatabaseHelper.DashboardData dashboardData) {
+        try {
             double totalIncomeVnd = dashboardData.totalIncome;
             double totalExpenseVnd = dashboardData.totalExpense;
             double balance = dashboardData.getBalance();
             currentBalance = balance; // Store for eye toggle
 
             // Format amounts
-            String formattedIncome = currencyConverter.format(totalIncomeVnd, 1);
-            String formattedExpense = currencyConverter.format(totalExpenseVnd, 1);
+            String formattedIncome = currencyConverter.format(totalIncomeVnd, DASHBOARD_CURRENCY_ID);
+            String formattedExpense = currencyConverter.format(totalExpenseVnd, DASHBOARD_CURRENCY_ID);
 
             tvIncomeAmount.setText("+" + formattedIncome);
             tvExpenseAmount.setText("-" + formattedExpense);
@@ -368,7 +376,7 @@ public class MainActivity extends BaseActivity {
                 }
             }
 
-            String formattedTopAmount = currencyConverter.format(topAmount, 1);
+            String formattedTopAmount = currencyConverter.format(topAmount, DASHBOARD_CURRENCY_ID);
             String topCategoryLabel = getString(R.string.dashboard_top_category);
             tvTopCategory.setText(topCategoryLabel + ": " + topCategoryName + " (" + formattedTopAmount + ")");
 
@@ -376,13 +384,9 @@ public class MainActivity extends BaseActivity {
             setupBarChart(totalIncomeVnd, totalExpenseVnd);
             setupPieChart(topCategoryMap);
 
-            // ✅ NEW: Load Budget Preview
-            loadBudgetPreview();
-
         } catch (Exception e) {
             e.printStackTrace();
             // Fallback values
-            tvGreeting.setText(getString(R.string.dashboard_greeting, "User"));
             tvIncomeAmount.setText("+0₫");
             tvExpenseAmount.setText("-0₫");
             tvBalanceAmount.setText("0₫");
@@ -398,7 +402,7 @@ public class MainActivity extends BaseActivity {
 
         animator.addUpdateListener(animation -> {
             double value = (float) animation.getAnimatedValue();
-            String formatted = currencyConverter.format(Math.abs(value), 1);
+            String formatted = currencyConverter.format(Math.abs(value), DASHBOARD_CURRENCY_ID);
             textView.setText((value >= 0 ? "+" : "-") + formatted);
         });
 
@@ -451,8 +455,9 @@ public class MainActivity extends BaseActivity {
         List<PieEntry> pieEntries = new ArrayList<>();
         int[] colors = getSeraUIColors();
 
+        DatabaseHelper.CategorySnapshot categorySnapshot = dbHelper.getCategorySnapshot();
         for (Map.Entry<Integer, Double> entry : categoryTotals.entrySet()) {
-            Category category = dbHelper.getCategoryById(entry.getKey());
+            Category category = categorySnapshot.get(entry.getKey());
 
             String categoryName;
             if (category != null) {
@@ -518,9 +523,14 @@ public class MainActivity extends BaseActivity {
 
     // ========== ✅ NEW: BUDGET PREVIEW (2-3 items) ==========
     private void loadBudgetPreview() {
-        int userId = sessionManager.getUserId();
-        List<Budget> allBudgets = dbHelper.getBudgetsByUser(userId);
+        if (budgetPreviewTask != null) {
+            budgetPreviewTask.cancel();
+        }
+        budgetPreviewTask = repository.loadBudgetProgress(this, sessionManager.getUserId(),
+                this::bindBudgetPreview);
+    }
 
+    private void bindBudgetPreview(List<BudgetProgress> allBudgets) {
         if (allBudgets.isEmpty()) {
             rvBudgetPreview.setVisibility(View.GONE);
             tvEmptyBudgets.setVisibility(View.VISIBLE);
@@ -528,7 +538,7 @@ public class MainActivity extends BaseActivity {
         }
 
         // Show only 2-3 budgets
-        List<Budget> previewBudgets = allBudgets.size() > 3
+        List<BudgetProgress> previewBudgets = allBudgets.size() > 3
                 ? allBudgets.subList(0, 3)
                 : allBudgets;
 
@@ -22,13 +22,17 @@ import androidx.core.content.ContextCompat;
 import com.example.campusexpensemanager.R;
 import com.example.campusexpensemanager.models.Category;
 import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.utils.AmountFormatter;
+import com.example.campusexpensemanager.utils.CurrencyConverter;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
+import com.example.campusexpensemanager.utils.DateLabelCache;
+import com.example.campusexpensemanager.utils.ExpenseRepository;
+import com.example.campusexpensemanager.utils.RateHistory;
 import com.example.campusexpensemanager.utils.SessionManager;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.OutputStream;
-import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -89,11 +93,12 @@ public class    ReportActivity extends BaseActivity {
     private LineChart lineChart;
 
     private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
+    private ExpenseRepository.Task reportTask;
     private SessionManager sessionManager;
 
     private Calendar startDate, endDate;
     private SimpleDateFormat dateFormat;
-    private NumberFormat currencyFormat;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -102,6 +107,7 @@ public class    ReportActivity extends BaseActivity {
 
         // Initialize helpers
         dbHelper = DatabaseHelper.getInstance(this);
+        repository = ExpenseRepository.getInstance(this);
         sessionManager = new SessionManager(this);
 
         // Check authentication
@@ -112,7 +118,6 @@ public class    ReportActivity extends BaseActivity {
 
         // Initialize formatters
         dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
-        currencyFormat = NumberFormat.getInstance(new Locale("vi", "VN"));
 
         // Initialize dates (default: this month)
         initializeDefaultDates();
@@ -210,30 +215,39 @@ public class    ReportActivity extends BaseActivity {
      */
     private void generateReport() {
         int userId = sessionManager.getUserId();
-        List<Expense> allExpenses = dbHelper.getExpensesByUser(userId);
-
-        // Filter expenses by date range
-        double totalExpense = 0;
-        int expenseCount = 0;
-        Map<Integer, Double> categoryTotals = new HashMap<>();
 
+        // ✅ Aggregate the selected date range in SQL instead of filtering the full history
         long startTime = startDate.getTimeInMillis();
         long endTime = endDate.getTimeInMillis();
 
-        for (Expense expense : allExpenses) {
-            if (expense.getDate() >= startTime && expense.getDate() <= endTime) {
-                // Chỉ cộng tổng chi tiêu (Expense), không cộng thu nhập vào "Total Expense"
-                if (expense.getType() == Expense.TYPE_EXPENSE) {
-                    totalExpense += expense.getAmount();
+        // 6-month trend window (current month and the 5 before it)
+        Calendar trendStart = Calendar.getInstance();
+        trendStart.add(Calendar.MONTH, -5);
+        trendStart.set(Calendar.DAY_OF_MONTH, 1);
+        int fromYearMonth = DatabaseHelper.toYearMonth(trendStart.getTimeInMillis());
+        int toYearMonth = DatabaseHelper.toYearMonth(System.currentTimeMillis());
 
-                    // Aggregate by category
-                    int categoryId = expense.getCategoryId();
-                    categoryTotals.put(categoryId,
-                            categoryTotals.getOrDefault(categoryId, 0.0) + expense.getAmount());
-                }
-                expenseCount++; // Đếm tổng số giao dịch (cả thu lẫn chi)
-            }
+        if (reportTask != null) {
+            reportTask.cancel();
         }
+        reportTask = repository.execute(this, () -> {
+            ReportData data = new ReportData();
+            // Chỉ cộng tổng chi tiêu (Expense), không cộng thu nhập vào "Total Expense"
+            data.totalExpense = dbHelper.sumInRange(userId, startTime, endTime, Expense.TYPE_EXPENSE, 0);
+            // Đếm tổng số giao dịch (cả thu lẫn chi)
+            data.expenseCount = dbHelper.countInRange(userId, startTime, endTime, Expense.TYPE_ALL, 0);
+            data.categoryTotals =
+                    dbHelper.getCategoryTotalsInRange(userId, startTime, endTime, Expense.TYPE_EXPENSE);
+            data.monthlyTotals =
+                    dbHelper.getMonthlyTotals(userId, fromYearMonth, toYearMonth, Expense.TYPE_EXPENSE);
+            return data;
+        }, this::showReport);
+    }
+
+    private void showReport(ReportData data) {
+        double totalExpense = data.totalExpense;
+        int expenseCount = data.expenseCount;
+        Map<Integer, Double> categoryTotals = data.categoryTotals;
 
         // Update date range display
         String dateRangeText = dateFormat.format(startDate.getTime()) + " - " +
@@ -242,7 +256,7 @@ public class    ReportActivity extends BaseActivity {
         tvDateRange.setText(getString(R.string.report_date_range) + " " + dateRangeText);
 
         // Update total expense
-        String totalText = currencyFormat.format(totalExpense) + "đ";
+        String totalText = AmountFormatter.formatVnd(totalExpense) + "đ";
         // "Total Expense: 500.000đ"
         tvTotalExpense.setText(getString(R.string.report_total_expense_label) + " " + totalText);
 
@@ -259,8 +273,9 @@ public class    ReportActivity extends BaseActivity {
             // "Expenses by Category:\n"
             categorySummary.append(getString(R.string.report_category_summary_default));
 
+            DatabaseHelper.CategorySnapshot categorySnapshot = dbHelper.getCategorySnapshot();
             for (Map.Entry<Integer, Double> entry : categoryTotals.entrySet()) {
-                Category category = dbHelper.getCategoryById(entry.getKey());
+                Category category = categorySnapshot.get(entry.getKey());
                 String categoryName;
                 if (category != null) {
                     categoryName = DatabaseHelper.getLocalizedCategoryName(this, category.getName());
@@ -268,15 +283,25 @@ public class    ReportActivity extends BaseActivity {
                     categoryName = getString(R.string.cat_unknown);
                 }
 
-                String amount = currencyFormat.format(entry.getValue()) + "đ";
+                String amount = AmountFormatter.formatVnd(entry.getValue()) + "đ";
                 categorySummary.append("• ").append(categoryName)
                         .append(": ").append(amount).append("\n");
             }
         }
 
         tvCategorySummary.setText(categorySummary.toString());
-        setupPieChart(allExpenses, startTime, endTime);
-        setupLineChart(allExpenses);
+        setupPieChart(categoryTotals);
+        setupLineChart(data.monthlyTotals);
+    }
+
+    /**
+     * Results of the background report load
+     */
+    private static class ReportData {
+        double totalExpense;
+        int expenseCount;
+        Map<Integer, Double> categoryTotals;
+        Map<Integer, Double> monthlyTotals;
     }
 
     /**
@@ -406,16 +431,20 @@ public class    ReportActivity extends BaseActivity {
                 .append(getString(R.string.header_date)).append(",")
                 .append(getString(R.string.header_description)).append("\n");
 
+        DatabaseHelper.CategorySnapshot categorySnapshot = dbHelper.getCategorySnapshot();
+        // Amounts in VND at the rate in force on each expense's date
+        RateHistory rates = CurrencyConverter.getInstance(this).getRateHistory();
         for (Expense expense : expenses) {
-            Category category = dbHelper.getCategoryById(expense.getCategoryId());
+            Category category = categorySnapshot.get(expense.getCategoryId());
             String categoryName = (category != null) ?
                     DatabaseHelper.getLocalizedCategoryName(this, category.getName()) : getString(R.string.cat_unknown);
 
             // Clean category name (remove commas to avoid breaking CSV)
             categoryName = categoryName.replace(",", " ");
 
-            String amount = String.valueOf(expense.getAmount());
-            String date = dateFormat.format(new Date(expense.getDate()));
+            String amount = String.valueOf(
+                    rates.toVnd(expense.getMoney(), expense.getCurrencyId(), expense.getDate()).toDouble());
+            String date = DateLabelCache.format(DateLabelCache.PATTERN_DATE, expense.getDate());
             String description = expense.getDescription() != null ?
                     expense.getDescription().replace(",", ";").replace("\n", " ") : "";
 
@@ -548,20 +577,24 @@ public class    ReportActivity extends BaseActivity {
             document.add(generatedDate);
 
             // ===== SUMMARY SECTION =====
-            // Calculate totals
+            // Calculate totals in VND, each expense at the rate in force on its date
+            RateHistory rates = CurrencyConverter.getInstance(this).getRateHistory();
+            double[] amountsVnd = new double[expenses.size()];
             double totalExpense = 0;
             double totalIncome = 0;
             Map<Integer, Double> categoryTotals = new HashMap<>();
 
-            for (Expense expense : expenses) {
+            for (int i = 0; i < amountsVnd.length; i++) {
+                Expense expense = expenses.get(i);
+                amountsVnd[i] = rates.toVnd(expense.getMoney(), expense.getCurrencyId(), expense.getDate()).toDouble();
                 if (expense.getType() == Expense.TYPE_EXPENSE) {
-                    totalExpense += expense.getAmount();
+                    totalExpense += amountsVnd[i];
                 } else {
-                    totalIncome += expense.getAmount();
+                    totalIncome += amountsVnd[i];
                 }
 
                 int categoryId = expense.getCategoryId();
-                categoryTotals.put(categoryId,categoryTotals.getOrDefault(categoryId, 0.0) + expense.getAmount());
+                categoryTotals.put(categoryId,categoryTotals.getOrDefault(categoryId, 0.0) + amountsVnd[i]);
             }
 
             double balance = totalIncome - totalExpense;
@@ -594,19 +627,19 @@ public class    ReportActivity extends BaseActivity {
                     .setPadding(8));
 
             // Values
-            summaryTable.addCell(new Cell().add(new Paragraph(currencyFormat.format(totalIncome) + "đ")
+            summaryTable.addCell(new Cell().add(new Paragraph(AmountFormatter.formatVnd(totalIncome) + "đ")
                             .setFont(regularFont).setFontSize(11).setFontColor(new DeviceRgb(76, 175, 80))) // Green
                     .setTextAlignment(TextAlignment.CENTER)
                     .setPadding(8));
 
-            summaryTable.addCell(new Cell().add(new Paragraph(currencyFormat.format(totalExpense) + "đ")
+            summaryTable.addCell(new Cell().add(new Paragraph(AmountFormatter.formatVnd(totalExpense) + "đ")
                             .setFont(regularFont).setFontSize(11).setFontColor(new DeviceRgb(244, 67, 54))) // Red
                     .setTextAlignment(TextAlignment.CENTER)
                     .setPadding(8));
 
             DeviceRgb balanceColor = balance >= 0 ?
                     new DeviceRgb(76, 175, 80) : new DeviceRgb(244, 67, 54);
-            summaryTable.addCell(new Cell().add(new Paragraph(currencyFormat.format(balance) + "đ")
+            summaryTable.addCell(new Cell().add(new Paragraph(AmountFormatter.formatVnd(balance) + "đ")
                             .setFont(boldFont).setFontSize(11).setFontColor(balanceColor))
                     .setTextAlignment(TextAlignment.CENTER)
                     .setPadding(8));
@@ -640,11 +673,12 @@ public class    ReportActivity extends BaseActivity {
                         .setPadding(8));
 
                 // Rows
+                DatabaseHelper.CategorySnapshot categorySnapshot = dbHelper.getCategorySnapshot();
                 for (Map.Entry<Integer, Double> entry : categoryTotals.entrySet()) {
-                    Category category = dbHelper.getCategoryById(entry.getKey());
+                    Category category = categorySnapshot.get(entry.getKey());
                     String categoryName = category != null ?
                             DatabaseHelper.getLocalizedCategoryName(this, category.getName()) : "Unknown";
-                    String amount = currencyFormat.format(entry.getValue()) + "đ";
+                    String amount = AmountFormatter.formatVnd(entry.getValue()) + "đ";
 
                     categoryTable.addCell(new Cell().add(new Paragraph(categoryName)
                                     .setFont(regularFont).setFontSize(10))
@@ -696,13 +730,14 @@ public class    ReportActivity extends BaseActivity {
                     .setPadding(6));
 
             // Rows
-            for (Expense expense : expenses) {
-                Category category = dbHelper.getCategoryById(expense.getCategoryId());
+            DatabaseHelper.CategorySnapshot categorySnapshot = dbHelper.getCategorySnapshot();
+            for (int i = 0; i < expenses.size(); i++) {
+                Expense expense = expenses.get(i);
+                Category category = categorySnapshot.get(expense.getCategoryId());
                 String categoryName = category != null ?
                         DatabaseHelper.getLocalizedCategoryName(this, category.getName()) : "Unknown";
-                String date = new SimpleDateFormat("dd MMM", Locale.getDefault())
-                        .format(new Date(expense.getDate()));
-                String amount = currencyFormat.format(expense.getAmount()) + "đ";
+                String date = DateLabelCache.format(DateLabelCache.PATTERN_DAY_MONTH, expense.getDate());
+                String amount = AmountFormatter.formatVnd(amountsVnd[i]) + "đ";
                 String description = expense.getDescription() != null && !expense.getDescription().isEmpty() ?
                         expense.getDescription() : "-";
 
@@ -835,41 +870,16 @@ public class    ReportActivity extends BaseActivity {
      */
     private List<Expense> getFilteredExpenses() {
         int userId = sessionManager.getUserId();
-        List<Expense> allExpenses = dbHelper.getExpensesByUser(userId);
-
-        // Filter by date range
-        List<Expense> filtered = new java.util.ArrayList<>();
-        long startTime = startDate.getTimeInMillis();
-        long endTime = endDate.getTimeInMillis();
-
-        for (Expense expense : allExpenses) {
-            if (expense.getDate() >= startTime && expense.getDate() <= endTime) {
-                filtered.add(expense);
-            }
-        }
-
-        return filtered;
+        return dbHelper.getExpensesInRange(userId, startDate.getTimeInMillis(),
+                endDate.getTimeInMillis(), Expense.TYPE_ALL, 0);
     }
 
     /**
      * ✅ Setup Pie Chart (Category Breakdown)
      * Copied from ExpenseOverviewActivity
      */
-    private void setupPieChart(List<Expense> expenses, long monthStart, long monthEnd) {
-        Map<Integer, Double> categoryTotals = new HashMap<>();
-        double totalSpent = 0;
-        // Aggregate by category (only expenses, not income)
-        for (Expense expense : expenses) {
-            if (expense.getDate() >= monthStart && expense.getDate() <= monthEnd) {
-                if (expense.isExpense()) {
-                    int categoryId = expense.getCategoryId();
-                    double amount = expense.getAmount();
-                    categoryTotals.put(categoryId, categoryTotals.getOrDefault(categoryId, 0.0) + amount);
-                    totalSpent += amount;
-                }
-            }
-        }
-
+    private void setupPieChart(Map<Integer, Double> categoryTotals) {
+        // categoryTotals: expense-only totals per category for the selected range
         if (categoryTotals.isEmpty()) {
             pieChart.setNoDataText(getString(R.string.msg_no_expenses_month));
             pieChart.invalidate();
@@ -880,8 +890,9 @@ public class    ReportActivity extends BaseActivity {
         List<PieEntry> pieEntries = new ArrayList<>();
         int[] colors = getSeraUIColors();
 
+        DatabaseHelper.CategorySnapshot categorySnapshot = dbHelper.getCategorySnapshot();
         for (Map.Entry<Integer, Double> entry : categoryTotals.entrySet()) {
-            Category category = dbHelper.getCategoryById(entry.getKey());
+            Category category = categorySnapshot.get(entry.getKey());
 
             String categoryName;
             if (category != null) {
@@ -936,38 +947,22 @@ public class    ReportActivity extends BaseActivity {
      * ✅ Setup Line Chart (6-Month Trend)
      * Copied from ExpenseOverviewActivity
      */
-    private void setupLineChart(List<Expense> expenses) {
+    private void setupLineChart(Map<Integer, Double> monthlyTotals) {
         Calendar calendar = Calendar.getInstance();
         List<String> monthLabels = new ArrayList<>();
         List<Entry> lineEntries = new ArrayList<>();
 
-        // Start from 5 months ago
+        // Start from 5 months ago (monthlyTotals comes from one read of the monthly summary)
         calendar.add(Calendar.MONTH, -5);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
 
         for (int i = 0; i < 6; i++) {
-            calendar.set(Calendar.DAY_OF_MONTH, 1);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            long monthStart = calendar.getTimeInMillis();
-
-            calendar.add(Calendar.MONTH, 1);
-            long monthEnd = calendar.getTimeInMillis();
-
-            double monthTotal = 0;
-            for (Expense expense : expenses) {
-                if (expense.getDate() >= monthStart && expense.getDate() < monthEnd) {
-                    if (expense.isExpense()) {
-                        monthTotal += expense.getAmount();
-                    }
-                }
-            }
+            int yearMonth = DatabaseHelper.toYearMonth(calendar.getTimeInMillis());
+            Double monthTotal = monthlyTotals.get(yearMonth);
 
-            lineEntries.add(new Entry(i, (float) monthTotal));
+            lineEntries.add(new Entry(i, monthTotal != null ? monthTotal.floatValue() : 0f));
 
-            SimpleDateFormat monthFormat = new SimpleDateFormat("MMM", Locale.getDefault());
-            calendar.add(Calendar.MONTH, -1);
-            monthLabels.add(monthFormat.format(calendar.getTime()));
+            monthLabels.add(DateLabelCache.format(DateLabelCache.PATTERN_MONTH, calendar.getTimeInMillis()));
             calendar.add(Calendar.MONTH, 1);
         }
 
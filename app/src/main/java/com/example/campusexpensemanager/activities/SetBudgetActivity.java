@@ -16,6 +16,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.campusexpensemanager.R;
 import com.example.campusexpensemanager.adapters.BudgetAdapter;
 import com.example.campusexpensemanager.models.Budget;
+import com.example.campusexpensemanager.models.BudgetProgress;
 import com.example.campusexpensemanager.models.Category;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
 import com.example.campusexpensemanager.utils.SessionManager;
@@ -45,7 +46,7 @@ public class SetBudgetActivity extends BaseActivity implements BudgetAdapter.OnB
     private BudgetAdapter adapter;
 
     private List<Category> categories;
-    private List<Budget> budgets;
+    private List<BudgetProgress> budgets;
 
     private long periodStart;
     private long periodEnd;
@@ -274,7 +275,7 @@ public class SetBudgetActivity extends BaseActivity implements BudgetAdapter.OnB
      */
     private void loadBudgets() {
         int userId = sessionManager.getUserId();
-        budgets = dbHelper.getBudgetsByUser(userId);
+        budgets = dbHelper.getBudgetProgressForUser(userId);
 
         if (budgets.isEmpty()) {
             recyclerBudgets.setVisibility(View.GONE);
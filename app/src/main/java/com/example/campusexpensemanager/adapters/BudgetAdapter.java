@@ -14,40 +14,34 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.campusexpensemanager.R;
 import com.example.campusexpensemanager.models.Budget;
+import com.example.campusexpensemanager.models.BudgetProgress;
 import com.example.campusexpensemanager.models.Category;
+import com.example.campusexpensemanager.utils.AmountFormatter;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
+import com.example.campusexpensemanager.utils.DateLabelCache;
 
-import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * BudgetAdapter for RecyclerView displaying budget list with progress
+ * Binds from precomputed BudgetProgress (one query for all budgets)
  */
 public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetViewHolder> {
 
     private Context context;
-    private List<Budget> budgets;
+    private List<BudgetProgress> budgets;
     private DatabaseHelper dbHelper;
     private OnBudgetClickListener listener;
 
-    private NumberFormat currencyFormat;
-    private SimpleDateFormat dateFormat;
-
     public interface OnBudgetClickListener {
         void onBudgetClick(Budget budget);
     }
 
-    public BudgetAdapter(Context context, List<Budget> budgets, OnBudgetClickListener listener) {
+    public BudgetAdapter(Context context, List<BudgetProgress> budgets, OnBudgetClickListener listener) {
         this.context = context;
         this.budgets = budgets;
         this.listener = listener;
         this.dbHelper = DatabaseHelper.getInstance(context);
-
-        this.currencyFormat = NumberFormat.getInstance(new Locale("vi", "VN"));
-        this.dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
     }
 
     @NonNull
@@ -59,7 +53,8 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
 
     @Override
     public void onBindViewHolder(@NonNull BudgetViewHolder holder, int position) {
-        Budget budget = budgets.get(position);
+        BudgetProgress progress = budgets.get(position);
+        Budget budget = progress.getBudget();
 
         // Get category name
         String categoryName;
@@ -75,15 +70,15 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
         }
         holder.tvCategoryName.setText(categoryName);
 
-        // Calculate spent amount
-        double spent = calculateSpent(budget);
-        double remaining = budget.getAmount() - spent;
-        double percentageSpent = budget.calculatePercentageSpent(spent);
+        // Spent amount (precomputed)
+        double spent = progress.getSpent();
+        double remaining = progress.getRemaining();
+        double percentageSpent = progress.getPercentage();
 
         // Format amounts
-        String formattedBudget = currencyFormat.format(budget.getAmount()) + "đ";
-        String formattedSpent = currencyFormat.format(spent) + "đ";
-        String formattedRemaining = currencyFormat.format(remaining) + "đ";
+        String formattedBudget = AmountFormatter.formatVnd(budget.getAmount()) + "đ";
+        String formattedSpent = AmountFormatter.formatVnd(spent) + "đ";
+        String formattedRemaining = AmountFormatter.formatVnd(remaining) + "đ";
 
         holder.tvBudgetAmount.setText(context.getString(R.string.label_budget_prefix) + formattedBudget);
         holder.tvSpentAmount.setText(context.getString(R.string.label_spent_prefix) + formattedSpent);
@@ -105,8 +100,8 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
                 android.content.res.ColorStateList.valueOf(progressColor));
 
         // Period dates
-        String periodStart = dateFormat.format(new Date(budget.getPeriodStart()));
-        String periodEnd = dateFormat.format(new Date(budget.getPeriodEnd()));
+        String periodStart = DateLabelCache.format(DateLabelCache.PATTERN_DATE, budget.getPeriodStart());
+        String periodEnd = DateLabelCache.format(DateLabelCache.PATTERN_DATE, budget.getPeriodEnd());
         holder.tvPeriod.setText(periodStart + " - " + periodEnd);
 
         // Click listener
@@ -122,35 +117,10 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
         return budgets.size();
     }
 
-    /**
-     * Calculate total spent for a budget
-     */
-    private double calculateSpent(Budget budget) {
-        // Query expenses within budget period
-        List<com.example.campusexpensemanager.models.Expense> allExpenses =
-                dbHelper.getExpensesByUser(budget.getUserId());
-
-        double total = 0;
-        for (com.example.campusexpensemanager.models.Expense expense : allExpenses) {
-            // Check if expense is within period
-            if (expense.getDate() >= budget.getPeriodStart() &&
-                    expense.getDate() <= budget.getPeriodEnd()) {
-
-                // If budget is for specific category, filter by category
-                if (budget.getCategoryId() == 0 ||
-                        expense.getCategoryId() == budget.getCategoryId()) {
-                    total += expense.getAmount();
-                }
-            }
-        }
-
-        return total;
-    }
-
     /**
      * Update budget list
      */
-    public void updateBudgets(List<Budget> newBudgets) {
+    public void updateBudgets(List<BudgetProgress> newBudgets) {
         this.budgets = newBudgets;
         notifyDataSetChanged();
     }
@@ -13,13 +13,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.campusexpensemanager.R;
 import com.example.campusexpensemanager.models.Budget;
+import com.example.campusexpensemanager.models.BudgetProgress;
 import com.example.campusexpensemanager.models.Category;
-import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.utils.AmountFormatter;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
 
-import java.text.NumberFormat;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * BudgetPreviewAdapter - Mini adapter for dashboard preview
@@ -28,20 +27,18 @@ import java.util.Locale;
 public class BudgetPreviewAdapter extends RecyclerView.Adapter<BudgetPreviewAdapter.BudgetViewHolder> {
 
     private Context context;
-    private List<Budget> budgets;
+    private List<BudgetProgress> budgets;
     private DatabaseHelper dbHelper;
     private OnItemClickListener listener;
-    private NumberFormat currencyFormat;
 
     public interface OnItemClickListener {
         void onItemClick(Budget budget);
     }
 
-    public BudgetPreviewAdapter(Context context, List<Budget> budgets, DatabaseHelper dbHelper) {
+    public BudgetPreviewAdapter(Context context, List<BudgetProgress> budgets, DatabaseHelper dbHelper) {
         this.context = context;
         this.budgets = budgets;
         this.dbHelper = dbHelper;
-        this.currencyFormat = NumberFormat.getInstance(new Locale("vi", "VN"));
     }
 
     public void setOnItemClickListener(OnItemClickListener listener) {
@@ -57,7 +54,8 @@ public class BudgetPreviewAdapter extends RecyclerView.Adapter<BudgetPreviewAdap
 
     @Override
     public void onBindViewHolder(@NonNull BudgetViewHolder holder, int position) {
-        Budget budget = budgets.get(position);
+        BudgetProgress progress = budgets.get(position);
+        Budget budget = progress.getBudget();
 
         // Get category name
         String categoryName;
@@ -72,17 +70,17 @@ public class BudgetPreviewAdapter extends RecyclerView.Adapter<BudgetPreviewAdap
             categoryName = context.getString(R.string.label_total_budget);
         }
 
-        // Calculate spent
-        double spent = calculateSpent(budget);
-        double percentage = budget.calculatePercentageSpent(spent);
+        // Spent (precomputed)
+        double spent = progress.getSpent();
+        double percentage = progress.getPercentage();
 
         // Set data
         holder.tvCategoryName.setText(categoryName);
         holder.tvPercentage.setText(String.format("%.0f%%", percentage));
         holder.progressBar.setProgress((int) percentage);
 
-        String spentFormatted = currencyFormat.format(spent) + "đ";
-        String budgetFormatted = currencyFormat.format(budget.getAmount()) + "đ";
+        String spentFormatted = AmountFormatter.formatVnd(spent) + "đ";
+        String budgetFormatted = AmountFormatter.formatVnd(budget.getAmount()) + "đ";
         holder.tvAmount.setText(spentFormatted + " / " + budgetFormatted);
 
         // Color coding
@@ -112,23 +110,6 @@ public class BudgetPreviewAdapter extends RecyclerView.Adapter<BudgetPreviewAdap
         return budgets.size();
     }
 
-    private double calculateSpent(Budget budget) {
-        List<Expense> allExpenses = dbHelper.getExpensesByUser(budget.getUserId());
-        double total = 0;
-        for (Expense expense : allExpenses) {
-            if (expense.getType() == Expense.TYPE_EXPENSE) {
-                if (expense.getDate() >= budget.getPeriodStart() &&
-                        expense.getDate() <= budget.getPeriodEnd()) {
-                    if (budget.getCategoryId() == 0 ||
-                            expense.getCategoryId() == budget.getCategoryId()) {
-                        total += expense.getAmount();
-                    }
-                }
-            }
-        }
-        return total;
-    }
-
     static class BudgetViewHolder extends RecyclerView.ViewHolder {
         TextView tvCategoryName, tvPercentage, tvAmount;
         ProgressBar progressBar;
@@ -2,8 +2,6 @@ package com.example.campusexpensemanager.adapters;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.content.res.Resources;
-import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
@@ -14,37 +12,63 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.campusexpensemanager.R;
-import com.example.campusexpensemanager.models.Category;
 import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.utils.AmountFormatter;
+import com.example.campusexpensemanager.utils.CategoryResolver;
 import com.example.campusexpensemanager.utils.CurrencyConverter;
-import com.example.campusexpensemanager.utils.DatabaseHelper;
+import com.example.campusexpensemanager.utils.DateLabelCache;
+import com.example.campusexpensemanager.utils.ExpenseSections;
 
-import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * ExpenseAdapter - Enhanced for Sprint 5 + Sera UI
  * FIXED: Dark Mode support, dynamic category icons, scroll sensitivity
+ * ✅ NEW: ListAdapter - new lists are diffed on a background thread, so a reload only rebinds
+ * the rows that actually changed and keeps ViewHolders and scroll position
+ * ✅ NEW: Day section headers with subtotals; positions map to headers/rows through the
+ * precomputed ExpenseSections arrays
  */
-public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> {
+public class ExpenseAdapter extends ListAdapter<Object, RecyclerView.ViewHolder> {
+
+    private static final int VIEW_TYPE_EXPENSE = 0;
+    private static final int VIEW_TYPE_HEADER = 1;
+
+    /**
+     * Items are Expense rows and SectionHeader markers
+     * Same row = same primary key / same day; same content = equals (every displayed field)
+     */
+    private static final DiffUtil.ItemCallback<Object> DIFF_CALLBACK = new DiffUtil.ItemCallback<Object>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof Expense && newItem instanceof Expense) {
+                return ((Expense) oldItem).getId() == ((Expense) newItem).getId();
+            }
+            if (oldItem instanceof SectionHeader && newItem instanceof SectionHeader) {
+                return ((SectionHeader) oldItem).dayStart == ((SectionHeader) newItem).dayStart;
+            }
+            return false;
+        }
+
+        @SuppressLint("DiffUtilEquals")
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
 
     private Context context;
-    private List<Expense> expenses;
-    private List<Expense> expensesFiltered;
-    private DatabaseHelper dbHelper;
+    private List<Expense> expenses; // last submitted rows; pages are appended to it
+    private ExpenseSections committedSections; // layout of getCurrentList(), used by every bind
     private OnExpenseClickListener listener;
     private CurrencyConverter currencyConverter;
 
-    private NumberFormat currencyFormat;
-    private SimpleDateFormat dateFormat;
-
     // ✅ NEW: Touch detection for scroll sensitivity fix
     private static final int CLICK_ACTION_THRESHOLD = 200; // milliseconds
     private long touchDownTime;
@@ -54,42 +78,72 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
     }
 
     public ExpenseAdapter(Context context, List<Expense> expenses, OnExpenseClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.expenses = expenses;
-        this.expensesFiltered = new ArrayList<>(expenses);
+        this.expenses = new ArrayList<>(expenses);
+        this.committedSections = ExpenseSections.flat(expenses.size());
         this.listener = listener;
-        this.dbHelper = DatabaseHelper.getInstance(context);
-        this.currencyConverter = new CurrencyConverter(context);
+        this.currencyConverter = CurrencyConverter.getInstance(context);
+        setHasStableIds(true);
+        submitList(new ArrayList<>(expenses));
+    }
 
-        this.currencyFormat = NumberFormat.getInstance(new Locale("vi", "VN"));
-        this.dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
+    @Override
+    public int getItemViewType(int position) {
+        return committedSections.isHeader(position) ? VIEW_TYPE_HEADER : VIEW_TYPE_EXPENSE;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (committedSections.isHeader(position)) {
+            // Negative, so it never collides with an expense ID
+            return ~committedSections.getDayStart(committedSections.sectionAt(position));
+        }
+        return ((Expense) getItem(position)).getId();
     }
 
     @NonNull
     @Override
-    public ExpenseViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == VIEW_TYPE_HEADER) {
+            View view = LayoutInflater.from(context).inflate(R.layout.item_expense_section_header, parent, false);
+            return new HeaderViewHolder(view);
+        }
         View view = LayoutInflater.from(context).inflate(R.layout.item_expense, parent, false);
         return new ExpenseViewHolder(view);
     }
 
-    @SuppressLint("ClickableViewAccessibility")
     @Override
-    public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position) {
-        Expense expense = expensesFiltered.get(position);
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        if (holder instanceof HeaderViewHolder) {
+            bindHeader((HeaderViewHolder) holder, committedSections.sectionAt(position));
+        } else {
+            bindExpense((ExpenseViewHolder) holder, (Expense) getItem(position));
+        }
+    }
 
-        // Get category info
-        Category category = dbHelper.getCategoryById(expense.getCategoryId());
+    /**
+     * ✅ NEW: Day label + that day's totals (full day from SQL, not just the loaded rows)
+     */
+    private void bindHeader(HeaderViewHolder holder, int section) {
+        holder.tvDate.setText(DateLabelCache.format(DateLabelCache.PATTERN_DAY_HEADER,
+                committedSections.getDayStart(section)));
+
+        double income = committedSections.getIncomeTotal(section);
+        double expense = committedSections.getExpenseTotal(section);
+        holder.tvIncome.setVisibility(income > 0 ? View.VISIBLE : View.GONE);
+        holder.tvIncome.setText("+" + AmountFormatter.formatVnd(income) + "đ");
+        holder.tvExpense.setVisibility(expense > 0 ? View.VISIBLE : View.GONE);
+        holder.tvExpense.setText("-" + AmountFormatter.formatVnd(expense) + "đ");
+    }
 
-        if (category != null) {
-            // ✅ LOCALIZATION: Get localized category name
-            String localizedName = DatabaseHelper.getLocalizedCategoryName(
-                    context,
-                    category.getName()
-            );
+    @SuppressLint("ClickableViewAccessibility")
+    private void bindExpense(@NonNull ExpenseViewHolder holder, Expense expense) {
+        // ✅ Category label + icon: two array reads from the per-locale CategoryResolver table
+        String localizedName = CategoryResolver.getLabel(context, expense.getCategoryId());
+        if (localizedName != null) {
             holder.tvCategoryName.setText(localizedName);
-
-            // ✅ FIX 2A: Load dynamic category icon
-            loadCategoryIcon(holder.ivCategoryIcon, category.getIconResource());
+            holder.ivCategoryIcon.setImageResource(CategoryResolver.getIconRes(context, expense.getCategoryId()));
         }
 
         // Format amount with correct currency and +/- sign
@@ -130,8 +184,8 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
             holder.ivReceiptIndicator.setVisibility(View.GONE);
         }
 
-        // Format date
-        String formattedDate = dateFormat.format(new Date(expense.getDate()));
+        // Format date (one label per day, shared with reports)
+        String formattedDate = DateLabelCache.format(DateLabelCache.PATTERN_DATE, expense.getDate());
         holder.tvDate.setText(formattedDate);
 
         // Description
@@ -188,99 +242,101 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
     }
 
     /**
-     * ✅ FIX 2A: Load category icon dynamically from drawable resources
-     * @param imageView Target ImageView
-     * @param iconName Icon resource name (e.g., "ic_food", "ic_transport")
+     * Rows come already filtered, searched and sorted from SQL (ExpenseQuery)
+     *
+     * @param newSections Layout of {@code newExpenses} (ExpenseSections.flat for no headers)
      */
-    private void loadCategoryIcon(ImageView imageView, String iconName) {
-        try {
-            // Get resource ID from drawable name
-            Resources resources = context.getResources();
-            int iconResId = resources.getIdentifier(
-                    iconName,
-                    "drawable",
-                    context.getPackageName()
-            );
-
-            if (iconResId != 0) {
-                // Icon found - load it
-                Drawable icon = ContextCompat.getDrawable(context, iconResId);
-                imageView.setImageDrawable(icon);
-            } else {
-                // Fallback to default icon
-                imageView.setImageResource(android.R.drawable.ic_dialog_info);
-            }
-        } catch (Exception e) {
-            // Error loading icon - use default
-            imageView.setImageResource(android.R.drawable.ic_dialog_info);
-            e.printStackTrace();
-        }
-    }
-
-    @Override
-    public int getItemCount() {
-        return expensesFiltered.size();
+    public void updateExpenses(List<Expense> newExpenses, ExpenseSections newSections) {
+        updateExpenses(newExpenses, newSections, null);
     }
 
-    public void updateExpenses(List<Expense> newExpenses) {
-        this.expenses = newExpenses;
-        this.expensesFiltered = new ArrayList<>(newExpenses);
-        notifyDataSetChanged();
+    /**
+     * @param onCommitted Runs once the diff is applied (e.g. scroll to top for a new search)
+     */
+    public void updateExpenses(List<Expense> newExpenses, ExpenseSections newSections, Runnable onCommitted) {
+        this.expenses = new ArrayList<>(newExpenses);
+        submit(newSections, onCommitted);
     }
 
-    public void filter(String query) {
-        expensesFiltered.clear();
-
-        if (query == null || query.isEmpty()) {
-            expensesFiltered.addAll(expenses);
-        } else {
-            String lowerCaseQuery = query.toLowerCase();
-
-            for (Expense expense : expenses) {
-                String description = expense.getDescription();
-                Category category = dbHelper.getCategoryById(expense.getCategoryId());
+    /**
+     * ✅ NEW: Append the next page without rebinding rows already on screen
+     *
+     * @param newSections Layout of the rows so far plus {@code page} (ExpenseSections.append)
+     */
+    public void appendExpenses(List<Expense> page, ExpenseSections newSections) {
+        if (page == null || page.isEmpty()) return;
 
-                boolean matchDescription = description != null &&
-                        description.toLowerCase().contains(lowerCaseQuery);
-                boolean matchCategory = category != null &&
-                        category.getName().toLowerCase().contains(lowerCaseQuery);
+        expenses.addAll(page);
+        submit(newSections, null);
+    }
 
-                if (matchDescription || matchCategory) {
-                    expensesFiltered.add(expense);
-                }
+    /**
+     * Flatten rows + headers in the sections' order; binds switch to the new sections only when
+     * ListAdapter commits the matching list
+     */
+    private void submit(ExpenseSections newSections, Runnable onCommitted) {
+        List<Object> items = new ArrayList<>(newSections.getItemCount());
+        for (int position = 0; position < newSections.getItemCount(); position++) {
+            int row = newSections.rowAt(position);
+            if (row >= 0) {
+                items.add(expenses.get(row));
+            } else {
+                int section = newSections.sectionAt(position);
+                items.add(new SectionHeader(newSections.getDayStart(section),
+                        newSections.getExpenseTotal(section), newSections.getIncomeTotal(section)));
             }
         }
 
-        notifyDataSetChanged();
+        submitList(items, () -> {
+            committedSections = newSections;
+            if (onCommitted != null) {
+                onCommitted.run();
+            }
+        });
     }
 
-    public void filterByCategory(int categoryId) {
-        expensesFiltered.clear();
+    /**
+     * Diff marker for a header: a day whose totals changed is rebound, an unchanged day is not
+     */
+    private static final class SectionHeader {
+        final long dayStart;
+        final double expenseTotal;
+        final double incomeTotal;
+
+        SectionHeader(long dayStart, double expenseTotal, double incomeTotal) {
+            this.dayStart = dayStart;
+            this.expenseTotal = expenseTotal;
+            this.incomeTotal = incomeTotal;
+        }
 
-        if (categoryId == 0) {
-            expensesFiltered.addAll(expenses);
-        } else {
-            for (Expense expense : expenses) {
-                if (expense.getCategoryId() == categoryId) {
-                    expensesFiltered.add(expense);
-                }
-            }
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SectionHeader)) return false;
+            SectionHeader other = (SectionHeader) o;
+            return dayStart == other.dayStart
+                    && Double.compare(expenseTotal, other.expenseTotal) == 0
+                    && Double.compare(incomeTotal, other.incomeTotal) == 0;
         }
 
-        notifyDataSetChanged();
+        @Override
+        public int hashCode() {
+            return Long.hashCode(dayStart);
+        }
     }
 
-    public void filterByDateRange(long startDate, long endDate) {
-        expensesFiltered.clear();
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        TextView tvDate;
+        TextView tvIncome;
+        TextView tvExpense;
 
-        for (Expense expense : expenses) {
-            long expenseDate = expense.getDate();
-            if (expenseDate >= startDate && expenseDate <= endDate) {
-                expensesFiltered.add(expense);
-            }
-        }
+        public HeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
 
-        notifyDataSetChanged();
+            tvDate = itemView.findViewById(R.id.tv_section_date);
+            tvIncome = itemView.findViewById(R.id.tv_section_income);
+            tvExpense = itemView.findViewById(R.id.tv_section_expense);
+        }
     }
 
     static class ExpenseViewHolder extends RecyclerView.ViewHolder {
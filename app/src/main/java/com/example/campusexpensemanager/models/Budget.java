@@ -8,7 +8,7 @@ public class Budget {
     private int id;
     private int userId;
     private int categoryId; // 0 for total budget, >0 for category-specific
-    private double amount;
+    private Money amount = Money.ZERO; // ✅ v9: exact minor units
     private long periodStart; // Unix timestamp
     private long periodEnd; // Unix timestamp
     private long createdAt;
@@ -22,14 +22,14 @@ public class Budget {
     public Budget(int userId, int categoryId, double amount, long periodStart, long periodEnd) {
         this.userId = userId;
         this.categoryId = categoryId;
-        this.amount = amount;
+        this.amount = Money.of(amount);
         this.periodStart = periodStart;
         this.periodEnd = periodEnd;
         this.createdAt = System.currentTimeMillis();
     }
 
     // Full constructor
-    public Budget(int id, int userId, int categoryId, double amount, long periodStart,
+    public Budget(int id, int userId, int categoryId, Money amount, long periodStart,
                   long periodEnd, long createdAt) {
         this.id = id;
         this.userId = userId;
@@ -66,10 +66,18 @@ public class Budget {
     }
 
     public double getAmount() {
-        return amount;
+        return amount.toDouble();
     }
 
     public void setAmount(double amount) {
+        this.amount = Money.of(amount);
+    }
+
+    public Money getMoney() {
+        return amount;
+    }
+
+    public void setMoney(Money amount) {
         this.amount = amount;
     }
 
@@ -103,7 +111,7 @@ public class Budget {
      * @return Remaining budget amount
      */
     public double calculateRemaining(double spent) {
-        return amount - spent;
+        return amount.minus(Money.of(spent)).toDouble();
     }
 
     /**
@@ -112,8 +120,7 @@ public class Budget {
      * @return Percentage (0-100+)
      */
     public double calculatePercentageSpent(double spent) {
-        if (amount == 0) return 0;
-        return (spent / amount) * 100;
+        return Money.of(spent).percentOf(amount);
     }
 
     @Override
@@ -0,0 +1,46 @@
+package com.example.campusexpensemanager.models;
+
+/**
+ * BudgetProgress - A budget together with the amount already spent in its period
+ * Computed for all budgets of a user in one query (DatabaseHelper.getBudgetProgressForUser)
+ */
+public class BudgetProgress {
+    private final Budget budget;
+    private final Money spent;
+
+    public BudgetProgress(Budget budget, Money spent) {
+        this.budget = budget;
+        this.spent = spent;
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    public double getSpent() {
+        return spent.toDouble();
+    }
+
+    public Money getSpentMoney() {
+        return spent;
+    }
+
+    public double getRemaining() {
+        return budget.getMoney().minus(spent).toDouble();
+    }
+
+    /**
+     * @return Percentage (0-100+) of the budget spent
+     */
+    public double getPercentage() {
+        return spent.percentOf(budget.getMoney());
+    }
+
+    @Override
+    public String toString() {
+        return "BudgetProgress{" +
+                "budget=" + budget +
+                ", spent=" + spent +
+                '}';
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.campusexpensemanager.models;
 
+import com.example.campusexpensemanager.utils.AmountFormatter;
+
 /**
  * Currency model for multi-currency support
  * Sprint 5: VND and USD support
  */
 public class Currency {
+    // Base currency: seeded first by DatabaseHelper.prepopulateCurrencies with rate_to_vnd = 1
+    public static final int ID_VND = 1;
+
     private int id;
     private String code; // VND, USD
     private double rateToVnd; // Conversion rate to VND
@@ -93,13 +98,7 @@ public class Currency {
      * Format amount with currency
      */
     public String formatAmount(double amount) {
-        java.text.NumberFormat format = java.text.NumberFormat.getInstance(new java.util.Locale("vi", "VN"));
-
-        if (code.equals("VND")) {
-            return format.format(amount) + "₫";
-        } else {
-            return "$" + String.format("%.2f", amount);
-        }
+        return AmountFormatter.format(amount, code);
     }
 
     @Override
@@ -1,5 +1,9 @@
 package com.example.campusexpensemanager.models;
 
+import com.example.campusexpensemanager.utils.AmountFormatter;
+
+import java.util.Objects;
+
 /**
  * Expense model - Enhanced for Sprint 5
  * NEW: Recurring expenses, Income tracking
@@ -8,6 +12,7 @@ public class Expense {
     // Transaction types
     public static final int TYPE_EXPENSE = 0; // Chi tiêu (red)
     public static final int TYPE_INCOME = 1;  // Thu nhập (green)
+    public static final int TYPE_ALL = -1;    // Query filter: both types
 
     // Recurrence periods
     public static final String PERIOD_DAILY = "daily";
@@ -18,7 +23,7 @@ public class Expense {
     private int userId;
     private int categoryId;
     private int currencyId;
-    private double amount;
+    private Money amount = Money.ZERO; // ✅ v9: exact minor units
     private long date; // Unix timestamp in milliseconds
     private String description;
     private String receiptPath;
@@ -47,7 +52,7 @@ public class Expense {
         this.userId = userId;
         this.categoryId = categoryId;
         this.currencyId = 1; // Default VND
-        this.amount = amount;
+        this.amount = Money.of(amount);
         this.date = date;
         this.description = description;
         this.createdAt = System.currentTimeMillis();
@@ -60,7 +65,7 @@ public class Expense {
         this.userId = userId;
         this.categoryId = categoryId;
         this.currencyId = 1;
-        this.amount = amount;
+        this.amount = Money.of(amount);
         this.date = date;
         this.description = description;
         this.createdAt = System.currentTimeMillis();
@@ -69,7 +74,7 @@ public class Expense {
     }
 
     // Full constructor (from database)
-    public Expense(int id, int userId, int categoryId, int currencyId, double amount,
+    public Expense(int id, int userId, int categoryId, int currencyId, Money amount,
                    long date, String description, String receiptPath, long createdAt, int type) {
         this.id = id;
         this.userId = userId;
@@ -118,10 +123,18 @@ public class Expense {
     }
 
     public double getAmount() {
-        return amount;
+        return amount.toDouble();
     }
 
     public void setAmount(double amount) {
+        this.amount = Money.of(amount);
+    }
+
+    public Money getMoney() {
+        return amount;
+    }
+
+    public void setMoney(Money amount) {
         this.amount = amount;
     }
 
@@ -220,8 +233,7 @@ public class Expense {
      * @return "+1,000đ" for income, "-500đ" for expense
      */
     public String getFormattedAmount() {
-        java.text.NumberFormat format = java.text.NumberFormat.getInstance(new java.util.Locale("vi", "VN"));
-        String amountStr = format.format(amount) + "đ";
+        String amountStr = AmountFormatter.formatVnd(amount.toDouble()) + "đ";
 
         if (isIncome()) {
             return "+" + amountStr;
@@ -246,6 +258,38 @@ public class Expense {
         }
     }
 
+    /**
+     * ✅ NEW: Content equality over every stored field, so list diffs rebind only edited rows
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Expense)) return false;
+        Expense other = (Expense) o;
+        return id == other.id
+                && userId == other.userId
+                && categoryId == other.categoryId
+                && currencyId == other.currencyId
+                && date == other.date
+                && createdAt == other.createdAt
+                && type == other.type
+                && isRecurring == other.isRecurring
+                && nextOccurrenceDate == other.nextOccurrenceDate
+                && recurringGroupId == other.recurringGroupId
+                && recurringEndDate == other.recurringEndDate
+                && Objects.equals(amount, other.amount)
+                && Objects.equals(description, other.description)
+                && Objects.equals(receiptPath, other.receiptPath)
+                && Objects.equals(recurrencePeriod, other.recurrencePeriod);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, userId, categoryId, currencyId, amount, date, description,
+                receiptPath, createdAt, type, isRecurring, recurrencePeriod, nextOccurrenceDate,
+                recurringGroupId, recurringEndDate);
+    }
+
     @Override
     public String toString() {
         return "Expense{" +
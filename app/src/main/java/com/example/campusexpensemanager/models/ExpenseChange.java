@@ -0,0 +1,104 @@
+package com.example.campusexpensemanager.models;
+
+import android.content.Intent;
+
+/**
+ * ExpenseChange - What Add/EditExpenseActivity wrote, returned in the result Intent
+ * Lets the list patch the affected rows in place instead of reloading every page.
+ * A missing descriptor means "unknown change": the caller falls back to a full reload.
+ */
+public final class ExpenseChange {
+
+    private static final String EXTRA_INSERTED_IDS = "expense_change_inserted_ids";
+    private static final String EXTRA_UPDATED_IDS = "expense_change_updated_ids";
+    private static final String EXTRA_DELETED_IDS = "expense_change_deleted_ids";
+
+    private static final int[] NONE = new int[0];
+
+    private final int[] insertedIds;
+    private final int[] updatedIds;
+    private final int[] deletedIds;
+
+    private ExpenseChange(int[] insertedIds, int[] updatedIds, int[] deletedIds) {
+        this.insertedIds = insertedIds;
+        this.updatedIds = updatedIds;
+        this.deletedIds = deletedIds;
+    }
+
+    public static ExpenseChange inserted(int id) {
+        return new ExpenseChange(new int[]{id}, NONE, NONE);
+    }
+
+    /**
+     * @param ids Every row written (e.g. a recurring master and its future occurrences)
+     */
+    public static ExpenseChange updated(int[] ids) {
+        return new ExpenseChange(NONE, ids.clone(), NONE);
+    }
+
+    public static ExpenseChange deleted(int[] ids) {
+        return new ExpenseChange(NONE, NONE, ids.clone());
+    }
+
+    /**
+     * @return Result Intent carrying this change (pass to setResult)
+     */
+    public Intent toIntent() {
+        return new Intent()
+                .putExtra(EXTRA_INSERTED_IDS, insertedIds)
+                .putExtra(EXTRA_UPDATED_IDS, updatedIds)
+                .putExtra(EXTRA_DELETED_IDS, deletedIds);
+    }
+
+    /**
+     * @return The change carried by {@code data}, or null if it carries none
+     */
+    public static ExpenseChange fromIntent(Intent data) {
+        if (data == null || !data.hasExtra(EXTRA_INSERTED_IDS)) {
+            return null;
+        }
+        return new ExpenseChange(
+                orNone(data.getIntArrayExtra(EXTRA_INSERTED_IDS)),
+                orNone(data.getIntArrayExtra(EXTRA_UPDATED_IDS)),
+                orNone(data.getIntArrayExtra(EXTRA_DELETED_IDS)));
+    }
+
+    private static int[] orNone(int[] ids) {
+        return ids != null ? ids : NONE;
+    }
+
+    /**
+     * @return IDs whose current row must be (re)read: inserted + updated
+     */
+    public int[] getWrittenIds() {
+        int[] written = new int[insertedIds.length + updatedIds.length];
+        System.arraycopy(insertedIds, 0, written, 0, insertedIds.length);
+        System.arraycopy(updatedIds, 0, written, insertedIds.length, updatedIds.length);
+        return written;
+    }
+
+    /**
+     * @return Number of rows touched by the change
+     */
+    public int size() {
+        return insertedIds.length + updatedIds.length + deletedIds.length;
+    }
+
+    public boolean touches(int expenseId) {
+        return contains(insertedIds, expenseId) || contains(updatedIds, expenseId)
+                || contains(deletedIds, expenseId);
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int value : ids) {
+            if (value == id) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseChange{inserted=" + insertedIds.length + ", updated=" + updatedIds.length
+                + ", deleted=" + deletedIds.length + "}";
+    }
+}
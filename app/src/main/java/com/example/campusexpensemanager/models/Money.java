@@ -0,0 +1,98 @@
+package com.example.campusexpensemanager.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money - Immutable fixed-point amount in minor units (hundredths of the currency unit)
+ * Amounts are stored as INTEGER minor units (DB v9), so SUMs and comparisons are exact.
+ * double is only used at the edges (user input, display).
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 100; // 2 decimal places (cents for USD)
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Round a decimal amount to the nearest minor unit (half up, on its shortest decimal form)
+     */
+    public static Money of(double amount) {
+        double scaled = amount * SCALE;
+        if (scaled == Math.rint(scaled) && Math.abs(scaled) < Long.MAX_VALUE) {
+            return ofMinorUnits((long) scaled);
+        }
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+        // e.g. 0.29 * 100 = 28.999999999999996 -> 29
+        return ofMinorUnits(BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue());
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public double toDouble() {
+        return (double) minorUnits / SCALE;
+    }
+
+    public Money plus(Money other) {
+        return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    /**
+     * Exact threshold check: this >= percent% of {@code limit}, without floating-point division
+     */
+    public boolean reachesPercentOf(Money limit, int percent) {
+        if (limit.minorUnits <= 0) return false;
+        return minorUnits * 100L >= limit.minorUnits * percent;
+    }
+
+    /**
+     * @return Percentage (0-100+) of {@code limit} this amount represents; 0 if limit is zero
+     */
+    public double percentOf(Money limit) {
+        if (limit.minorUnits == 0) return 0;
+        return (minorUnits * 100.0) / limit.minorUnits;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        return minorUnits == ((Money) o).minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(minorUnits, 2).toPlainString();
+    }
+}
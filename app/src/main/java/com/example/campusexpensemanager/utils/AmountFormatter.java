@@ -0,0 +1,120 @@
+package com.example.campusexpensemanager.utils;
+
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * AmountFormatter - Cached money formatting for list binding, charts and exports
+ * Output is byte-identical to the previous per-call formatting:
+ *  - VND: NumberFormat.getInstance(vi_VN).format(amount)   e.g. "1.250.000"
+ *  - USD: String.format("%.2f", amount)                    e.g. "12.50" (default locale separator)
+ * Whole amounts (the common case) are written digit by digit into a per-thread buffer;
+ * anything else falls back to a per-thread cached formatter instead of a new one per call.
+ */
+public final class AmountFormatter {
+
+    public static final Locale VND_LOCALE = new Locale("vi", "VN");
+
+    // Doubles above 2^53 are not exact integers; leave them to NumberFormat
+    private static final double MAX_EXACT = 9007199254740992.0;
+    private static final char VND_GROUPING = '.';
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[32]);
+    private static final ThreadLocal<NumberFormat> VND_FORMAT =
+            ThreadLocal.withInitial(() -> NumberFormat.getInstance(VND_LOCALE));
+
+    // Decimal separator of the default locale, re-read only when the locale changes
+    private static volatile LocaleSymbols usdSymbols;
+
+    private AmountFormatter() {
+    }
+
+    /**
+     * Format with the currency's symbol (same output as Currency.formatAmount)
+     */
+    public static String format(double amount, String currencyCode) {
+        if ("VND".equals(currencyCode)) {
+            return formatVnd(amount) + "₫";
+        }
+        return "$" + formatUsd(amount);
+    }
+
+    /**
+     * @return Grouped VND amount without symbol, e.g. "1.250.000"
+     */
+    public static String formatVnd(double amount) {
+        if (!isWholeNonNegative(amount)) {
+            return VND_FORMAT.get().format(amount);
+        }
+
+        char[] buffer = BUFFER.get();
+        int pos = buffer.length;
+        long value = (long) amount;
+        int digits = 0;
+        do {
+            if (digits > 0 && digits % 3 == 0) {
+                buffer[--pos] = VND_GROUPING;
+            }
+            buffer[--pos] = (char) ('0' + (value % 10));
+            value /= 10;
+            digits++;
+        } while (value != 0);
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
+    /**
+     * @return Two-decimal amount without symbol, e.g. "12.50"
+     */
+    public static String formatUsd(double amount) {
+        LocaleSymbols symbols = getUsdSymbols();
+        double cents = amount * 100;
+        // Only exact cent values skip String.format; half-way cases keep its rounding
+        if (symbols.zeroDigit != '0' || !isWholeNonNegative(cents)) {
+            return String.format("%.2f", amount);
+        }
+
+        char[] buffer = BUFFER.get();
+        int pos = buffer.length;
+        long value = (long) cents;
+        for (int i = 0; i < 2; i++) {
+            buffer[--pos] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        buffer[--pos] = symbols.decimalSeparator;
+        do {
+            buffer[--pos] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
+    private static boolean isWholeNonNegative(double value) {
+        // Rejects NaN, infinities, negatives and -0.0 (which formats as "-0")
+        return value >= 0 && value < MAX_EXACT && value == Math.rint(value)
+                && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0);
+    }
+
+    private static LocaleSymbols getUsdSymbols() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        LocaleSymbols symbols = usdSymbols;
+        if (symbols == null || !symbols.locale.equals(locale)) {
+            symbols = new LocaleSymbols(locale);
+            usdSymbols = symbols;
+        }
+        return symbols;
+    }
+
+    private static final class LocaleSymbols {
+        final Locale locale;
+        final char decimalSeparator;
+        final char zeroDigit;
+
+        LocaleSymbols(Locale locale) {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            this.locale = locale;
+            this.decimalSeparator = symbols.getDecimalSeparator();
+            this.zeroDigit = symbols.getZeroDigit();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.campusexpensemanager.utils;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+
+import com.example.campusexpensemanager.R;
+import com.example.campusexpensemanager.models.Category;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CategoryResolver - Localized category labels and icon resources, resolved once per locale
+ * Binding a row is two array reads (label + icon) instead of Resources.getIdentifier per row.
+ * Rebuilt when LocaleHelper.setLocale changes the language or the category snapshot changes.
+ */
+public final class CategoryResolver {
+
+    private static final String TAG = "CategoryResolver";
+    private static final int DEFAULT_ICON = android.R.drawable.ic_dialog_info;
+
+    // Category key -> string resource (compile-time IDs, no reflection)
+    private static final Map<String, Integer> LABEL_RES_IDS;
+
+    // ✅ LEGACY SUPPORT: display names stored before categories used keys ("Food & Dining" -> cat_food)
+    private static final Map<String, String> LEGACY_KEYS;
+
+    static {
+        Map<String, Integer> labels = new HashMap<>();
+        labels.put("cat_food", R.string.cat_food);
+        labels.put("cat_transport", R.string.cat_transport);
+        labels.put("cat_study", R.string.cat_study);
+        labels.put("cat_entertainment", R.string.cat_entertainment);
+        labels.put("cat_shopping", R.string.cat_shopping);
+        labels.put("cat_health", R.string.cat_health);
+        labels.put("cat_utilities", R.string.cat_utilities);
+        labels.put("cat_housing", R.string.cat_housing);
+        labels.put("cat_personal", R.string.cat_personal);
+        labels.put("cat_salary", R.string.cat_salary);
+        labels.put("cat_others", R.string.cat_others);
+        labels.put("cat_unknown", R.string.cat_unknown);
+        LABEL_RES_IDS = Collections.unmodifiableMap(labels);
+
+        Map<String, String> legacy = new HashMap<>();
+        legacy.put("Food & Dining", "cat_food");
+        legacy.put("Transportation", "cat_transport");
+        legacy.put("Study & Books", "cat_study");
+        legacy.put("Entertainment", "cat_entertainment");
+        legacy.put("Shopping", "cat_shopping");
+        legacy.put("Healthcare", "cat_health");
+        legacy.put("Utilities", "cat_utilities");
+        legacy.put("Housing", "cat_housing");
+        legacy.put("Personal Care", "cat_personal");
+        legacy.put("Salary", "cat_salary");
+        legacy.put("Others", "cat_others");
+        LEGACY_KEYS = Collections.unmodifiableMap(legacy);
+    }
+
+    private static volatile LabelTable labelTable;
+    private static volatile CategoryTable categoryTable;
+
+    private CategoryResolver() {
+    }
+
+    /**
+     * Drop resolved labels; called by LocaleHelper when the language changes
+     */
+    public static void invalidate() {
+        labelTable = null;
+        categoryTable = null;
+    }
+
+    /**
+     * @return Localized label for a category ID, or null if the ID is unknown
+     */
+    public static String getLabel(Context context, int categoryId) {
+        CategoryTable table = getCategoryTable(context);
+        return categoryId >= 0 && categoryId < table.labels.length ? table.labels[categoryId] : null;
+    }
+
+    /**
+     * @return Drawable resource for a category ID (default icon if unknown or missing)
+     */
+    public static int getIconRes(Context context, int categoryId) {
+        CategoryTable table = getCategoryTable(context);
+        return categoryId >= 0 && categoryId < table.icons.length ? table.icons[categoryId] : DEFAULT_ICON;
+    }
+
+    /**
+     * ✅ NEW: Categories whose localized label contains {@code query} (case-insensitive)
+     * Labels live in resources, not the DB, so list search matches them here and passes the IDs to SQL.
+     */
+    public static int[] findCategoryIds(Context context, String query) {
+        if (query == null || query.trim().isEmpty()) return new int[0];
+
+        CategoryTable table = getCategoryTable(context);
+        String needle = query.trim().toLowerCase(table.labelTable.locale);
+        int[] matches = new int[table.searchLabels.length];
+        int count = 0;
+        for (int id = 0; id < table.searchLabels.length; id++) {
+            if (table.searchLabels[id] != null && table.searchLabels[id].contains(needle)) {
+                matches[count++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * ✅ NEW: Write the current language's category order into categories.sort_rank
+     * The "category" list sort is an ORDER BY on that column, so call this (off the main thread)
+     * before a category-sorted query. Ranks are written once per locale and category snapshot.
+     */
+    public static void ensureSortRanks(Context context) {
+        CategoryTable table = getCategoryTable(context);
+        // Only marked stored on success, so a failed write is retried by the next category-sorted load
+        if (!table.ranksStored && DatabaseHelper.getInstance(context).updateCategorySortRanks(table.sortRanks)) {
+            table.ranksStored = true;
+        }
+    }
+
+    /**
+     * ✅ NEW: Category ID -> rank in the current language (the values ensureSortRanks stores)
+     */
+    public static int[] getSortRanks(Context context) {
+        return getCategoryTable(context).sortRanks.clone();
+    }
+
+    /**
+     * Localized label for a stored category key (or legacy display name)
+     * Unknown keys are user-entered names and are returned as-is.
+     */
+    public static String getLabel(Context context, String categoryKey) {
+        LabelTable table = getLabelTable(context);
+        if (categoryKey == null || categoryKey.isEmpty()) {
+            return table.labelsByKey.get("cat_others");
+        }
+        return resolveKey(table, categoryKey);
+    }
+
+    private static String resolveKey(LabelTable table, String categoryKey) {
+        String label = table.labelsByKey.get(categoryKey);
+        if (label == null) {
+            String legacyKey = LEGACY_KEYS.get(categoryKey);
+            label = legacyKey != null ? table.labelsByKey.get(legacyKey) : categoryKey;
+        }
+        return label;
+    }
+
+    // =============== TABLES ===============
+
+    private static LabelTable getLabelTable(Context context) {
+        Locale locale = currentLocale(context);
+        LabelTable table = labelTable;
+        if (table == null || !table.locale.equals(locale)) {
+            table = new LabelTable(context, locale);
+            labelTable = table;
+        }
+        return table;
+    }
+
+    private static CategoryTable getCategoryTable(Context context) {
+        LabelTable labels = getLabelTable(context);
+        DatabaseHelper.CategorySnapshot snapshot = DatabaseHelper.getInstance(context).getCategorySnapshot();
+        CategoryTable table = categoryTable;
+        if (table == null || table.labelTable != labels || table.snapshot != snapshot) {
+            table = new CategoryTable(context, labels, snapshot);
+            categoryTable = table;
+        }
+        return table;
+    }
+
+    private static Locale currentLocale(Context context) {
+        return context.getResources().getConfiguration().getLocales().get(0);
+    }
+
+    /**
+     * Ranks labels with the locale's Collator ("Ăn uống" next to "An", not after "Z");
+     * ties and unknown IDs fall back to ID order
+     */
+    private static int[] collationRanks(String[] labels, Locale locale) {
+        Collator collator = Collator.getInstance(locale);
+        Integer[] ids = new Integer[labels.length];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = id;
+        }
+        Arrays.sort(ids, (a, b) -> {
+            if (labels[a] == null || labels[b] == null) {
+                return labels[a] == null ? (labels[b] == null ? Integer.compare(a, b) : 1) : -1;
+            }
+            int byLabel = collator.compare(labels[a], labels[b]);
+            return byLabel != 0 ? byLabel : Integer.compare(a, b);
+        });
+
+        int[] ranks = new int[labels.length];
+        for (int rank = 0; rank < ids.length; rank++) {
+            ranks[ids[rank]] = rank;
+        }
+        return ranks;
+    }
+
+    /**
+     * Key -> localized label for one locale
+     */
+    private static final class LabelTable {
+        final Locale locale;
+        final Map<String, String> labelsByKey;
+
+        LabelTable(Context context, Locale locale) {
+            this.locale = locale;
+            Map<String, String> labels = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : LABEL_RES_IDS.entrySet()) {
+                labels.put(entry.getKey(), context.getString(entry.getValue()));
+            }
+            this.labelsByKey = Collections.unmodifiableMap(labels);
+        }
+    }
+
+    /**
+     * Category ID -> label / icon arrays for one locale and one category snapshot
+     */
+    private static final class CategoryTable {
+        final LabelTable labelTable;
+        final DatabaseHelper.CategorySnapshot snapshot;
+        final String[] labels;
+        final String[] searchLabels; // lowercased labels for findCategoryIds
+        final int[] icons;
+        final int[] sortRanks; // category ID -> position in Collator order of the labels
+        volatile boolean ranksStored;
+
+        CategoryTable(Context context, LabelTable labelTable, DatabaseHelper.CategorySnapshot snapshot) {
+            this.labelTable = labelTable;
+            this.snapshot = snapshot;
+
+            List<Category> categories = snapshot.getAll();
+            int maxId = 0;
+            for (Category category : categories) {
+                maxId = Math.max(maxId, category.getId());
+            }
+
+            labels = new String[maxId + 1];
+            searchLabels = new String[maxId + 1];
+            icons = new int[maxId + 1];
+            Arrays.fill(icons, DEFAULT_ICON);
+
+            // Icon names come from the DB, so they are resolved by name here - once per table, not per row
+            Resources resources = context.getResources();
+            Map<String, Integer> iconCache = new HashMap<>();
+            for (Category category : categories) {
+                int id = category.getId();
+                if (id < 0) continue;
+
+                labels[id] = resolveKey(labelTable, category.getName());
+                searchLabels[id] = labels[id] != null ? labels[id].toLowerCase(labelTable.locale) : null;
+
+                String iconName = category.getIconResource();
+                if (iconName != null && !iconName.isEmpty()) {
+                    Integer iconRes = iconCache.get(iconName);
+                    if (iconRes == null) {
+                        iconRes = resources.getIdentifier(iconName, "drawable", context.getPackageName());
+                        iconCache.put(iconName, iconRes);
+                    }
+                    if (iconRes != 0) {
+                        icons[id] = iconRes;
+                    }
+                }
+            }
+            sortRanks = collationRanks(labels, labelTable.locale);
+            Log.d(TAG, "Resolved " + categories.size() + " categories for " + labelTable.locale);
+        }
+    }
+}
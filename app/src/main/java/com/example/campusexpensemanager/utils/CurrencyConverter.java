@@ -6,61 +6,97 @@ import android.database.sqlite.SQLiteDatabase;
 
 import com.example.campusexpensemanager.models.Currency;
 
-import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 /**
  * CurrencyConverter - Sprint 6 Complete
  * Handles currency conversion with proper DB queries and caching
+ * ✅ Process-wide singleton: rates live in an immutable snapshot that is swapped atomically,
+ * so convert/format are lock-free and safe from any thread.
+ * ✅ v11: The snapshot also holds the rate history; convertAt/getRateHistory price a row at
+ * the rate in force on its date instead of today's rate.
  */
 public class CurrencyConverter {
 
-    private DatabaseHelper dbHelper;
     private static final String TAG = "CurrencyConverter";
 
-    // Cache currencies to avoid repeated DB queries
-    private Map<Integer, Currency> currencyCache = new HashMap<>();
-    private long lastCacheUpdate = 0;
-    private static final long CACHE_DURATION = 5 * 60 * 1000; // 5 minutes
+    private static volatile CurrencyConverter instance;
 
-    public CurrencyConverter(Context context) {
+    private final DatabaseHelper dbHelper;
+    private final Object writeLock = new Object();
+
+    // Replaced as a whole on refresh/update; never mutated after publication
+    private volatile RateSnapshot snapshot;
+
+    private CurrencyConverter(Context context) {
         this.dbHelper = DatabaseHelper.getInstance(context);
-        loadCurrenciesFromDB();
+    }
+
+    public static CurrencyConverter getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CurrencyConverter.class) {
+                if (instance == null) {
+                    instance = new CurrencyConverter(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
     }
 
     /**
-     * Load all currencies from database into cache
+     * Immutable view of the currencies and currency_rates tables
      */
-    private void loadCurrenciesFromDB() {
-        long currentTime = System.currentTimeMillis();
+    private static final class RateSnapshot {
+        final Map<Integer, Currency> byId;
+        final RateHistory history;
+
+        RateSnapshot(Map<Integer, Currency> byId, RateHistory history) {
+            this.byId = Collections.unmodifiableMap(byId);
+            this.history = history;
+        }
+    }
 
-        // Refresh cache if expired
-        if (currentTime - lastCacheUpdate < CACHE_DURATION && !currencyCache.isEmpty()) {
-            return;
+    private RateSnapshot getSnapshot() {
+        RateSnapshot current = snapshot;
+        if (current != null) {
+            return current;
         }
+        synchronized (writeLock) {
+            if (snapshot == null) {
+                snapshot = loadCurrenciesFromDB();
+            }
+            return snapshot;
+        }
+    }
 
-        currencyCache.clear();
+    /**
+     * Load all currencies from database into a new snapshot
+     */
+    private RateSnapshot loadCurrenciesFromDB() {
+        Map<Integer, Currency> currencies = new HashMap<>();
         SQLiteDatabase db = dbHelper.getReadableDatabase();
         Cursor cursor = db.query("currencies", null, null, null, null, null, null);
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                int id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                String code = cursor.getString(cursor.getColumnIndexOrThrow("code"));
-                double rate = cursor.getDouble(cursor.getColumnIndexOrThrow("rate_to_vnd"));
-                long updated = cursor.getLong(cursor.getColumnIndexOrThrow("last_updated"));
-
-                Currency currency = new Currency(id, code, rate, updated);
-                currencyCache.put(id, currency);
-            } while (cursor.moveToNext());
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                int idIndex = cursor.getColumnIndexOrThrow("id");
+                int codeIndex = cursor.getColumnIndexOrThrow("code");
+                int rateIndex = cursor.getColumnIndexOrThrow("rate_to_vnd");
+                int updatedIndex = cursor.getColumnIndexOrThrow("last_updated");
+                do {
+                    int id = cursor.getInt(idIndex);
+                    currencies.put(id, new Currency(id, cursor.getString(codeIndex),
+                            cursor.getDouble(rateIndex), cursor.getLong(updatedIndex)));
+                } while (cursor.moveToNext());
+            }
             cursor.close();
         }
 
-        lastCacheUpdate = currentTime;
+        return new RateSnapshot(currencies, dbHelper.getRateHistory());
     }
 
     /**
@@ -75,10 +111,9 @@ public class CurrencyConverter {
             return amount;
         }
 
-        loadCurrenciesFromDB(); // Refresh cache if needed
-
-        Currency fromCurrency = currencyCache.get(fromCurrencyId);
-        Currency toCurrency = currencyCache.get(toCurrencyId);
+        Map<Integer, Currency> rates = getSnapshot().byId;
+        Currency fromCurrency = rates.get(fromCurrencyId);
+        Currency toCurrency = rates.get(toCurrencyId);
 
         if (fromCurrency == null || toCurrency == null) {
             return amount; // Return original if currencies not found
@@ -91,6 +126,25 @@ public class CurrencyConverter {
         return convertedAmount;
     }
 
+    /**
+     * Convert amount at the rates in force on {@code date} (e.g. an expense's date)
+     */
+    public double convertAt(double amount, int fromCurrencyId, int toCurrencyId, long date) {
+        if (fromCurrencyId == toCurrencyId) {
+            return amount;
+        }
+
+        RateHistory history = getSnapshot().history;
+        return amount * history.rateAt(fromCurrencyId, date) / history.rateAt(toCurrencyId, date);
+    }
+
+    /**
+     * Immutable rate history for bulk pricing (reports, exports): one binary search per row
+     */
+    public RateHistory getRateHistory() {
+        return getSnapshot().history;
+    }
+
     /**
      * Format amount with currency symbol
      * @param amount Amount to format
@@ -98,13 +152,11 @@ public class CurrencyConverter {
      * @return Formatted string (e.g., "1,000,000đ" or "$100.00")
      */
     public String format(double amount, int currencyId) {
-        loadCurrenciesFromDB();
-        Currency currency = currencyCache.get(currencyId);
+        Currency currency = getSnapshot().byId.get(currencyId);
 
         if (currency == null) {
             // Default to VND
-            NumberFormat format = NumberFormat.getInstance(new Locale("vi", "VN"));
-            return format.format(amount) + "đ";
+            return AmountFormatter.formatVnd(amount) + "đ";
         }
 
         return currency.formatAmount(amount);
@@ -123,37 +175,51 @@ public class CurrencyConverter {
     }
 
     /**
-     * Get currency by ID with caching
+     * Get currency by ID (from the current snapshot; do not mutate the result)
      */
     public Currency getCurrencyById(int currencyId) {
-        loadCurrenciesFromDB();
-        return currencyCache.get(currencyId);
+        return getSnapshot().byId.get(currencyId);
     }
 
     /**
      * Get all available currencies
      */
     public List<Currency> getAllCurrencies() {
-        loadCurrenciesFromDB();
-        return new ArrayList<>(currencyCache.values());
+        return new ArrayList<>(getSnapshot().byId.values());
+    }
+
+    /**
+     * Record a new exchange rate from now on (history is kept), then publish a new snapshot
+     *
+     * @return false if the currency is unknown or the rate couldn't be stored (snapshot unchanged)
+     */
+    public boolean updateExchangeRate(int currencyId, double newRate) {
+        synchronized (writeLock) {
+            RateSnapshot current = getSnapshot();
+            Currency currency = current.byId.get(currencyId);
+            if (currency == null) {
+                return false;
+            }
+
+            long now = System.currentTimeMillis();
+            if (!dbHelper.insertCurrencyRate(currencyId, newRate, now)) {
+                return false; // Readers must not see a rate the database doesn't have
+            }
+
+            // Copy-on-write: readers keep using the old snapshot until the swap
+            Map<Integer, Currency> updated = new HashMap<>(current.byId);
+            updated.put(currencyId, new Currency(currencyId, currency.getCode(), newRate, now));
+            snapshot = new RateSnapshot(updated, current.history.withRate(currencyId, now, newRate));
+            return true;
+        }
     }
 
     /**
-     * Update currency exchange rate in database
+     * Reload rates from the database and swap them in
      */
-    public void updateExchangeRate(int currencyId, double newRate) {
-        Currency currency = currencyCache.get(currencyId);
-        if (currency != null) {
-            currency.setRateToVnd(newRate);
-            currency.setLastUpdated(System.currentTimeMillis());
-
-            // Update in DB
-            SQLiteDatabase db = dbHelper.getWritableDatabase();
-            db.execSQL("UPDATE currencies SET rate_to_vnd = ?, last_updated = ? WHERE id = ?",
-                    new Object[]{newRate, currency.getLastUpdated(), currencyId});
-
-            // Refresh cache
-            lastCacheUpdate = 0;
+    public void refresh() {
+        synchronized (writeLock) {
+            snapshot = loadCurrenciesFromDB();
         }
     }
 
@@ -161,7 +227,6 @@ public class CurrencyConverter {
      * Clear cache (useful for testing or forcing refresh)
      */
     public void clearCache() {
-        currencyCache.clear();
-        lastCacheUpdate = 0;
+        snapshot = null;
     }
-}
\ No newline at end of file
+}
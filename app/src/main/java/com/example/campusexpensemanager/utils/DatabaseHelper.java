@@ -2,23 +2,36 @@ package com.example.campusexpensemanager.utils;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.util.Log;
 
-import com.example.campusexpensemanager.R;
+import androidx.annotation.VisibleForTesting;
+
 import com.example.campusexpensemanager.models.Budget;
+import com.example.campusexpensemanager.models.BudgetProgress;
 import com.example.campusexpensemanager.models.Category;
+import com.example.campusexpensemanager.models.Currency;
 import com.example.campusexpensemanager.models.Expense;
 import com.example.campusexpensemanager.models.ExpenseTemplate;
 import com.example.campusexpensemanager.models.Feedback;
+import com.example.campusexpensemanager.models.Money;
 import com.example.campusexpensemanager.models.User;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * DatabaseHelper - Sprint 5 Enhanced
@@ -28,7 +41,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     private static final String TAG = "DatabaseHelper";
     private static final String DATABASE_NAME = "CampusExpense.db";
-    private static final int DATABASE_VERSION = 6;
+    private static final int DATABASE_VERSION = 13;
 
     // Table Names
     private static final String TABLE_USERS = "users";
@@ -63,6 +76,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     // Category Columns
     private static final String KEY_CATEGORY_NAME = "name";
     private static final String KEY_CATEGORY_ICON = "icon_resource";
+    private static final String KEY_CATEGORY_SORT_RANK = "sort_rank"; // v13: per-locale collation order
 
     // Expense Columns (ENHANCED)
     private static final String KEY_EXPENSE_USER_ID = "user_id";
@@ -92,14 +106,355 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String KEY_CURRENCY_RATE = "rate_to_vnd";
     private static final String KEY_CURRENCY_UPDATED = "last_updated";
 
+    // Exchange Rate History Table (v11) - rate_to_vnd in force from effective_from on
+    private static final String TABLE_CURRENCY_RATES = "currency_rates";
+    private static final String KEY_RATE_CURRENCY_ID = "currency_id";
+    private static final String KEY_RATE_EFFECTIVE_FROM = "effective_from";
+    private static final String KEY_RATE_VALUE = "rate";
+
     // Template Columns (NEW)
     private static final String KEY_TEMPLATE_NAME = "name";
     private static final String KEY_TEMPLATE_CATEGORY_ID = "category_id";
     private static final String KEY_TEMPLATE_DEFAULT_AMOUNT = "default_amount";
     private static final String KEY_TEMPLATE_ICON = "icon_resource";
 
+    // Monthly Summary Table (v8) - maintained by triggers on expenses
+    private static final String TABLE_MONTHLY_SUMMARY = "monthly_summary";
+    private static final String KEY_SUMMARY_USER_ID = "user_id";
+    private static final String KEY_SUMMARY_YEAR_MONTH = "year_month"; // yyyymm, local time
+    private static final String KEY_SUMMARY_CATEGORY_ID = "category_id";
+    private static final String KEY_SUMMARY_TYPE = "type";
+    private static final String KEY_SUMMARY_CURRENCY_ID = "currency_id"; // v10
+    private static final String KEY_SUMMARY_TOTAL = "total";
+    private static final String KEY_SUMMARY_TOTAL_VND = "total_vnd"; // v11: priced at each row's date
+    private static final String KEY_SUMMARY_COUNT = "count";
+
+    private static final String TRIGGER_SUMMARY_INSERT = "trg_expenses_summary_insert";
+    private static final String TRIGGER_SUMMARY_UPDATE = "trg_expenses_summary_update";
+    private static final String TRIGGER_SUMMARY_DELETE = "trg_expenses_summary_delete";
+
+    // Full-text index over expense descriptions (v12) - docid = expenses.id, maintained by triggers
+    private static final String TABLE_EXPENSES_FTS = "expenses_fts";
+    private static final String TRIGGER_FTS_INSERT = "trg_expenses_fts_insert";
+    private static final String TRIGGER_FTS_UPDATE = "trg_expenses_fts_update";
+    private static final String TRIGGER_FTS_DELETE = "trg_expenses_fts_delete";
+
+    // Index Names (v7)
+    private static final String INDEX_EXPENSES_USER_DATE = "idx_expenses_user_date";
+    private static final String INDEX_EXPENSES_RECURRING_GROUP = "idx_expenses_recurring_group";
+    private static final String INDEX_EXPENSES_RECURRING_DUE = "idx_expenses_recurring_due";
+    private static final String INDEX_BUDGETS_USER_PERIOD = "idx_budgets_user_period";
+
+    // Index Names (v13, list sort orders)
+    private static final String INDEX_EXPENSES_USER_DATE_ID = "idx_expenses_user_date_id";
+    private static final String INDEX_EXPENSES_USER_AMOUNT = "idx_expenses_user_amount";
+    private static final String INDEX_EXPENSES_USER_CATEGORY = "idx_expenses_user_category_date";
+    private static final String INDEX_CATEGORIES_SORT_RANK = "idx_categories_sort_rank";
+
+    // =============== PROJECTIONS ===============
+    // Explicit column lists instead of SELECT *; mappers resolve their indexes once per cursor
+
+    private static final String EXPENSE_PROJECTION = KEY_ID + ", "
+            + KEY_EXPENSE_USER_ID + ", " + KEY_EXPENSE_CATEGORY_ID + ", " + KEY_EXPENSE_CURRENCY_ID + ", "
+            + KEY_EXPENSE_AMOUNT + ", " + KEY_EXPENSE_DATE + ", " + KEY_EXPENSE_DESCRIPTION + ", "
+            + KEY_EXPENSE_RECEIPT + ", " + KEY_CREATED_AT + ", " + KEY_EXPENSE_TYPE + ", "
+            + KEY_EXPENSE_IS_RECURRING + ", " + KEY_EXPENSE_RECURRENCE_PERIOD + ", "
+            + KEY_EXPENSE_NEXT_OCCURRENCE + ", " + KEY_EXPENSE_RECURRING_GROUP_ID + ", "
+            + KEY_EXPENSE_RECURRING_END_DATE;
+
+    // Same columns read through the "e" alias (the category sort joins categories)
+    private static final String EXPENSE_PROJECTION_E = "e." + EXPENSE_PROJECTION.replace(", ", ", e.");
+
+    private static final String[] BUDGET_COLUMNS = {
+            KEY_ID, KEY_BUDGET_USER_ID, KEY_BUDGET_CATEGORY_ID, KEY_BUDGET_AMOUNT,
+            KEY_BUDGET_PERIOD_START, KEY_BUDGET_PERIOD_END, KEY_CREATED_AT
+    };
+
+    private static final String BUDGET_PROJECTION = String.join(", ", BUDGET_COLUMNS);
+
+    private static final String[] USER_PROJECTION = {
+            KEY_ID, KEY_USER_EMAIL, KEY_USER_PASSWORD, KEY_USER_NAME, KEY_USER_ADDRESS,
+            KEY_USER_PHONE, KEY_USER_AVATAR, KEY_USER_DARK_MODE, KEY_CREATED_AT
+    };
+
+    private static final String[] CATEGORY_PROJECTION = {
+            KEY_ID, KEY_CATEGORY_NAME, KEY_CATEGORY_ICON
+    };
+
+    // =============== READ QUERIES ===============
+    // Kept as constants so the query-plan tests can EXPLAIN exactly what the app runs
+
+    @VisibleForTesting
+    static final String QUERY_EXPENSES_BY_USER = "SELECT " + EXPENSE_PROJECTION + " FROM " + TABLE_EXPENSES
+            + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
+            + " ORDER BY " + KEY_EXPENSE_DATE + " DESC";
+
+    @VisibleForTesting
+    static final String QUERY_DUE_RECURRING = "SELECT " + EXPENSE_PROJECTION + " FROM " + TABLE_EXPENSES
+            + " WHERE " + KEY_EXPENSE_IS_RECURRING + "=1"
+            + " AND " + KEY_EXPENSE_NEXT_OCCURRENCE + "<=?";
+
+    // =============== CURRENCY CONVERSION (v10, v11) ===============
+    // Aggregates sum each row's amount in VND, so a 10 USD row counts as 240.000 VND.
+    // v11: the rate is the one in force on the row's date (currency_rates), not today's rate.
+    // Each row is rounded to VND minor units, so monthly_summary.total_vnd matches raw-row sums.
+
+    // Rate to VND for a currency at a date; rows with an unknown currency count at rate 1
+    private static String rateAt(String currencyColumn, String dateColumn) {
+        return "COALESCE((SELECT r." + KEY_RATE_VALUE + " FROM " + TABLE_CURRENCY_RATES + " r"
+                + " WHERE r." + KEY_RATE_CURRENCY_ID + "=" + currencyColumn
+                + " AND r." + KEY_RATE_EFFECTIVE_FROM + "<=" + dateColumn
+                + " ORDER BY r." + KEY_RATE_EFFECTIVE_FROM + " DESC LIMIT 1), 1)";
+    }
+
+    // expenses row alias -> its amount in VND minor units
+    private static String inVnd(String row) {
+        return "ROUND(" + row + "." + KEY_EXPENSE_AMOUNT + " * "
+                + rateAt(row + "." + KEY_EXPENSE_CURRENCY_ID, row + "." + KEY_EXPENSE_DATE) + ")";
+    }
+
+    // SUM in VND -> INTEGER minor units of the currency bound to parameter ?{targetParam} (today's rate)
+    private static String convertedSum(String vndExpression, int targetParam) {
+        return "CAST(ROUND(SUM(" + vndExpression + ") / COALESCE((SELECT " + KEY_CURRENCY_RATE
+                + " FROM " + TABLE_CURRENCIES + " WHERE " + KEY_ID + "=?" + targetParam + "), 1)) AS INTEGER)";
+    }
+
+    // SUM in VND -> INTEGER minor units of VND (budgets and reports are kept in VND)
+    private static String vndSum(String vndExpression) {
+        return "CAST(SUM(" + vndExpression + ") AS INTEGER)";
+    }
+
+    // Columns of a joined table under its alias, e.g. "b.id, b.user_id" (result names stay unprefixed)
+    private static String qualified(String alias, String[] columns) {
+        StringBuilder projection = new StringBuilder();
+        for (String column : columns) {
+            if (projection.length() > 0) projection.append(", ");
+            projection.append(alias).append('.').append(column);
+        }
+        return projection.toString();
+    }
+
+    @VisibleForTesting
+    static final String QUERY_TOTAL_INCOME = "SELECT " + vndSum(inVnd("e")) + " as total"
+            + " FROM " + TABLE_EXPENSES + " e"
+            + " WHERE e." + KEY_EXPENSE_USER_ID + "=?"
+            + " AND e." + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_INCOME
+            + " AND e." + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
+
+    @VisibleForTesting
+    static final String QUERY_TOTAL_EXPENSE = "SELECT " + vndSum(inVnd("e")) + " as total"
+            + " FROM " + TABLE_EXPENSES + " e"
+            + " WHERE e." + KEY_EXPENSE_USER_ID + "=?"
+            + " AND e." + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_EXPENSE
+            + " AND e." + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
+
+    @VisibleForTesting
+    static final String QUERY_COUNT_IN_RANGE = "SELECT COUNT(*) as count FROM " + TABLE_EXPENSES
+            + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
+            + " AND " + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
+
+    // Params: ?1 user, ?2 start, ?3 end, ?4 target currency id
+    @VisibleForTesting
+    static final String QUERY_TOP_CATEGORY = "SELECT e." + KEY_EXPENSE_CATEGORY_ID + " as " + KEY_EXPENSE_CATEGORY_ID + ", "
+            + convertedSum(inVnd("e"), 4) + " as total"
+            + " FROM " + TABLE_EXPENSES + " e"
+            + " WHERE e." + KEY_EXPENSE_USER_ID + "=?1"
+            + " AND e." + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_EXPENSE
+            + " AND e." + KEY_EXPENSE_DATE + " BETWEEN ?2 AND ?3"
+            + " GROUP BY e." + KEY_EXPENSE_CATEGORY_ID
+            + " ORDER BY total DESC"
+            + " LIMIT 1";
+
+    // Params: ?1 user, ?2 start, ?3 end, ?4 target currency id
+    @VisibleForTesting
+    static final String QUERY_DASHBOARD = "SELECT "
+            + convertedSum("CASE WHEN e." + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_INCOME
+            + " THEN " + inVnd("e") + " ELSE 0 END", 4) + " as total_income, "
+            + convertedSum("CASE WHEN e." + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_EXPENSE
+            + " THEN " + inVnd("e") + " ELSE 0 END", 4) + " as total_expense, "
+            + "COUNT(*) as expense_count"
+            + " FROM " + TABLE_EXPENSES + " e"
+            + " WHERE e." + KEY_EXPENSE_USER_ID + "=?1"
+            + " AND e." + KEY_EXPENSE_DATE + " BETWEEN ?2 AND ?3";
+
+    // Params: ?1 user, ?2 yyyymm, ?3 target currency id
+    @VisibleForTesting
+    static final String QUERY_SUMMARY_DASHBOARD = "SELECT "
+            + convertedSum("CASE WHEN s." + KEY_SUMMARY_TYPE + "=" + Expense.TYPE_INCOME
+            + " THEN s." + KEY_SUMMARY_TOTAL_VND + " ELSE 0 END", 3) + " as total_income, "
+            + convertedSum("CASE WHEN s." + KEY_SUMMARY_TYPE + "=" + Expense.TYPE_EXPENSE
+            + " THEN s." + KEY_SUMMARY_TOTAL_VND + " ELSE 0 END", 3) + " as total_expense, "
+            + "SUM(s." + KEY_SUMMARY_COUNT + ") as expense_count"
+            + " FROM " + TABLE_MONTHLY_SUMMARY + " s"
+            + " WHERE s." + KEY_SUMMARY_USER_ID + "=?1"
+            + " AND s." + KEY_SUMMARY_YEAR_MONTH + "=?2";
+
+    // Params: ?1 user, ?2 yyyymm, ?3 target currency id
+    @VisibleForTesting
+    static final String QUERY_SUMMARY_TOP_CATEGORY = "SELECT s." + KEY_SUMMARY_CATEGORY_ID + " as " + KEY_SUMMARY_CATEGORY_ID + ", "
+            + convertedSum("s." + KEY_SUMMARY_TOTAL_VND, 3) + " as total"
+            + " FROM " + TABLE_MONTHLY_SUMMARY + " s"
+            + " WHERE s." + KEY_SUMMARY_USER_ID + "=?1"
+            + " AND s." + KEY_SUMMARY_YEAR_MONTH + "=?2"
+            + " AND s." + KEY_SUMMARY_TYPE + "=" + Expense.TYPE_EXPENSE
+            + " GROUP BY s." + KEY_SUMMARY_CATEGORY_ID
+            + " ORDER BY total DESC"
+            + " LIMIT 1";
+
+    // Params: ?1 user, ?2 from yyyymm, ?3 to yyyymm, ?4 type, ?5 target currency id
+    @VisibleForTesting
+    static final String QUERY_SUMMARY_MONTHLY_TOTALS = "SELECT s." + KEY_SUMMARY_YEAR_MONTH + " as " + KEY_SUMMARY_YEAR_MONTH + ", "
+            + convertedSum("s." + KEY_SUMMARY_TOTAL_VND, 5) + " as total"
+            + " FROM " + TABLE_MONTHLY_SUMMARY + " s"
+            + " WHERE s." + KEY_SUMMARY_USER_ID + "=?1"
+            + " AND s." + KEY_SUMMARY_YEAR_MONTH + " BETWEEN ?2 AND ?3"
+            + " AND s." + KEY_SUMMARY_TYPE + "=?4"
+            + " GROUP BY s." + KEY_SUMMARY_YEAR_MONTH;
+
+    @VisibleForTesting
+    static final String QUERY_EXPENSE_BY_ID = "SELECT " + EXPENSE_PROJECTION + " FROM " + TABLE_EXPENSES
+            + " WHERE " + KEY_ID + "=?";
+
+    @VisibleForTesting
+    static final String QUERY_BUDGET_BY_ID = "SELECT " + BUDGET_PROJECTION + " FROM " + TABLE_BUDGETS
+            + " WHERE " + KEY_ID + "=?";
+
+    // Stay well under SQLITE_MAX_VARIABLE_NUMBER (999) for IN (...) lookups
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    @VisibleForTesting
+    static final String QUERY_BUDGETS_BY_USER = "SELECT " + BUDGET_PROJECTION + " FROM " + TABLE_BUDGETS
+            + " WHERE " + KEY_BUDGET_USER_ID + "=?"
+            + " ORDER BY " + KEY_BUDGET_PERIOD_END + " DESC";
+
+    @VisibleForTesting
+    static final String QUERY_BUDGET_PROGRESS = "SELECT " + qualified("b", BUDGET_COLUMNS)
+            + ", COALESCE(" + vndSum(inVnd("e")) + ", 0) AS spent"
+            + " FROM " + TABLE_BUDGETS + " b"
+            + " LEFT JOIN " + TABLE_EXPENSES + " e"
+            + " ON e." + KEY_EXPENSE_USER_ID + "=b." + KEY_BUDGET_USER_ID
+            + " AND e." + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_EXPENSE
+            + " AND e." + KEY_EXPENSE_DATE + " BETWEEN b." + KEY_BUDGET_PERIOD_START + " AND b." + KEY_BUDGET_PERIOD_END
+            + " AND (b." + KEY_BUDGET_CATEGORY_ID + "=0 OR e." + KEY_EXPENSE_CATEGORY_ID + "=b." + KEY_BUDGET_CATEGORY_ID + ")"
+            + " WHERE b." + KEY_BUDGET_USER_ID + "=?"
+            + " GROUP BY b." + KEY_ID
+            + " ORDER BY b." + KEY_BUDGET_PERIOD_END + " DESC";
+
+    @VisibleForTesting
+    static final String WHERE_FUTURE_OCCURRENCES = KEY_EXPENSE_RECURRING_GROUP_ID + "=?"
+            + " AND " + KEY_EXPENSE_IS_RECURRING + "=0"
+            + " AND " + KEY_EXPENSE_DATE + ">=?";
+
+    // Rows "update/delete all future" writes: the group's master + occurrences on/after a date
+    // Params: group id, group id, date
+    private static final String WHERE_GROUP_FROM_DATE = "(" + KEY_ID + "=? AND " + KEY_EXPENSE_IS_RECURRING + "=1)"
+            + " OR (" + WHERE_FUTURE_OCCURRENCES + ")";
+
+    private static final String QUERY_FUTURE_OCCURRENCE_IDS = "SELECT " + KEY_ID + " FROM " + TABLE_EXPENSES
+            + " WHERE " + WHERE_GROUP_FROM_DATE;
+
+    private static final String QUERY_FUTURE_OCCURRENCES = "SELECT " + EXPENSE_PROJECTION + " FROM " + TABLE_EXPENSES
+            + " WHERE " + WHERE_GROUP_FROM_DATE;
+
+    // =============== CONNECTION / WRITE PATH ===============
+
+    // NORMAL is durable across app crashes in WAL mode and skips the fsync on every commit
+    private static final String SYNCHRONOUS_MODE = "NORMAL";
+    // Close idle reader connections of the WAL pool after 30s
+    private static final long IDLE_CONNECTION_TIMEOUT_MS = 30_000;
+    // Compiled statements kept per connection (default 25): one per ExpenseQuery shape in use
+    private static final int SQL_STATEMENT_CACHE_SIZE = 64;
+
+    private static final String EXPENSE_INSERT_COLUMNS = KEY_EXPENSE_USER_ID + ", "
+            + KEY_EXPENSE_CATEGORY_ID + ", "
+            + KEY_EXPENSE_CURRENCY_ID + ", "
+            + KEY_EXPENSE_AMOUNT + ", "
+            + KEY_EXPENSE_DATE + ", "
+            + KEY_EXPENSE_DESCRIPTION + ", "
+            + KEY_EXPENSE_RECEIPT + ", "
+            + KEY_EXPENSE_TYPE + ", "
+            + KEY_EXPENSE_IS_RECURRING + ", "
+            + KEY_EXPENSE_RECURRENCE_PERIOD + ", "
+            + KEY_EXPENSE_NEXT_OCCURRENCE + ", "
+            + KEY_EXPENSE_RECURRING_GROUP_ID + ", "
+            + KEY_EXPENSE_RECURRING_END_DATE + ", "
+            + KEY_CREATED_AT;
+
+    private static final String SQL_INSERT_EXPENSE = "INSERT INTO " + TABLE_EXPENSES
+            + " (" + EXPENSE_INSERT_COLUMNS + ")"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Same columns with an explicit id, used to restore deleted rows under their original id
+    private static final String SQL_INSERT_EXPENSE_WITH_ID = "INSERT INTO " + TABLE_EXPENSES
+            + " (" + KEY_ID + ", " + EXPENSE_INSERT_COLUMNS + ")"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_UPDATE_EXPENSE = "UPDATE " + TABLE_EXPENSES + " SET "
+            + KEY_EXPENSE_CATEGORY_ID + "=?, "
+            + KEY_EXPENSE_CURRENCY_ID + "=?, "
+            + KEY_EXPENSE_AMOUNT + "=?, "
+            + KEY_EXPENSE_DATE + "=?, "
+            + KEY_EXPENSE_DESCRIPTION + "=?, "
+            + KEY_EXPENSE_RECEIPT + "=?, "
+            + KEY_EXPENSE_TYPE + "=?, "
+            + KEY_EXPENSE_IS_RECURRING + "=?, "
+            + KEY_EXPENSE_RECURRENCE_PERIOD + "=?, "
+            + KEY_EXPENSE_NEXT_OCCURRENCE + "=?, "
+            + KEY_EXPENSE_RECURRING_GROUP_ID + "=?, "
+            + KEY_EXPENSE_RECURRING_END_DATE + "=?"
+            + " WHERE " + KEY_ID + "=?";
+
+    private static final String SQL_SET_RECURRING_GROUP_ID = "UPDATE " + TABLE_EXPENSES
+            + " SET " + KEY_EXPENSE_RECURRING_GROUP_ID + "=? WHERE " + KEY_ID + "=?";
+
+    // Recurring master after the worker stored its due occurrences
+    private static final String SQL_ADVANCE_RECURRING_MASTER = "UPDATE " + TABLE_EXPENSES + " SET "
+            + KEY_EXPENSE_IS_RECURRING + "=?, "
+            + KEY_EXPENSE_NEXT_OCCURRENCE + "=?"
+            + " WHERE " + KEY_ID + "=?";
+
+    private static final String SQL_DELETE_EXPENSE = "DELETE FROM " + TABLE_EXPENSES
+            + " WHERE " + KEY_ID + "=?";
+
+    private static final String SQL_INSERT_BUDGET = "INSERT INTO " + TABLE_BUDGETS + " ("
+            + KEY_BUDGET_USER_ID + ", "
+            + KEY_BUDGET_CATEGORY_ID + ", "
+            + KEY_BUDGET_AMOUNT + ", "
+            + KEY_BUDGET_PERIOD_START + ", "
+            + KEY_BUDGET_PERIOD_END + ", "
+            + KEY_CREATED_AT
+            + ") VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_UPDATE_BUDGET = "UPDATE " + TABLE_BUDGETS + " SET "
+            + KEY_BUDGET_CATEGORY_ID + "=?, "
+            + KEY_BUDGET_AMOUNT + "=?, "
+            + KEY_BUDGET_PERIOD_START + "=?, "
+            + KEY_BUDGET_PERIOD_END + "=?"
+            + " WHERE " + KEY_ID + "=?";
+
+    private static final String SQL_DELETE_BUDGET = "DELETE FROM " + TABLE_BUDGETS
+            + " WHERE " + KEY_ID + "=?";
+
+    // ✅ NEW: Category snapshot (see getCategorySnapshot)
+    private final AtomicInteger categoryVersion = new AtomicInteger();
+    private volatile CategorySnapshot categorySnapshot;
+
+    // ✅ NEW: Bumped after every write to the expenses table (see getExpenseVersion)
+    private final AtomicInteger expenseVersion = new AtomicInteger();
+
+    // Compiled hot-path statements, keyed by SQL. Each statement is used under its own lock.
+    private final Map<String, SQLiteStatement> statementCache = new HashMap<>();
+
     private static DatabaseHelper instance;
 
+    // Time zone monthly_summary was last bucketed in (see ensureSummaryTimeZone)
+    private static final String META_PREFS_NAME = "database_meta";
+    private static final String PREF_SUMMARY_TIME_ZONE = "summary_time_zone";
+
+    private final SharedPreferences metaPrefs;
+    private final Object summaryZoneLock = new Object();
+    private volatile String summaryTimeZone;
+
     public static synchronized DatabaseHelper getInstance(Context context) {
         if (instance == null) {
             instance = new DatabaseHelper(context.getApplicationContext());
@@ -108,7 +463,31 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     private DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Helper on its own database file (benchmarks use a throwaway name); the app uses getInstance()
+     */
+    @VisibleForTesting
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+
+        // ✅ WAL: RecurringExpenseWorker writes no longer block dashboard reads.
+        // setOpenParams replaces the open flags, so it must run BEFORE enabling WAL.
+        setOpenParams(new SQLiteDatabase.OpenParams.Builder()
+                .setSynchronousMode(SYNCHRONOUS_MODE)
+                .setIdleConnectionTimeout(IDLE_CONNECTION_TIMEOUT_MS)
+                .build());
+        setWriteAheadLoggingEnabled(true);
+
+        metaPrefs = context.getSharedPreferences(metaPrefsName(name), Context.MODE_PRIVATE);
+    }
+
+    // The summary zone belongs to one database file, so other files must not share it
+    @VisibleForTesting
+    static String metaPrefsName(String databaseName) {
+        return DATABASE_NAME.equals(databaseName) ? META_PREFS_NAME : META_PREFS_NAME + "_" + databaseName;
     }
 
     @Override
@@ -133,7 +512,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String CREATE_CATEGORIES_TABLE = "CREATE TABLE " + TABLE_CATEGORIES + "("
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_CATEGORY_NAME + " TEXT NOT NULL,"
-                + KEY_CATEGORY_ICON + " TEXT"
+                + KEY_CATEGORY_ICON + " TEXT,"
+                + KEY_CATEGORY_SORT_RANK + " INTEGER NOT NULL DEFAULT 0"
                 + ")";
         db.execSQL(CREATE_CATEGORIES_TABLE);
 
@@ -147,57 +527,26 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(CREATE_CURRENCIES_TABLE);
 
         // Expenses Table (ENHANCED with Recurring + Type)
-        String CREATE_EXPENSES_TABLE = "CREATE TABLE " + TABLE_EXPENSES + "("
-                + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + KEY_EXPENSE_USER_ID + " INTEGER NOT NULL,"
-                + KEY_EXPENSE_CATEGORY_ID + " INTEGER NOT NULL,"
-                + KEY_EXPENSE_CURRENCY_ID + " INTEGER DEFAULT 1,"
-                + KEY_EXPENSE_AMOUNT + " REAL NOT NULL,"
-                + KEY_EXPENSE_DATE + " INTEGER NOT NULL,"
-                + KEY_EXPENSE_DESCRIPTION + " TEXT,"
-                + KEY_EXPENSE_RECEIPT + " TEXT,"
-                + KEY_EXPENSE_TYPE + " INTEGER DEFAULT 0," // 0=expense, 1=income
-                + KEY_EXPENSE_IS_RECURRING + " INTEGER DEFAULT 0,"
-                + KEY_EXPENSE_RECURRENCE_PERIOD + " TEXT,"
-                + KEY_EXPENSE_NEXT_OCCURRENCE + " INTEGER,"
-                + KEY_EXPENSE_RECURRING_GROUP_ID + " INTEGER DEFAULT 0," // ✅ NEW
-                + KEY_CREATED_AT + " INTEGER NOT NULL,"
-                + "FOREIGN KEY(" + KEY_EXPENSE_USER_ID + ") REFERENCES "
-                + TABLE_USERS + "(" + KEY_ID + ") ON DELETE CASCADE,"
-                + "FOREIGN KEY(" + KEY_EXPENSE_CATEGORY_ID + ") REFERENCES "
-                + TABLE_CATEGORIES + "(" + KEY_ID + "),"
-                + "FOREIGN KEY(" + KEY_EXPENSE_CURRENCY_ID + ") REFERENCES "
-                + TABLE_CURRENCIES + "(" + KEY_ID + ")"
-                + ")";
-        db.execSQL(CREATE_EXPENSES_TABLE);
+        db.execSQL(createExpensesTableSql(TABLE_EXPENSES));
 
         // Budgets Table
-        String CREATE_BUDGETS_TABLE = "CREATE TABLE " + TABLE_BUDGETS + "("
-                + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + KEY_BUDGET_USER_ID + " INTEGER NOT NULL,"
-                + KEY_BUDGET_CATEGORY_ID + " INTEGER DEFAULT 0,"
-                + KEY_BUDGET_AMOUNT + " REAL NOT NULL,"
-                + KEY_BUDGET_PERIOD_START + " INTEGER NOT NULL,"
-                + KEY_BUDGET_PERIOD_END + " INTEGER NOT NULL,"
-                + KEY_CREATED_AT + " INTEGER NOT NULL,"
-                + "FOREIGN KEY(" + KEY_BUDGET_USER_ID + ") REFERENCES "
-                + TABLE_USERS + "(" + KEY_ID + ") ON DELETE CASCADE,"
-                + "FOREIGN KEY(" + KEY_BUDGET_CATEGORY_ID + ") REFERENCES "
-                + TABLE_CATEGORIES + "(" + KEY_ID + ")"
-                + ")";
-        db.execSQL(CREATE_BUDGETS_TABLE);
+        db.execSQL(createBudgetsTableSql(TABLE_BUDGETS));
 
         // Expense Templates Table (NEW)
-        String CREATE_TEMPLATES_TABLE = "CREATE TABLE " + TABLE_TEMPLATES + "("
-                + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + KEY_TEMPLATE_NAME + " TEXT NOT NULL,"
-                + KEY_TEMPLATE_CATEGORY_ID + " INTEGER NOT NULL,"
-                + KEY_TEMPLATE_DEFAULT_AMOUNT + " REAL DEFAULT 0,"
-                + KEY_TEMPLATE_ICON + " TEXT,"
-                + "FOREIGN KEY(" + KEY_TEMPLATE_CATEGORY_ID + ") REFERENCES "
-                + TABLE_CATEGORIES + "(" + KEY_ID + ")"
-                + ")";
-        db.execSQL(CREATE_TEMPLATES_TABLE);
+        db.execSQL(createTemplatesTableSql(TABLE_TEMPLATES));
+
+        // Secondary indexes (v7)
+        createIndexes(db);
+
+        // Monthly summary + triggers (v8)
+        createMonthlySummary(db);
+        markSummaryTimeZone();
+
+        // Description search index + triggers (v12)
+        createExpenseSearch(db);
+
+        // Indexes behind the list sort orders (v13)
+        createSortIndexes(db);
 
         // Enable foreign keys
         db.execSQL("PRAGMA foreign_keys=ON");
@@ -205,6 +554,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         // Pre-populate data
         prepopulateCategories(db);
         prepopulateCurrencies(db);
+        createRateHistory(db); // v11: seed history with the initial rates
         prepopulateTemplates(db); // NEW
 
         Log.d(TAG, "Database v2 created successfully with Sprint 5 enhancements");
@@ -320,6 +670,512 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 e.printStackTrace();
             }
         }
+
+        if (oldVersion < 7) {
+            // Add covering indexes for dashboard/report/recurring queries
+            try {
+                createIndexes(db);
+                Log.d(TAG, "Database upgraded to v7 - Added secondary indexes");
+            } catch (Exception e) {
+                Log.e(TAG, "Error upgrading to v7: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        if (oldVersion < 8) {
+            // Add trigger-maintained monthly summary and backfill it from existing rows
+            try {
+                createMonthlySummary(db);
+                backfillMonthlySummary(db);
+                markSummaryTimeZone();
+                Log.d(TAG, "Database upgraded to v8 - Added monthly_summary");
+            } catch (Exception e) {
+                Log.e(TAG, "Error upgrading to v8: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        if (oldVersion < 9) {
+            // Store amounts as INTEGER minor units; runs inside onUpgrade's transaction,
+            // so a failure rolls back to the REAL schema instead of leaving half-copied tables
+            migrateAmountsToMinorUnits(db);
+            Log.d(TAG, "Database upgraded to v9 - Amounts stored as minor units");
+        }
+
+        if (oldVersion < 10) {
+            // Summary rows per currency so aggregates can apply exchange rates in SQL
+            try {
+                db.execSQL("DROP INDEX IF EXISTS " + INDEX_EXPENSES_USER_DATE);
+                createIndexes(db);
+                rebuildMonthlySummary(db);
+                markSummaryTimeZone();
+                Log.d(TAG, "Database upgraded to v10 - Currency-aware monthly_summary");
+            } catch (Exception e) {
+                Log.e(TAG, "Error upgrading to v10: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        if (oldVersion < 11) {
+            // Exchange-rate history: past months keep the rate they were recorded at
+            try {
+                createRateHistory(db);
+                rebuildMonthlySummary(db);
+                markSummaryTimeZone();
+                Log.d(TAG, "Database upgraded to v11 - Added currency_rates");
+            } catch (Exception e) {
+                Log.e(TAG, "Error upgrading to v11: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        if (oldVersion < 12) {
+            // Search descriptions through an FTS index instead of scanning every row in memory
+            try {
+                createExpenseSearch(db);
+                db.execSQL("DELETE FROM " + TABLE_EXPENSES_FTS);
+                db.execSQL("INSERT INTO " + TABLE_EXPENSES_FTS + "(docid, " + KEY_EXPENSE_DESCRIPTION + ")"
+                        + " SELECT " + KEY_ID + ", " + KEY_EXPENSE_DESCRIPTION + " FROM " + TABLE_EXPENSES);
+                Log.d(TAG, "Database upgraded to v12 - Added expenses_fts");
+            } catch (Exception e) {
+                Log.e(TAG, "Error upgrading to v12: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        if (oldVersion < 13) {
+            // Every list sort runs as an indexed ORDER BY; category order comes from sort_rank
+            try {
+                db.execSQL("ALTER TABLE " + TABLE_CATEGORIES + " ADD COLUMN "
+                        + KEY_CATEGORY_SORT_RANK + " INTEGER NOT NULL DEFAULT 0");
+                createSortIndexes(db);
+                Log.d(TAG, "Database upgraded to v13 - Added categories.sort_rank + sort indexes");
+            } catch (Exception e) {
+                Log.e(TAG, "Error upgrading to v13: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // =============== TABLE DEFINITIONS ===============
+    // Shared by onCreate and the v9 rebuild; amounts are INTEGER minor units (see Money)
+
+    private static String createExpensesTableSql(String table) {
+        return "CREATE TABLE " + table + "("
+                + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + KEY_EXPENSE_USER_ID + " INTEGER NOT NULL,"
+                + KEY_EXPENSE_CATEGORY_ID + " INTEGER NOT NULL,"
+                + KEY_EXPENSE_CURRENCY_ID + " INTEGER DEFAULT 1,"
+                + KEY_EXPENSE_AMOUNT + " INTEGER NOT NULL,"
+                + KEY_EXPENSE_DATE + " INTEGER NOT NULL,"
+                + KEY_EXPENSE_DESCRIPTION + " TEXT,"
+                + KEY_EXPENSE_RECEIPT + " TEXT,"
+                + KEY_EXPENSE_TYPE + " INTEGER DEFAULT 0," // 0=expense, 1=income
+                + KEY_EXPENSE_IS_RECURRING + " INTEGER DEFAULT 0,"
+                + KEY_EXPENSE_RECURRENCE_PERIOD + " TEXT,"
+                + KEY_EXPENSE_NEXT_OCCURRENCE + " INTEGER,"
+                + KEY_EXPENSE_RECURRING_GROUP_ID + " INTEGER DEFAULT 0," // ✅ NEW
+                + KEY_EXPENSE_RECURRING_END_DATE + " INTEGER DEFAULT 0,"
+                + KEY_CREATED_AT + " INTEGER NOT NULL,"
+                + "FOREIGN KEY(" + KEY_EXPENSE_USER_ID + ") REFERENCES "
+                + TABLE_USERS + "(" + KEY_ID + ") ON DELETE CASCADE,"
+                + "FOREIGN KEY(" + KEY_EXPENSE_CATEGORY_ID + ") REFERENCES "
+                + TABLE_CATEGORIES + "(" + KEY_ID + "),"
+                + "FOREIGN KEY(" + KEY_EXPENSE_CURRENCY_ID + ") REFERENCES "
+                + TABLE_CURRENCIES + "(" + KEY_ID + ")"
+                + ")";
+    }
+
+    private static String createBudgetsTableSql(String table) {
+        return "CREATE TABLE " + table + "("
+                + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + KEY_BUDGET_USER_ID + " INTEGER NOT NULL,"
+                + KEY_BUDGET_CATEGORY_ID + " INTEGER DEFAULT 0,"
+                + KEY_BUDGET_AMOUNT + " INTEGER NOT NULL,"
+                + KEY_BUDGET_PERIOD_START + " INTEGER NOT NULL,"
+                + KEY_BUDGET_PERIOD_END + " INTEGER NOT NULL,"
+                + KEY_CREATED_AT + " INTEGER NOT NULL,"
+                + "FOREIGN KEY(" + KEY_BUDGET_USER_ID + ") REFERENCES "
+                + TABLE_USERS + "(" + KEY_ID + ") ON DELETE CASCADE,"
+                + "FOREIGN KEY(" + KEY_BUDGET_CATEGORY_ID + ") REFERENCES "
+                + TABLE_CATEGORIES + "(" + KEY_ID + ")"
+                + ")";
+    }
+
+    private static String createTemplatesTableSql(String table) {
+        return "CREATE TABLE " + table + "("
+                + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + KEY_TEMPLATE_NAME + " TEXT NOT NULL,"
+                + KEY_TEMPLATE_CATEGORY_ID + " INTEGER NOT NULL,"
+                + KEY_TEMPLATE_DEFAULT_AMOUNT + " INTEGER DEFAULT 0,"
+                + KEY_TEMPLATE_ICON + " TEXT,"
+                + "FOREIGN KEY(" + KEY_TEMPLATE_CATEGORY_ID + ") REFERENCES "
+                + TABLE_CATEGORIES + "(" + KEY_ID + ")"
+                + ")";
+    }
+
+    /**
+     * ✅ v9: Convert REAL amounts to INTEGER minor units
+     * SQLite can't change a column's type in place (REAL affinity would turn the integers back
+     * into floats), so each table is rebuilt with INSERT ... SELECT - rows stream through SQLite
+     * without being loaded into memory. Dropping expenses also drops its indexes and the
+     * monthly_summary triggers, which are recreated afterwards.
+     */
+    private void migrateAmountsToMinorUnits(SQLiteDatabase db) {
+        String expenseColumns = KEY_ID + ", " + KEY_EXPENSE_USER_ID + ", " + KEY_EXPENSE_CATEGORY_ID + ", "
+                + KEY_EXPENSE_CURRENCY_ID + ", " + KEY_EXPENSE_AMOUNT + ", " + KEY_EXPENSE_DATE + ", "
+                + KEY_EXPENSE_DESCRIPTION + ", " + KEY_EXPENSE_RECEIPT + ", " + KEY_EXPENSE_TYPE + ", "
+                + KEY_EXPENSE_IS_RECURRING + ", " + KEY_EXPENSE_RECURRENCE_PERIOD + ", "
+                + KEY_EXPENSE_NEXT_OCCURRENCE + ", " + KEY_EXPENSE_RECURRING_GROUP_ID + ", "
+                + KEY_EXPENSE_RECURRING_END_DATE + ", " + KEY_CREATED_AT;
+        rebuildTable(db, TABLE_EXPENSES, createExpensesTableSql(TABLE_EXPENSES + "_v9"),
+                expenseColumns, KEY_EXPENSE_AMOUNT);
+
+        String budgetColumns = KEY_ID + ", " + KEY_BUDGET_USER_ID + ", " + KEY_BUDGET_CATEGORY_ID + ", "
+                + KEY_BUDGET_AMOUNT + ", " + KEY_BUDGET_PERIOD_START + ", " + KEY_BUDGET_PERIOD_END + ", "
+                + KEY_CREATED_AT;
+        rebuildTable(db, TABLE_BUDGETS, createBudgetsTableSql(TABLE_BUDGETS + "_v9"),
+                budgetColumns, KEY_BUDGET_AMOUNT);
+
+        // Templates only hold the built-in presets, and earlier steps of this upgrade may already have
+        // seeded them in minor units - so reseed like v5 instead of scaling
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TEMPLATES);
+        db.execSQL(createTemplatesTableSql(TABLE_TEMPLATES));
+        prepopulateTemplates(db);
+
+        // Summary totals become integer sums too
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MONTHLY_SUMMARY);
+        createIndexes(db);
+        createMonthlySummary(db);
+        backfillMonthlySummary(db);
+        markSummaryTimeZone();
+    }
+
+    /**
+     * Copy {@code table} into a new table created by {@code createSql} (named table + "_v9"),
+     * scaling {@code amountColumn} to minor units, then swap the new table in.
+     */
+    private static void rebuildTable(SQLiteDatabase db, String table, String createSql,
+                                     String columns, String amountColumn) {
+        String newTable = table + "_v9";
+        StringBuilder selectColumns = new StringBuilder();
+        for (String column : columns.split(", ")) {
+            if (selectColumns.length() > 0) selectColumns.append(", ");
+            selectColumns.append(column.equals(amountColumn)
+                    ? "CAST(ROUND(" + column + " * " + Money.SCALE + ") AS INTEGER)"
+                    : column);
+        }
+
+        db.execSQL("DROP TABLE IF EXISTS " + newTable);
+        db.execSQL(createSql);
+        db.execSQL("INSERT INTO " + newTable + " (" + columns + ") SELECT " + selectColumns + " FROM " + table);
+
+        // Keep AUTOINCREMENT from reusing ids of rows deleted before the migration
+        db.execSQL("UPDATE sqlite_sequence SET seq = (SELECT seq FROM sqlite_sequence WHERE name = '" + table + "')"
+                + " WHERE name = '" + newTable + "'"
+                + " AND EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = '" + table + "')");
+
+        db.execSQL("DROP TABLE " + table);
+        db.execSQL("ALTER TABLE " + newTable + " RENAME TO " + table);
+    }
+
+    /**
+     * ✅ v8: Per (user, month, category, type) totals kept in sync by triggers on expenses
+     * Dashboard/top category/trend read this instead of re-aggregating raw rows.
+     * v10 splits buckets per currency; v11 adds total_vnd, each row priced at its own date.
+     */
+    private void createMonthlySummary(SQLiteDatabase db) {
+        // Triggers and backfill price rows through currency_rates
+        createRateHistory(db);
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_MONTHLY_SUMMARY + "("
+                + KEY_SUMMARY_USER_ID + " INTEGER NOT NULL,"
+                + KEY_SUMMARY_YEAR_MONTH + " INTEGER NOT NULL,"
+                + KEY_SUMMARY_CATEGORY_ID + " INTEGER NOT NULL,"
+                + KEY_SUMMARY_TYPE + " INTEGER NOT NULL,"
+                + KEY_SUMMARY_CURRENCY_ID + " INTEGER NOT NULL,"
+                + KEY_SUMMARY_TOTAL + " INTEGER NOT NULL DEFAULT 0,"
+                + KEY_SUMMARY_TOTAL_VND + " INTEGER NOT NULL DEFAULT 0,"
+                + KEY_SUMMARY_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+                + "PRIMARY KEY(" + KEY_SUMMARY_USER_ID + ", " + KEY_SUMMARY_YEAR_MONTH + ", "
+                + KEY_SUMMARY_CATEGORY_ID + ", " + KEY_SUMMARY_TYPE + ", " + KEY_SUMMARY_CURRENCY_ID + ")"
+                + ") WITHOUT ROWID");
+
+        // No UPSERT before SQLite 3.24 (API 29 ships 3.22): INSERT OR IGNORE the bucket, then UPDATE it
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SUMMARY_INSERT
+                + " AFTER INSERT ON " + TABLE_EXPENSES
+                + " BEGIN "
+                + summaryAdd("NEW")
+                + " END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SUMMARY_DELETE
+                + " AFTER DELETE ON " + TABLE_EXPENSES
+                + " BEGIN "
+                + summarySubtract("OLD")
+                + " END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SUMMARY_UPDATE
+                + " AFTER UPDATE OF " + KEY_EXPENSE_USER_ID + ", " + KEY_EXPENSE_CATEGORY_ID + ", "
+                + KEY_EXPENSE_AMOUNT + ", " + KEY_EXPENSE_DATE + ", " + KEY_EXPENSE_TYPE + ", "
+                + KEY_EXPENSE_CURRENCY_ID
+                + " ON " + TABLE_EXPENSES
+                + " BEGIN "
+                + summarySubtract("OLD")
+                + summaryAdd("NEW")
+                + " END");
+    }
+
+    // Summary schema changed: triggers would survive CREATE TRIGGER IF NOT EXISTS, so drop them too
+    private void rebuildMonthlySummary(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_SUMMARY_INSERT);
+        db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_SUMMARY_UPDATE);
+        db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_SUMMARY_DELETE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MONTHLY_SUMMARY);
+        createMonthlySummary(db);
+        backfillMonthlySummary(db);
+    }
+
+    /**
+     * ✅ v11: Rate history, one row per (currency, effective_from)
+     * Seeded from the current rates with effective_from = 0, so every existing row keeps the rate
+     * it was shown at. Idempotent: also called before the summary triggers are created.
+     */
+    private void createRateHistory(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CURRENCY_RATES + "("
+                + KEY_RATE_CURRENCY_ID + " INTEGER NOT NULL,"
+                + KEY_RATE_EFFECTIVE_FROM + " INTEGER NOT NULL,"
+                + KEY_RATE_VALUE + " REAL NOT NULL,"
+                + "PRIMARY KEY(" + KEY_RATE_CURRENCY_ID + ", " + KEY_RATE_EFFECTIVE_FROM + ")"
+                + ") WITHOUT ROWID");
+
+        db.execSQL("INSERT OR IGNORE INTO " + TABLE_CURRENCY_RATES
+                + " SELECT " + KEY_ID + ", 0, " + KEY_CURRENCY_RATE
+                + " FROM " + TABLE_CURRENCIES);
+    }
+
+    private void backfillMonthlySummary(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_MONTHLY_SUMMARY);
+        db.execSQL("INSERT INTO " + TABLE_MONTHLY_SUMMARY + " SELECT "
+                + KEY_EXPENSE_USER_ID + ", "
+                + yearMonthExpr(KEY_EXPENSE_DATE) + ", "
+                + KEY_EXPENSE_CATEGORY_ID + ", "
+                + KEY_EXPENSE_TYPE + ", "
+                + "COALESCE(" + KEY_EXPENSE_CURRENCY_ID + ", 1), "
+                + "SUM(" + KEY_EXPENSE_AMOUNT + "), "
+                + "SUM(" + inVnd(TABLE_EXPENSES) + "), "
+                + "COUNT(*)"
+                + " FROM " + TABLE_EXPENSES
+                + " GROUP BY 1, 2, 3, 4, 5");
+    }
+
+    // yyyymm of an epoch-millis column in local time (same month boundaries as Calendar.getInstance()
+    // while the device zone is unchanged - see ensureSummaryTimeZone)
+    private static String yearMonthExpr(String dateColumn) {
+        return "CAST(strftime('%Y%m', " + dateColumn + " / 1000, 'unixepoch', 'localtime') AS INTEGER)";
+    }
+
+    private static String summaryKeyMatch(String row) {
+        return KEY_SUMMARY_USER_ID + "=" + row + "." + KEY_EXPENSE_USER_ID
+                + " AND " + KEY_SUMMARY_YEAR_MONTH + "=" + yearMonthExpr(row + "." + KEY_EXPENSE_DATE)
+                + " AND " + KEY_SUMMARY_CATEGORY_ID + "=" + row + "." + KEY_EXPENSE_CATEGORY_ID
+                + " AND " + KEY_SUMMARY_TYPE + "=" + row + "." + KEY_EXPENSE_TYPE
+                + " AND " + KEY_SUMMARY_CURRENCY_ID + "=COALESCE(" + row + "." + KEY_EXPENSE_CURRENCY_ID + ", 1)";
+    }
+
+    private static String summaryAdd(String row) {
+        return "INSERT OR IGNORE INTO " + TABLE_MONTHLY_SUMMARY + " VALUES ("
+                + row + "." + KEY_EXPENSE_USER_ID + ", "
+                + yearMonthExpr(row + "." + KEY_EXPENSE_DATE) + ", "
+                + row + "." + KEY_EXPENSE_CATEGORY_ID + ", "
+                + row + "." + KEY_EXPENSE_TYPE + ", "
+                + "COALESCE(" + row + "." + KEY_EXPENSE_CURRENCY_ID + ", 1), 0, 0, 0); "
+                + "UPDATE " + TABLE_MONTHLY_SUMMARY + " SET "
+                + KEY_SUMMARY_TOTAL + "=" + KEY_SUMMARY_TOTAL + "+" + row + "." + KEY_EXPENSE_AMOUNT + ", "
+                + KEY_SUMMARY_TOTAL_VND + "=" + KEY_SUMMARY_TOTAL_VND + "+" + inVnd(row) + ", "
+                + KEY_SUMMARY_COUNT + "=" + KEY_SUMMARY_COUNT + "+1"
+                + " WHERE " + summaryKeyMatch(row) + "; ";
+    }
+
+    private static String summarySubtract(String row) {
+        return "UPDATE " + TABLE_MONTHLY_SUMMARY + " SET "
+                + KEY_SUMMARY_TOTAL + "=" + KEY_SUMMARY_TOTAL + "-" + row + "." + KEY_EXPENSE_AMOUNT + ", "
+                + KEY_SUMMARY_TOTAL_VND + "=" + KEY_SUMMARY_TOTAL_VND + "-" + inVnd(row) + ", "
+                + KEY_SUMMARY_COUNT + "=" + KEY_SUMMARY_COUNT + "-1"
+                + " WHERE " + summaryKeyMatch(row) + "; "
+                + "DELETE FROM " + TABLE_MONTHLY_SUMMARY
+                + " WHERE " + summaryKeyMatch(row) + " AND " + KEY_SUMMARY_COUNT + "<=0; ";
+    }
+
+    /**
+     * ✅ v13: Indexes for the list orders, so each one is an index walk with LIMIT
+     * - (user_id, date): newest/oldest first; the implicit rowid makes it (user_id, date, id), so the
+     *   id tie-break needs no sort (in idx_expenses_user_date it sits behind four other columns)
+     * - (user_id, amount): highest/lowest amount first (id, the rowid, breaks ties)
+     * - (user_id, category_id, date): per-category seek, newest first inside each category
+     * - categories (sort_rank): category order in the current language, see CategoryResolver
+     */
+    private void createSortIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_USER_DATE_ID + " ON " + TABLE_EXPENSES + "("
+                + KEY_EXPENSE_USER_ID + ", "
+                + KEY_EXPENSE_DATE + ")");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_USER_AMOUNT + " ON " + TABLE_EXPENSES + "("
+                + KEY_EXPENSE_USER_ID + ", "
+                + KEY_EXPENSE_AMOUNT + ")");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_USER_CATEGORY + " ON " + TABLE_EXPENSES + "("
+                + KEY_EXPENSE_USER_ID + ", "
+                + KEY_EXPENSE_CATEGORY_ID + ", "
+                + KEY_EXPENSE_DATE + ")");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_CATEGORIES_SORT_RANK + " ON " + TABLE_CATEGORIES + "("
+                + KEY_CATEGORY_SORT_RANK + ")");
+
+        db.execSQL("ANALYZE");
+    }
+
+    /**
+     * ✅ v12: FTS4 index over expense descriptions (docid = expenses.id)
+     * unicode61 folds case and single accents ("an sang" finds "Ăn sáng"); letters with
+     * stacked marks (ở, ữ) and đ only match as typed.
+     */
+    private void createExpenseSearch(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_EXPENSES_FTS + " USING fts4("
+                + KEY_EXPENSE_DESCRIPTION + ", tokenize=unicode61 \"remove_diacritics=1\")");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_INSERT
+                + " AFTER INSERT ON " + TABLE_EXPENSES
+                + " BEGIN "
+                + "INSERT INTO " + TABLE_EXPENSES_FTS + "(docid, " + KEY_EXPENSE_DESCRIPTION + ")"
+                + " VALUES (NEW." + KEY_ID + ", NEW." + KEY_EXPENSE_DESCRIPTION + "); "
+                + " END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_DELETE
+                + " AFTER DELETE ON " + TABLE_EXPENSES
+                + " BEGIN "
+                + "DELETE FROM " + TABLE_EXPENSES_FTS + " WHERE docid=OLD." + KEY_ID + "; "
+                + " END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_UPDATE
+                + " AFTER UPDATE OF " + KEY_EXPENSE_DESCRIPTION + " ON " + TABLE_EXPENSES
+                + " BEGIN "
+                + "UPDATE " + TABLE_EXPENSES_FTS + " SET " + KEY_EXPENSE_DESCRIPTION + "=NEW." + KEY_EXPENSE_DESCRIPTION
+                + " WHERE docid=NEW." + KEY_ID + "; "
+                + " END");
+    }
+
+    /**
+     * ✅ NEW: yyyymm bucket of a timestamp, matching the monthly_summary year_month column
+     * (the summary is re-bucketed first if the zone changed, see ensureSummaryTimeZone)
+     */
+    public static int toYearMonth(long timeMillis) {
+        java.util.Calendar calendar = java.util.Calendar.getInstance();
+        calendar.setTimeInMillis(timeMillis);
+        return calendar.get(java.util.Calendar.YEAR) * 100 + calendar.get(java.util.Calendar.MONTH) + 1;
+    }
+
+    /**
+     * ✅ v7: Secondary indexes matching the real access patterns
+     * - (user_id, date, type, category_id, amount, currency_id): covers every per-user date-range
+     *   SUM/COUNT/GROUP BY, including the currency join (v10)
+     * - (recurring_group_id, is_recurring, date): update/delete "all future occurrences"
+     * - (is_recurring, next_occurrence_date): RecurringExpenseWorker due scan
+     * - budgets (user_id, period_end): budget list ordered by period end
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_USER_DATE + " ON " + TABLE_EXPENSES + "("
+                + KEY_EXPENSE_USER_ID + ", "
+                + KEY_EXPENSE_DATE + ", "
+                + KEY_EXPENSE_TYPE + ", "
+                + KEY_EXPENSE_CATEGORY_ID + ", "
+                + KEY_EXPENSE_AMOUNT + ", "
+                + KEY_EXPENSE_CURRENCY_ID + ")");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_RECURRING_GROUP + " ON " + TABLE_EXPENSES + "("
+                + KEY_EXPENSE_RECURRING_GROUP_ID + ", "
+                + KEY_EXPENSE_IS_RECURRING + ", "
+                + KEY_EXPENSE_DATE + ")");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_RECURRING_DUE + " ON " + TABLE_EXPENSES + "("
+                + KEY_EXPENSE_IS_RECURRING + ", "
+                + KEY_EXPENSE_NEXT_OCCURRENCE + ")");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_BUDGETS_USER_PERIOD + " ON " + TABLE_BUDGETS + "("
+                + KEY_BUDGET_USER_ID + ", "
+                + KEY_BUDGET_PERIOD_END + ")");
+
+        // Refresh planner statistics so the new indexes are picked up immediately
+        db.execSQL("ANALYZE");
+    }
+
+    // =============== COMPILED STATEMENT CACHE ===============
+
+    /**
+     * ✅ NEW: Return a compiled statement for a hot write, compiling it only once
+     * Callers must bind/execute inside {@code synchronized (statement)}
+     */
+    private SQLiteStatement getCachedStatement(String sql) {
+        // Open outside the cache lock: close() takes the helper lock first, then the cache lock
+        SQLiteDatabase db = getWritableDatabase();
+        synchronized (statementCache) {
+            SQLiteStatement statement = statementCache.get(sql);
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                statementCache.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    private void releaseStatementCache() {
+        synchronized (statementCache) {
+            for (SQLiteStatement statement : statementCache.values()) {
+                statement.close();
+            }
+            statementCache.clear();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        releaseStatementCache();
+        super.close();
+    }
+
+    /**
+     * ✅ v9: Amount/SUM column (INTEGER minor units) as a decimal amount; NULL SUM -> 0
+     */
+    private static double readAmount(Cursor cursor, int index) {
+        return Money.ofMinorUnits(cursor.getLong(index)).toDouble();
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Bind the 14 insert columns of SQL_INSERT_EXPENSE starting at {@code first}
+     * (1 for SQL_INSERT_EXPENSE, 2 for SQL_INSERT_EXPENSE_WITH_ID)
+     */
+    private static void bindExpenseInsert(SQLiteStatement statement, Expense expense, int first) {
+        statement.bindLong(first, expense.getUserId());
+        statement.bindLong(first + 1, expense.getCategoryId());
+        statement.bindLong(first + 2, expense.getCurrencyId());
+        statement.bindLong(first + 3, expense.getMoney().getMinorUnits());
+        statement.bindLong(first + 4, expense.getDate());
+        bindNullableString(statement, first + 5, expense.getDescription());
+        bindNullableString(statement, first + 6, expense.getReceiptPath());
+        statement.bindLong(first + 7, expense.getType());
+        statement.bindLong(first + 8, expense.isRecurring() ? 1 : 0);
+        bindNullableString(statement, first + 9, expense.getRecurrencePeriod());
+        statement.bindLong(first + 10, expense.getNextOccurrenceDate());
+        statement.bindLong(first + 11, expense.getRecurringGroupId());
+        statement.bindLong(first + 12, expense.getRecurringEndDate());
+        statement.bindLong(first + 13, expense.getCreatedAt());
     }
 
     @Override
@@ -328,6 +1184,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL("PRAGMA foreign_keys=ON");
     }
 
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.setMaxSqlCacheSize(SQL_STATEMENT_CACHE_SIZE);
+    }
+
     /**
      * ✅ Assign recurring_group_id to existing recurring expenses
      * Called during database migration
@@ -391,6 +1253,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             values.put(KEY_CATEGORY_ICON, categories[i + 1]);
             db.insert(TABLE_CATEGORIES, null, values);
         }
+        invalidateCategoryCache();
         Log.d(TAG, "Pre-populated categories with localization keys");
     }
 
@@ -401,58 +1264,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return Localized name like "Food & Dining" (EN) or "Ăn uống" (VI)
      */
     public static String getLocalizedCategoryName(Context context, String categoryKey) {
-        if (categoryKey == null || categoryKey.isEmpty()) {
-            return context.getString(R.string.cat_others);
-        }
-
-        try {
-            // Try to get string resource by key
-            int resId = context.getResources().getIdentifier(
-                    categoryKey,
-                    "string",
-                    context.getPackageName()
-            );
-
-            if (resId != 0) {
-                return context.getString(resId);
-            }
-
-            // ✅ LEGACY SUPPORT: Handle old data format
-            // If DB still has "Food & Dining", map to new key
-            return mapLegacyCategoryName(context, categoryKey);
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting localized category: " + e.getMessage());
-            return categoryKey; // Fallback to key itself
-        }
-    }
-
-    /**
-     * ✅ LEGACY SUPPORT: Map old category names to new keys
-     * Handles existing data that has "Food & Dining" instead of "cat_food"
-     */
-    private static String mapLegacyCategoryName(Context context, String oldName) {
-        Map<String, String> legacyMap = new HashMap<>();
-        legacyMap.put("Food & Dining", "cat_food");
-        legacyMap.put("Transportation", "cat_transport");
-        legacyMap.put("Study & Books", "cat_study");
-        legacyMap.put("Entertainment", "cat_entertainment");
-        legacyMap.put("Shopping", "cat_shopping");
-        legacyMap.put("Healthcare", "cat_health");
-        legacyMap.put("Utilities", "cat_utilities");
-        legacyMap.put("Housing", "cat_housing");
-        legacyMap.put("Personal Care", "cat_personal");
-        legacyMap.put("Salary", "cat_salary");
-        legacyMap.put("Others", "cat_others");
-
-        String newKey = legacyMap.get(oldName);
-        if (newKey != null) {
-            return context.getString(
-                    context.getResources().getIdentifier(newKey, "string", context.getPackageName())
-            );
-        }
-
-        return oldName; // No mapping found, return original
+        // ✅ Resolved once per locale by CategoryResolver (no getIdentifier per call)
+        return CategoryResolver.getLabel(context, categoryKey);
     }
 
     private void migrateCategoryNamesToKeys(SQLiteDatabase db) {
@@ -490,6 +1303,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 }
             }
 
+            invalidateCategoryCache();
             Log.d(TAG, "Category migration completed successfully");
 
         } catch (Exception e) {
@@ -539,7 +1353,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             ContentValues values = new ContentValues();
             values.put(KEY_TEMPLATE_NAME, (String) template[0]);
             values.put(KEY_TEMPLATE_CATEGORY_ID, (Integer) template[1]);
-            values.put(KEY_TEMPLATE_DEFAULT_AMOUNT, (Double) template[2]);
+            values.put(KEY_TEMPLATE_DEFAULT_AMOUNT, Money.of((Double) template[2]).getMinorUnits());
             values.put(KEY_TEMPLATE_ICON, (String) template[3]);
             db.insert(TABLE_TEMPLATES, null, values);
         }
@@ -590,15 +1404,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         long currentTime = System.currentTimeMillis();
 
-        String query = "SELECT * FROM " + TABLE_EXPENSES
-                + " WHERE " + KEY_EXPENSE_IS_RECURRING + "=1"
-                + " AND " + KEY_EXPENSE_NEXT_OCCURRENCE + "<=" + currentTime;
-
-        Cursor cursor = db.rawQuery(query, null);
+        Cursor cursor = db.rawQuery(QUERY_DUE_RECURRING, new String[]{String.valueOf(currentTime)});
 
         if (cursor != null && cursor.moveToFirst()) {
+            ExpenseColumns columns = new ExpenseColumns(cursor);
             do {
-                Expense expense = cursorToExpense(cursor);
+                Expense expense = cursorToExpense(cursor, columns);
                 dueExpenses.add(expense);
             } while (cursor.moveToNext());
             cursor.close();
@@ -619,18 +1430,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public long createRecurringOccurrence(Expense originalExpense) {
         // Create new expense with current date
-        Expense newExpense = new Expense(
-                originalExpense.getUserId(),
-                originalExpense.getCategoryId(),
-                originalExpense.getAmount(),
-                System.currentTimeMillis(),
-                originalExpense.getDescription(),
-                originalExpense.getType()
-        );
-        newExpense.setCurrencyId(originalExpense.getCurrencyId());
-        newExpense.setIsRecurring(false); // New occurrence is NOT recurring
-        newExpense.setReceiptPath(null); // No receipt for auto-created
-        newExpense.setRecurringGroupId(originalExpense.getRecurringGroupId()); // ✅ Set group ID
+        Expense newExpense = buildRecurringOccurrence(originalExpense, System.currentTimeMillis());
 
         // Insert new expense
         long newId = insertExpense(newExpense);
@@ -651,6 +1451,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
             db.update(TABLE_EXPENSES, values, KEY_ID + "=?",
                     new String[]{String.valueOf(originalExpense.getId())});
+            expensesChanged();
 
             Log.d(TAG, "Next occurrence scheduled for: " + nextOccurrence);
         }
@@ -658,6 +1459,27 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return newId;
     }
 
+    /**
+     * ✅ NEW: Build (without inserting) one occurrence of a recurring expense
+     * @param originalExpense The recurring master
+     * @param occurrenceDate Date of this occurrence
+     */
+    public static Expense buildRecurringOccurrence(Expense originalExpense, long occurrenceDate) {
+        Expense newExpense = new Expense(
+                originalExpense.getUserId(),
+                originalExpense.getCategoryId(),
+                originalExpense.getAmount(),
+                occurrenceDate,
+                originalExpense.getDescription(),
+                originalExpense.getType()
+        );
+        newExpense.setCurrencyId(originalExpense.getCurrencyId());
+        newExpense.setIsRecurring(false); // New occurrence is NOT recurring
+        newExpense.setReceiptPath(null); // No receipt for auto-created
+        newExpense.setRecurringGroupId(originalExpense.getRecurringGroupId()); // ✅ Set group ID
+        return newExpense;
+    }
+
     /**
      * Calculate next occurrence date based on period
      */
@@ -691,19 +1513,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getReadableDatabase();
         double total = 0;
 
-        String query = "SELECT SUM(" + KEY_EXPENSE_AMOUNT + ") as total FROM " + TABLE_EXPENSES
-                + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
-                + " AND " + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_INCOME
-                + " AND " + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
-
-        Cursor cursor = db.rawQuery(query, new String[]{
+        Cursor cursor = db.rawQuery(QUERY_TOTAL_INCOME, new String[]{
                 String.valueOf(userId),
                 String.valueOf(startDate),
                 String.valueOf(endDate)
         });
 
         if (cursor != null && cursor.moveToFirst()) {
-            total = cursor.getDouble(cursor.getColumnIndexOrThrow("total"));
+            total = readAmount(cursor, cursor.getColumnIndexOrThrow("total"));
             cursor.close();
         }
 
@@ -717,19 +1534,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getReadableDatabase();
         double total = 0;
 
-        String query = "SELECT SUM(" + KEY_EXPENSE_AMOUNT + ") as total FROM " + TABLE_EXPENSES
-                + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
-                + " AND " + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_EXPENSE
-                + " AND " + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
-
-        Cursor cursor = db.rawQuery(query, new String[]{
+        Cursor cursor = db.rawQuery(QUERY_TOTAL_EXPENSE, new String[]{
                 String.valueOf(userId),
                 String.valueOf(startDate),
                 String.valueOf(endDate)
         });
 
         if (cursor != null && cursor.moveToFirst()) {
-            total = cursor.getDouble(cursor.getColumnIndexOrThrow("total"));
+            total = readAmount(cursor, cursor.getColumnIndexOrThrow("total"));
             cursor.close();
         }
 
@@ -745,39 +1557,113 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return income - expense;
     }
 
+    // =============== EXCHANGE RATES (v11) ===============
+
+    /**
+     * ✅ v11: Whole rate history, loaded once into memory (see CurrencyConverter.getRateHistory)
+     */
+    public RateHistory getRateHistory() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        RateHistory.Builder builder = new RateHistory.Builder();
+
+        try {
+            Cursor cursor = db.rawQuery("SELECT " + KEY_RATE_CURRENCY_ID + ", " + KEY_RATE_EFFECTIVE_FROM + ", "
+                    + KEY_RATE_VALUE + " FROM " + TABLE_CURRENCY_RATES, null);
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    builder.add(cursor.getInt(0), cursor.getLong(1), cursor.getDouble(2));
+                }
+                cursor.close();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading rate history: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * ✅ v11: Record a new rate in force from {@code effectiveFrom}
+     * currencies keeps the latest rate (used to display totals in a target currency);
+     * expenses dated before effectiveFrom keep the rate they were recorded at.
+     * Summary buckets holding rows dated on/after effectiveFrom are re-priced in the same transaction.
+     *
+     * @return true if the rate was stored (false = rolled back, nothing changed)
+     */
+    public boolean insertCurrencyRate(int currencyId, double rate, long effectiveFrom) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        java.util.Calendar monthStart = java.util.Calendar.getInstance();
+        monthStart.setTimeInMillis(effectiveFrom);
+        monthStart.set(java.util.Calendar.DAY_OF_MONTH, 1);
+        monthStart.set(java.util.Calendar.HOUR_OF_DAY, 0);
+        monthStart.set(java.util.Calendar.MINUTE, 0);
+        monthStart.set(java.util.Calendar.SECOND, 0);
+        monthStart.set(java.util.Calendar.MILLISECOND, 0);
+
+        try {
+            db.beginTransaction();
+
+            db.execSQL("INSERT OR REPLACE INTO " + TABLE_CURRENCY_RATES + " VALUES (?, ?, ?)",
+                    new Object[]{currencyId, effectiveFrom, rate});
+            db.execSQL("UPDATE " + TABLE_CURRENCIES + " SET " + KEY_CURRENCY_RATE + "=?, "
+                            + KEY_CURRENCY_UPDATED + "=? WHERE " + KEY_ID + "=?",
+                    new Object[]{rate, System.currentTimeMillis(), currencyId});
+
+            // Usually no-op: only future-dated rows fall after a rate recorded "now"
+            db.execSQL("UPDATE " + TABLE_MONTHLY_SUMMARY + " SET " + KEY_SUMMARY_TOTAL_VND + "="
+                            + "(SELECT COALESCE(SUM(" + inVnd("e") + "), 0) FROM " + TABLE_EXPENSES + " e"
+                            + " WHERE e." + KEY_EXPENSE_USER_ID + "=" + TABLE_MONTHLY_SUMMARY + "." + KEY_SUMMARY_USER_ID
+                            + " AND e." + KEY_EXPENSE_DATE + ">=?"
+                            + " AND " + yearMonthExpr("e." + KEY_EXPENSE_DATE) + "=" + TABLE_MONTHLY_SUMMARY + "." + KEY_SUMMARY_YEAR_MONTH
+                            + " AND e." + KEY_EXPENSE_CATEGORY_ID + "=" + TABLE_MONTHLY_SUMMARY + "." + KEY_SUMMARY_CATEGORY_ID
+                            + " AND e." + KEY_EXPENSE_TYPE + "=" + TABLE_MONTHLY_SUMMARY + "." + KEY_SUMMARY_TYPE
+                            + " AND COALESCE(e." + KEY_EXPENSE_CURRENCY_ID + ", 1)=" + TABLE_MONTHLY_SUMMARY + "." + KEY_SUMMARY_CURRENCY_ID + ")"
+                            + " WHERE " + KEY_SUMMARY_CURRENCY_ID + "=? AND " + KEY_SUMMARY_YEAR_MONTH + ">=?",
+                    new Object[]{monthStart.getTimeInMillis(), currencyId, toYearMonth(effectiveFrom)});
+
+            db.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error inserting currency rate: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     // =============== EXISTING CRUD (Updated) ===============
 
     public long insertExpense(Expense expense) {
-        SQLiteDatabase db = this.getWritableDatabase();
+        long id;
+        SQLiteStatement insert = getCachedStatement(SQL_INSERT_EXPENSE);
 
-        ContentValues values = new ContentValues();
-        values.put(KEY_EXPENSE_USER_ID, expense.getUserId());
-        values.put(KEY_EXPENSE_CATEGORY_ID, expense.getCategoryId());
-        values.put(KEY_EXPENSE_CURRENCY_ID, expense.getCurrencyId());
-        values.put(KEY_EXPENSE_AMOUNT, expense.getAmount());
-        values.put(KEY_EXPENSE_DATE, expense.getDate());
-        values.put(KEY_EXPENSE_DESCRIPTION, expense.getDescription());
-        values.put(KEY_EXPENSE_RECEIPT, expense.getReceiptPath());
-        values.put(KEY_EXPENSE_TYPE, expense.getType());
-
-        // Recurring fields
-        values.put(KEY_EXPENSE_IS_RECURRING, expense.isRecurring() ? 1 : 0);
-        values.put(KEY_EXPENSE_RECURRENCE_PERIOD, expense.getRecurrencePeriod());
-        values.put(KEY_EXPENSE_NEXT_OCCURRENCE, expense.getNextOccurrenceDate());
-        values.put(KEY_EXPENSE_RECURRING_GROUP_ID, expense.getRecurringGroupId());
-        values.put(KEY_EXPENSE_RECURRING_END_DATE, expense.getRecurringEndDate());
-
-        values.put(KEY_CREATED_AT, expense.getCreatedAt());
-
-        long id = db.insert(TABLE_EXPENSES, null, values);
-
-        // ✅ If this is a NEW recurring expense, set its own ID as group ID
-        if (id != -1 && expense.isRecurring() && expense.getRecurringGroupId() == 0) {
-            ContentValues updateValues = new ContentValues();
-            updateValues.put(KEY_EXPENSE_RECURRING_GROUP_ID, id);
-            db.update(TABLE_EXPENSES, updateValues, KEY_ID + "=?",
-                    new String[]{String.valueOf(id)});
-            expense.setRecurringGroupId((int) id);
+        try {
+            synchronized (insert) {
+                insert.clearBindings();
+                bindExpenseInsert(insert, expense, 1);
+                id = insert.executeInsert();
+            }
+
+            // ✅ If this is a NEW recurring expense, set its own ID as group ID
+            if (id != -1 && expense.isRecurring() && expense.getRecurringGroupId() == 0) {
+                SQLiteStatement setGroup = getCachedStatement(SQL_SET_RECURRING_GROUP_ID);
+                synchronized (setGroup) {
+                    setGroup.bindLong(1, id);
+                    setGroup.bindLong(2, id);
+                    setGroup.executeUpdateDelete();
+                }
+                expense.setRecurringGroupId((int) id);
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "Error inserting expense: " + e.getMessage());
+            return -1;
+        }
+
+        if (id != -1) {
+            expensesChanged();
         }
 
         Log.d(TAG, "Expense inserted: " + id + " (Type: " +
@@ -789,31 +1675,167 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     public int updateExpense(Expense expense) {
-        SQLiteDatabase db = this.getWritableDatabase();
-
-        ContentValues values = new ContentValues();
-        values.put(KEY_EXPENSE_CATEGORY_ID, expense.getCategoryId());
-        values.put(KEY_EXPENSE_CURRENCY_ID, expense.getCurrencyId());
-        values.put(KEY_EXPENSE_AMOUNT, expense.getAmount());
-        values.put(KEY_EXPENSE_DATE, expense.getDate());
-        values.put(KEY_EXPENSE_DESCRIPTION, expense.getDescription());
-        values.put(KEY_EXPENSE_RECEIPT, expense.getReceiptPath());
-        values.put(KEY_EXPENSE_TYPE, expense.getType());
+        int rowsAffected;
+        SQLiteStatement update = getCachedStatement(SQL_UPDATE_EXPENSE);
 
-        // NEW: Recurring fields
-        values.put(KEY_EXPENSE_IS_RECURRING, expense.isRecurring() ? 1 : 0);
-        values.put(KEY_EXPENSE_RECURRENCE_PERIOD, expense.getRecurrencePeriod());
-        values.put(KEY_EXPENSE_NEXT_OCCURRENCE, expense.getNextOccurrenceDate());
-        values.put(KEY_EXPENSE_RECURRING_GROUP_ID, expense.getRecurringGroupId());
-        values.put(KEY_EXPENSE_RECURRING_END_DATE, expense.getRecurringEndDate());
+        try {
+            synchronized (update) {
+                update.clearBindings();
+                update.bindLong(1, expense.getCategoryId());
+                update.bindLong(2, expense.getCurrencyId());
+                update.bindLong(3, expense.getMoney().getMinorUnits());
+                update.bindLong(4, expense.getDate());
+                bindNullableString(update, 5, expense.getDescription());
+                bindNullableString(update, 6, expense.getReceiptPath());
+                update.bindLong(7, expense.getType());
+
+                // NEW: Recurring fields
+                update.bindLong(8, expense.isRecurring() ? 1 : 0);
+                bindNullableString(update, 9, expense.getRecurrencePeriod());
+                update.bindLong(10, expense.getNextOccurrenceDate());
+                update.bindLong(11, expense.getRecurringGroupId());
+                update.bindLong(12, expense.getRecurringEndDate());
+
+                update.bindLong(13, expense.getId());
+                rowsAffected = update.executeUpdateDelete();
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "Error updating expense: " + e.getMessage());
+            return 0;
+        }
 
-        int rowsAffected = db.update(TABLE_EXPENSES, values, KEY_ID + "=?",
-                new String[]{String.valueOf(expense.getId())});
+        if (rowsAffected > 0) {
+            expensesChanged();
+        }
 
         Log.d(TAG, "Expense updated: " + rowsAffected + " rows");
         return rowsAffected;
     }
 
+    /**
+     * ✅ NEW: Insert many expenses in ONE transaction with one compiled statement
+     * - New recurring masters (group ID 0) get their own ID as group ID in the same transaction
+     * - Expenses with id > 0 are restored under that id (undo after delete)
+     * All-or-nothing: on any failure the whole batch is rolled back.
+     *
+     * @param expenses Expenses to insert; ids/group IDs of the objects are set
+     *                 only once the batch has committed
+     * @return Number of rows inserted (0 if the batch was rolled back)
+     */
+    public int insertExpensesBatch(List<Expense> expenses) {
+        if (expenses == null || expenses.isEmpty()) return 0;
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement(SQL_INSERT_EXPENSE);
+        SQLiteStatement insertWithId = db.compileStatement(SQL_INSERT_EXPENSE_WITH_ID);
+        SQLiteStatement setGroup = db.compileStatement(SQL_SET_RECURRING_GROUP_ID);
+        int[] newIds = new int[expenses.size()];
+        int inserted = 0;
+
+        try {
+            db.beginTransaction();
+
+            for (int i = 0; i < newIds.length; i++) {
+                Expense expense = expenses.get(i);
+                long id;
+                if (expense.getId() > 0) {
+                    insertWithId.bindLong(1, expense.getId());
+                    bindExpenseInsert(insertWithId, expense, 2);
+                    id = insertWithId.executeInsert();
+                } else {
+                    bindExpenseInsert(insert, expense, 1);
+                    id = insert.executeInsert();
+                }
+
+                if (expense.isRecurring() && expense.getRecurringGroupId() == 0) {
+                    setGroup.bindLong(1, id);
+                    setGroup.bindLong(2, id);
+                    setGroup.executeUpdateDelete();
+                }
+
+                newIds[i] = (int) id;
+            }
+
+            db.setTransactionSuccessful();
+
+            // ✅ FIX: Only a committed batch touches the caller's objects (a rollback leaves them as they were)
+            for (int i = 0; i < newIds.length; i++) {
+                Expense expense = expenses.get(i);
+                if (expense.isRecurring() && expense.getRecurringGroupId() == 0) {
+                    expense.setRecurringGroupId(newIds[i]);
+                }
+                expense.setId(newIds[i]);
+            }
+            inserted = newIds.length;
+            expensesChanged();
+            Log.d(TAG, "Batch inserted " + inserted + " expenses");
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error batch inserting expenses: " + e.getMessage());
+            e.printStackTrace();
+            inserted = 0;
+        } finally {
+            db.endTransaction();
+            insert.close();
+            insertWithId.close();
+            setGroup.close();
+        }
+
+        return inserted;
+    }
+
+    /**
+     * ✅ NEW: Store due recurring occurrences and advance their masters in ONE transaction
+     * Either every occurrence is inserted and every master gets its new next-occurrence date and
+     * recurring flag, or nothing changes (so a retry never creates the same date twice).
+     *
+     * @param occurrences New rows (from buildRecurringOccurrence); ids are set in place
+     * @param masters Recurring masters carrying their new next-occurrence date / isRecurring
+     * @return true if the transaction committed
+     */
+    public boolean insertRecurringOccurrences(List<Expense> occurrences, List<Expense> masters) {
+        if (occurrences.isEmpty() && masters.isEmpty()) return true;
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement(SQL_INSERT_EXPENSE);
+        SQLiteStatement advance = db.compileStatement(SQL_ADVANCE_RECURRING_MASTER);
+        boolean committed = false;
+
+        try {
+            db.beginTransaction();
+
+            for (Expense occurrence : occurrences) {
+                bindExpenseInsert(insert, occurrence, 1);
+                occurrence.setId((int) insert.executeInsert());
+            }
+
+            for (Expense master : masters) {
+                advance.bindLong(1, master.isRecurring() ? 1 : 0);
+                advance.bindLong(2, master.getNextOccurrenceDate());
+                advance.bindLong(3, master.getId());
+                advance.executeUpdateDelete();
+            }
+
+            db.setTransactionSuccessful();
+            committed = true;
+            Log.d(TAG, "Stored " + occurrences.size() + " recurring occurrences, advanced "
+                    + masters.size() + " masters");
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error storing recurring occurrences: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            db.endTransaction();
+            insert.close();
+            advance.close();
+        }
+
+        if (committed) {
+            expensesChanged();
+        }
+        return committed;
+    }
+
     /**
      * ✅ UPDATE ALL FUTURE OCCURRENCES of a recurring expense
      * This updates:
@@ -821,25 +1843,41 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * 2. All future occurrences (date >= current expense date) in the same group
      *
      * @param expense The expense being edited (with new values)
-     * @return Number of rows affected
+     * @return IDs of the rows updated (empty if nothing was written)
      */
-    public int updateAllFutureOccurrences(Expense expense) {
+    public int[] updateAllFutureOccurrences(Expense expense) {
         if (!expense.isRecurring() || expense.getRecurringGroupId() == 0) {
             Log.w(TAG, "Cannot update future: expense is not recurring or has no group ID");
-            return 0;
+            return new int[0];
         }
 
         SQLiteDatabase db = this.getWritableDatabase();
+        int[] updatedIds = new int[0];
         int totalUpdated = 0;
 
+        String[] groupArgs = new String[]{
+                String.valueOf(expense.getRecurringGroupId()),
+                String.valueOf(expense.getRecurringGroupId()),
+                String.valueOf(expense.getDate())
+        };
+
         try {
             db.beginTransaction();
 
+            // ✅ FIX: Read the IDs in the same transaction as the updates below (same predicates,
+            // and no updated column is part of them), so the caller gets exactly the rows written
+            try (Cursor cursor = db.rawQuery(QUERY_FUTURE_OCCURRENCE_IDS, groupArgs)) {
+                updatedIds = new int[cursor.getCount()];
+                for (int i = 0; cursor.moveToNext(); i++) {
+                    updatedIds[i] = cursor.getInt(0);
+                }
+            }
+
             // 1. Update the master recurring expense (always update this)
             ContentValues masterValues = new ContentValues();
             masterValues.put(KEY_EXPENSE_CATEGORY_ID, expense.getCategoryId());
             masterValues.put(KEY_EXPENSE_CURRENCY_ID, expense.getCurrencyId());
-            masterValues.put(KEY_EXPENSE_AMOUNT, expense.getAmount());
+            masterValues.put(KEY_EXPENSE_AMOUNT, expense.getMoney().getMinorUnits());
             masterValues.put(KEY_EXPENSE_DESCRIPTION, expense.getDescription());
             masterValues.put(KEY_EXPENSE_TYPE, expense.getType());
             masterValues.put(KEY_EXPENSE_RECURRENCE_PERIOD, expense.getRecurrencePeriod());
@@ -857,36 +1895,35 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             ContentValues futureValues = new ContentValues();
             futureValues.put(KEY_EXPENSE_CATEGORY_ID, expense.getCategoryId());
             futureValues.put(KEY_EXPENSE_CURRENCY_ID, expense.getCurrencyId());
-            futureValues.put(KEY_EXPENSE_AMOUNT, expense.getAmount());
+            futureValues.put(KEY_EXPENSE_AMOUNT, expense.getMoney().getMinorUnits());
             futureValues.put(KEY_EXPENSE_DESCRIPTION, expense.getDescription());
             futureValues.put(KEY_EXPENSE_TYPE, expense.getType());
             // DON'T update date for occurrences - they keep their occurrence dates
             // DON'T update recurring fields - occurrences are not recurring
 
-            String whereClause = KEY_EXPENSE_RECURRING_GROUP_ID + "=?"
-                    + " AND " + KEY_EXPENSE_IS_RECURRING + "=0" // Only non-recurring occurrences
-                    + " AND " + KEY_EXPENSE_DATE + ">=?"; // Future or current
-
+            // Only non-recurring occurrences, future or current
             String[] whereArgs = new String[]{
                     String.valueOf(expense.getRecurringGroupId()),
                     String.valueOf(expense.getDate())
             };
 
-            int futureUpdated = db.update(TABLE_EXPENSES, futureValues, whereClause, whereArgs);
+            int futureUpdated = db.update(TABLE_EXPENSES, futureValues, WHERE_FUTURE_OCCURRENCES, whereArgs);
             totalUpdated += futureUpdated;
 
             db.setTransactionSuccessful();
+            expensesChanged();
             Log.d(TAG, "Updated all future occurrences: " + totalUpdated + " rows " +
                     "(Master: " + masterUpdated + ", Future: " + futureUpdated + ")");
 
         } catch (Exception e) {
             Log.e(TAG, "Error updating future occurrences: " + e.getMessage());
             e.printStackTrace();
+            updatedIds = new int[0];
         } finally {
             db.endTransaction();
         }
 
-        return totalUpdated;
+        return updatedIds;
     }
 
     // =============== HELPER METHODS ===============
@@ -896,53 +1933,77 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)),
                 cursor.getString(cursor.getColumnIndexOrThrow(KEY_TEMPLATE_NAME)),
                 cursor.getInt(cursor.getColumnIndexOrThrow(KEY_TEMPLATE_CATEGORY_ID)),
-                cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_TEMPLATE_DEFAULT_AMOUNT)),
+                readAmount(cursor, cursor.getColumnIndexOrThrow(KEY_TEMPLATE_DEFAULT_AMOUNT)),
                 cursor.getString(cursor.getColumnIndexOrThrow(KEY_TEMPLATE_ICON))
         );
     }
 
-    private Expense cursorToExpense(Cursor cursor) {
-        int typeIndex = cursor.getColumnIndex(KEY_EXPENSE_TYPE);
-        int type = (typeIndex >= 0) ? cursor.getInt(typeIndex) : 0;
-
-        // NEW: Recurring fields
-        int isRecurringIndex = cursor.getColumnIndex(KEY_EXPENSE_IS_RECURRING);
-        boolean isRecurring = (isRecurringIndex >= 0) && cursor.getInt(isRecurringIndex) == 1;
-
-        int periodIndex = cursor.getColumnIndex(KEY_EXPENSE_RECURRENCE_PERIOD);
-        String period = (periodIndex >= 0) ? cursor.getString(periodIndex) : null;
-
-        int nextOccIndex = cursor.getColumnIndex(KEY_EXPENSE_NEXT_OCCURRENCE);
-        long nextOcc = (nextOccIndex >= 0) ? cursor.getLong(nextOccIndex) : 0;
-
-        int groupIdIndex = cursor.getColumnIndex(KEY_EXPENSE_RECURRING_GROUP_ID);
-        int groupId = (groupIdIndex >= 0) ? cursor.getInt(groupIdIndex) : 0;
-
-        int endDateIndex = cursor.getColumnIndex(KEY_EXPENSE_RECURRING_END_DATE);
-        long endDate = (endDateIndex >= 0) ? cursor.getLong(endDateIndex) : 0;
-
+    @VisibleForTesting
+    static Expense cursorToExpense(Cursor cursor, ExpenseColumns columns) {
         Expense expense = new Expense(
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)),
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_EXPENSE_USER_ID)),
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_EXPENSE_CATEGORY_ID)),
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_EXPENSE_CURRENCY_ID)),
-                cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_EXPENSE_AMOUNT)),
-                cursor.getLong(cursor.getColumnIndexOrThrow(KEY_EXPENSE_DATE)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_EXPENSE_DESCRIPTION)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_EXPENSE_RECEIPT)),
-                cursor.getLong(cursor.getColumnIndexOrThrow(KEY_CREATED_AT)),
-                type
+                cursor.getInt(columns.id),
+                cursor.getInt(columns.userId),
+                cursor.getInt(columns.categoryId),
+                cursor.getInt(columns.currencyId),
+                Money.ofMinorUnits(cursor.getLong(columns.amount)),
+                cursor.getLong(columns.date),
+                cursor.getString(columns.description),
+                cursor.getString(columns.receiptPath),
+                cursor.getLong(columns.createdAt),
+                columns.type >= 0 ? cursor.getInt(columns.type) : 0
         );
 
-        expense.setIsRecurring(isRecurring);
-        expense.setRecurrencePeriod(period);
-        expense.setNextOccurrenceDate(nextOcc);
-        expense.setRecurringGroupId(groupId);
-        expense.setRecurringEndDate(endDate);
+        // NEW: Recurring fields
+        expense.setIsRecurring(columns.isRecurring >= 0 && cursor.getInt(columns.isRecurring) == 1);
+        expense.setRecurrencePeriod(columns.recurrencePeriod >= 0 ? cursor.getString(columns.recurrencePeriod) : null);
+        expense.setNextOccurrenceDate(columns.nextOccurrence >= 0 ? cursor.getLong(columns.nextOccurrence) : 0);
+        expense.setRecurringGroupId(columns.recurringGroupId >= 0 ? cursor.getInt(columns.recurringGroupId) : 0);
+        expense.setRecurringEndDate(columns.recurringEndDate >= 0 ? cursor.getLong(columns.recurringEndDate) : 0);
 
         return expense;
     }
 
+    /**
+     * ✅ NEW: Column indexes of an expense cursor, resolved once per query instead of once per row
+     * Optional (later-version) columns resolve to -1 when absent.
+     */
+    @VisibleForTesting
+    static final class ExpenseColumns {
+        final int id;
+        final int userId;
+        final int categoryId;
+        final int currencyId;
+        final int amount;
+        final int date;
+        final int description;
+        final int receiptPath;
+        final int createdAt;
+        final int type;
+        final int isRecurring;
+        final int recurrencePeriod;
+        final int nextOccurrence;
+        final int recurringGroupId;
+        final int recurringEndDate;
+
+        ExpenseColumns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(KEY_ID);
+            userId = cursor.getColumnIndexOrThrow(KEY_EXPENSE_USER_ID);
+            categoryId = cursor.getColumnIndexOrThrow(KEY_EXPENSE_CATEGORY_ID);
+            currencyId = cursor.getColumnIndexOrThrow(KEY_EXPENSE_CURRENCY_ID);
+            amount = cursor.getColumnIndexOrThrow(KEY_EXPENSE_AMOUNT);
+            date = cursor.getColumnIndexOrThrow(KEY_EXPENSE_DATE);
+            description = cursor.getColumnIndexOrThrow(KEY_EXPENSE_DESCRIPTION);
+            receiptPath = cursor.getColumnIndexOrThrow(KEY_EXPENSE_RECEIPT);
+            createdAt = cursor.getColumnIndexOrThrow(KEY_CREATED_AT);
+            type = cursor.getColumnIndex(KEY_EXPENSE_TYPE);
+            isRecurring = cursor.getColumnIndex(KEY_EXPENSE_IS_RECURRING);
+            recurrencePeriod = cursor.getColumnIndex(KEY_EXPENSE_RECURRENCE_PERIOD);
+            nextOccurrence = cursor.getColumnIndex(KEY_EXPENSE_NEXT_OCCURRENCE);
+            recurringGroupId = cursor.getColumnIndex(KEY_EXPENSE_RECURRING_GROUP_ID);
+            recurringEndDate = cursor.getColumnIndex(KEY_EXPENSE_RECURRING_END_DATE);
+        }
+    }
+
     // Keep existing methods: getUserById, getUserByEmail, updateUser, deleteUser,
     // getAllCategories, getCategoryById, getExpensesByUser, deleteExpense,
     // insertBudget, getBudgetsByUser, updateBudget, deleteBudget, cursorToUser,
@@ -952,11 +2013,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     public User getUserById(int userId) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_USERS, null, KEY_ID + "=?",
+        Cursor cursor = db.query(TABLE_USERS, USER_PROJECTION, KEY_ID + "=?",
                 new String[]{String.valueOf(userId)}, null, null, null);
         User user = null;
         if (cursor != null && cursor.moveToFirst()) {
-            user = cursorToUser(cursor);
+            user = cursorToUser(cursor, new UserColumns(cursor));
             cursor.close();
         }
         return user;
@@ -964,11 +2025,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     public User getUserByEmail(String email) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_USERS, null, KEY_USER_EMAIL + "=?",
+        Cursor cursor = db.query(TABLE_USERS, USER_PROJECTION, KEY_USER_EMAIL + "=?",
                 new String[]{email}, null, null, null);
         User user = null;
         if (cursor != null && cursor.moveToFirst()) {
-            user = cursorToUser(cursor);
+            user = cursorToUser(cursor, new UserColumns(cursor));
             cursor.close();
         }
         return user;
@@ -1007,179 +2068,961 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return db.delete(TABLE_USERS, KEY_ID + "=?", new String[]{String.valueOf(userId)});
     }
 
+    /**
+     * ✅ CACHED: All categories ordered by name, served from the in-memory snapshot
+     * Returns a fresh list so callers may add placeholder entries (e.g. "All categories").
+     */
     public List<Category> getAllCategories() {
-        List<Category> categories = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_CATEGORIES, null, null, null, null, null, KEY_CATEGORY_NAME);
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                categories.add(cursorToCategory(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-        return categories;
+        return new ArrayList<>(getCategorySnapshot().getAll());
     }
 
+    /**
+     * ✅ CACHED: O(1) lookup from the in-memory snapshot (no SQLite query per row)
+     */
     public Category getCategoryById(int categoryId) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_CATEGORIES, null, KEY_ID + "=?",
-                new String[]{String.valueOf(categoryId)}, null, null, null);
-        Category category = null;
-        if (cursor != null && cursor.moveToFirst()) {
-            category = cursorToCategory(cursor);
-            cursor.close();
-        }
-        return category;
+        return getCategorySnapshot().get(categoryId);
     }
 
-    public List<Expense> getExpensesByUser(int userId) {
-        List<Expense> expenses = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_EXPENSES, null, KEY_EXPENSE_USER_ID + "=?",
-                new String[]{String.valueOf(userId)}, null, null, KEY_EXPENSE_DATE + " DESC");
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                expenses.add(cursorToExpense(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
+    /**
+     * ✅ NEW: Immutable snapshot of the categories table, loaded once per process
+     * Hot loops (adapters, sorts, exports) should fetch it once and look up by ID.
+     */
+    public CategorySnapshot getCategorySnapshot() {
+        CategorySnapshot snapshot = categorySnapshot;
+        if (snapshot != null) {
+            return snapshot;
         }
-        return expenses;
-    }
 
-    public int deleteExpense(int expenseId) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        return db.delete(TABLE_EXPENSES, KEY_ID + "=?", new String[]{String.valueOf(expenseId)});
+        // No lock: a concurrent double load is harmless, and locking here could invert with
+        // SQLiteOpenHelper's own lock when onCreate/onUpgrade writes categories
+        int version = categoryVersion.get();
+        snapshot = loadCategorySnapshot();
+        if (categoryVersion.get() == version) {
+            categorySnapshot = snapshot; // Only publish if no write happened while loading
+        }
+        return snapshot;
     }
 
     /**
-     * ✅ DELETE ALL FUTURE OCCURRENCES of a recurring expense
-     * This deletes:
-     * 1. The master recurring expense (stops recurrence)
-     * 2. All future occurrences (date >= current expense date) in the same group
+     * ✅ NEW: Store the collation order of the current language (index = category ID)
+     * Only sort_rank changes, so the category snapshot stays valid and is not invalidated.
      *
-     * @param expense The expense being deleted
-     * @return Number of rows deleted
+     * @return true if every rank was written (false = rolled back)
      */
-    public int deleteAllFutureOccurrences(Expense expense) {
-        if (expense.getRecurringGroupId() == 0) {
-            Log.w(TAG, "Cannot delete future: expense has no group ID");
-            return deleteExpense(expense.getId());
-        }
-
+    public boolean updateCategorySortRanks(int[] ranksById) {
         SQLiteDatabase db = this.getWritableDatabase();
-        int totalDeleted = 0;
-
+        db.beginTransaction();
         try {
-            db.beginTransaction();
-
-            // 1. Delete the master recurring expense
-            int masterDeleted = db.delete(TABLE_EXPENSES,
-                    KEY_ID + "=? AND " + KEY_EXPENSE_IS_RECURRING + "=1",
-                    new String[]{String.valueOf(expense.getRecurringGroupId())});
-
-            totalDeleted += masterDeleted;
-
-            // 2. Delete all FUTURE occurrences in the same group (date >= current expense date)
-            String whereClause = KEY_EXPENSE_RECURRING_GROUP_ID + "=?"
-                    + " AND " + KEY_EXPENSE_IS_RECURRING + "=0" // Only occurrences
-                    + " AND " + KEY_EXPENSE_DATE + ">=?"; // Future or current
-
-            String[] whereArgs = new String[]{
-                    String.valueOf(expense.getRecurringGroupId()),
-                    String.valueOf(expense.getDate())
-            };
-
-            int futureDeleted = db.delete(TABLE_EXPENSES, whereClause, whereArgs);
-            totalDeleted += futureDeleted;
-
+            SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_CATEGORIES
+                    + " SET " + KEY_CATEGORY_SORT_RANK + "=? WHERE " + KEY_ID + "=?");
+            for (int id = 0; id < ranksById.length; id++) {
+                update.bindLong(1, ranksById[id]);
+                update.bindLong(2, id);
+                update.executeUpdateDelete();
+            }
+            update.close();
             db.setTransactionSuccessful();
-            Log.d(TAG, "Deleted all future occurrences: " + totalDeleted + " rows " +
-                    "(Master: " + masterDeleted + ", Future: " + futureDeleted + ")");
-
+            return true;
         } catch (Exception e) {
-            Log.e(TAG, "Error deleting future occurrences: " + e.getMessage());
+            Log.e(TAG, "Error updating category sort ranks: " + e.getMessage());
             e.printStackTrace();
+            return false;
         } finally {
             db.endTransaction();
         }
+    }
 
-        return totalDeleted;
+    /**
+     * ✅ NEW: Counter of expense writes since the process started
+     * A screen remembers it when it loads and reloads in onResume only if it moved
+     * (e.g. the recurring worker inserted occurrences while the screen was in the background).
+     */
+    public int getExpenseVersion() {
+        return expenseVersion.get();
     }
 
-    public long insertBudget(Budget budget) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(KEY_BUDGET_USER_ID, budget.getUserId());
-        values.put(KEY_BUDGET_CATEGORY_ID, budget.getCategoryId());
-        values.put(KEY_BUDGET_AMOUNT, budget.getAmount());
-        values.put(KEY_BUDGET_PERIOD_START, budget.getPeriodStart());
-        values.put(KEY_BUDGET_PERIOD_END, budget.getPeriodEnd());
-        values.put(KEY_CREATED_AT, budget.getCreatedAt());
-        return db.insert(TABLE_BUDGETS, null, values);
+    private void expensesChanged() {
+        expenseVersion.incrementAndGet();
     }
 
-    public List<Budget> getBudgetsByUser(int userId) {
-        List<Budget> budgets = new ArrayList<>();
+    /**
+     * Drop the category snapshot; call after any write to the categories table
+     */
+    public void invalidateCategoryCache() {
+        categoryVersion.incrementAndGet();
+        categorySnapshot = null;
+    }
+
+    private CategorySnapshot loadCategorySnapshot() {
+        List<Category> categories = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_BUDGETS, null, KEY_BUDGET_USER_ID + "=?",
-                new String[]{String.valueOf(userId)}, null, null, KEY_BUDGET_PERIOD_END + " DESC");
+        Cursor cursor = db.query(TABLE_CATEGORIES, CATEGORY_PROJECTION, null, null, null, null, KEY_CATEGORY_NAME);
         if (cursor != null && cursor.moveToFirst()) {
+            CategoryColumns columns = new CategoryColumns(cursor);
             do {
-                budgets.add(cursorToBudget(cursor));
+                categories.add(cursorToCategory(cursor, columns));
             } while (cursor.moveToNext());
             cursor.close();
         }
-        return budgets;
-    }
-
-    public int updateBudget(Budget budget) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(KEY_BUDGET_CATEGORY_ID, budget.getCategoryId());
-        values.put(KEY_BUDGET_AMOUNT, budget.getAmount());
-        values.put(KEY_BUDGET_PERIOD_START, budget.getPeriodStart());
-        values.put(KEY_BUDGET_PERIOD_END, budget.getPeriodEnd());
-        return db.update(TABLE_BUDGETS, values, KEY_ID + "=?",
-                new String[]{String.valueOf(budget.getId())});
+        return new CategorySnapshot(categories);
     }
 
-    public int deleteBudget(int budgetId) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        return db.delete(TABLE_BUDGETS, KEY_ID + "=?", new String[]{String.valueOf(budgetId)});
-    }
+    /**
+     * Immutable category lookup table: array indexed by category ID plus the name-ordered list
+     */
+    public static final class CategorySnapshot {
+        private final Category[] byId;
+        private final List<Category> ordered;
+
+        CategorySnapshot(List<Category> categories) {
+            int maxId = 0;
+            for (Category category : categories) {
+                maxId = Math.max(maxId, category.getId());
+            }
+            byId = new Category[maxId + 1];
+            for (Category category : categories) {
+                if (category.getId() >= 0) {
+                    byId[category.getId()] = category;
+                }
+            }
+            ordered = Collections.unmodifiableList(new ArrayList<>(categories));
+        }
 
-    private User cursorToUser(Cursor cursor) {
-        return new User(
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_USER_EMAIL)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_USER_PASSWORD)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_USER_NAME)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_USER_ADDRESS)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_USER_PHONE)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_USER_AVATAR)),
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_USER_DARK_MODE)) == 1,
-                cursor.getLong(cursor.getColumnIndexOrThrow(KEY_CREATED_AT))
-        );
-    }
+        /**
+         * @return Category or null if the ID is unknown
+         */
+        public Category get(int categoryId) {
+            return categoryId >= 0 && categoryId < byId.length ? byId[categoryId] : null;
+        }
 
-    private Category cursorToCategory(Cursor cursor) {
-        return new Category(
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_CATEGORY_NAME)),
-                cursor.getString(cursor.getColumnIndexOrThrow(KEY_CATEGORY_ICON))
-        );
+        public List<Category> getAll() {
+            return ordered;
+        }
     }
 
-    private Budget cursorToBudget(Cursor cursor) {
-        return new Budget(
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)),
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_BUDGET_USER_ID)),
-                cursor.getInt(cursor.getColumnIndexOrThrow(KEY_BUDGET_CATEGORY_ID)),
-                cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_BUDGET_AMOUNT)),
-                cursor.getLong(cursor.getColumnIndexOrThrow(KEY_BUDGET_PERIOD_START)),
-                cursor.getLong(cursor.getColumnIndexOrThrow(KEY_BUDGET_PERIOD_END)),
-                cursor.getLong(cursor.getColumnIndexOrThrow(KEY_CREATED_AT))
-        );
+    public List<Expense> getExpensesByUser(int userId) {
+        List<Expense> expenses = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_EXPENSES_BY_USER, new String[]{String.valueOf(userId)});
+        if (cursor != null && cursor.moveToFirst()) {
+            ExpenseColumns columns = new ExpenseColumns(cursor);
+            do {
+                expenses.add(cursorToExpense(cursor, columns));
+            } while (cursor.moveToNext());
+            cursor.close();
+        }
+        return expenses;
+    }
+
+    /**
+     * ✅ NEW: Single expense by primary key (no full-history scan)
+     *
+     * @param expenseId Expense ID
+     * @return Expense or null if not found
+     */
+    public Expense getExpenseById(int expenseId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Expense expense = null;
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_EXPENSE_BY_ID, new String[]{String.valueOf(expenseId)});
+            if (cursor != null) {
+                if (cursor.moveToFirst()) {
+                    expense = cursorToExpense(cursor, new ExpenseColumns(cursor));
+                }
+                cursor.close();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading expense " + expenseId + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return expense;
+    }
+
+    /**
+     * ✅ NEW: Batch primary-key lookup for multi-select flows
+     * IDs are queried in chunks of MAX_IDS_PER_QUERY; missing IDs are skipped.
+     *
+     * @param expenseIds Expense IDs
+     * @return Found expenses, in the order of {@code expenseIds}
+     */
+    public List<Expense> getExpensesByIds(int[] expenseIds) {
+        List<Expense> expenses = new ArrayList<>();
+        if (expenseIds == null || expenseIds.length == 0) {
+            return expenses;
+        }
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<Integer, Expense> byId = new HashMap<>();
+
+        try {
+            for (int from = 0; from < expenseIds.length; from += MAX_IDS_PER_QUERY) {
+                int to = Math.min(from + MAX_IDS_PER_QUERY, expenseIds.length);
+                String[] args = new String[to - from];
+                StringBuilder query = new StringBuilder("SELECT " + EXPENSE_PROJECTION + " FROM " + TABLE_EXPENSES
+                        + " WHERE " + KEY_ID + " IN (");
+                for (int i = from; i < to; i++) {
+                    query.append(i == from ? "?" : ",?");
+                    args[i - from] = String.valueOf(expenseIds[i]);
+                }
+                query.append(")");
+
+                Cursor cursor = db.rawQuery(query.toString(), args);
+                if (cursor != null) {
+                    ExpenseColumns columns = new ExpenseColumns(cursor);
+                    while (cursor.moveToNext()) {
+                        Expense expense = cursorToExpense(cursor, columns);
+                        byId.put(expense.getId(), expense);
+                    }
+                    cursor.close();
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading expenses by ids: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        for (int id : expenseIds) {
+            Expense expense = byId.get(id);
+            if (expense != null) {
+                expenses.add(expense);
+            }
+        }
+        return expenses;
+    }
+
+    // =============== EXPENSE QUERIES (ExpenseQuery) ===============
+    // Lists, counts and sums all go through one translator. Every value is a bound argument, so
+    // the SQL text depends only on ExpenseQuery.shape(): it is built once per shape, and SQLite
+    // reuses the statement it compiled for that text on each pooled connection.
+
+    private static final int KIND_ROWS = 0;
+    private static final int KIND_COUNT = 1;
+    private static final int KIND_SUM_VND = 2;
+    private static final int KIND_CATEGORY_TOTALS = 3;
+    private static final int KIND_DAY_TOTALS = 4;
+
+    // Local calendar day of e.date; SQLite's 'localtime' and java.util.Calendar both follow the device zone
+    private static final String LOCAL_DAY_E = "strftime('%Y-%m-%d', e." + KEY_EXPENSE_DATE
+            + " / 1000, 'unixepoch', 'localtime')";
+
+    private static final int QUERY_SQL_CACHE_SIZE = 64;
+
+    // "kind|shape" -> SQL text, least recently used shapes evicted first
+    private static final Map<String, String> querySqlCache =
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > QUERY_SQL_CACHE_SIZE;
+                }
+            };
+
+    /**
+     * ✅ NEW: Expenses matching {@code query}, in its sort order (keyset page if it has a cursor/limit)
+     */
+    public List<Expense> queryExpenses(ExpenseQuery query) {
+        return queryExpenses(query, null);
+    }
+
+    /**
+     * ✅ NEW: Cancellable variant for search-as-you-type; returns an empty list once cancelled
+     */
+    public List<Expense> queryExpenses(ExpenseQuery query, CancellationSignal cancellationSignal) {
+        List<Expense> expenses = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        List<String> args = new ArrayList<>();
+        String sql = expenseQuerySql(KIND_ROWS, query, args);
+
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]), cancellationSignal)) {
+            if (cursor != null) {
+                ExpenseColumns columns = new ExpenseColumns(cursor);
+                while (cursor.moveToNext()) {
+                    expenses.add(cursorToExpense(cursor, columns));
+                }
+            }
+        } catch (OperationCanceledException e) {
+            // Superseded by a newer load; the caller drops this result anyway
+            expenses.clear();
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading expenses: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return expenses;
+    }
+
+    /**
+     * ✅ NEW: COUNT(*) of the rows matching {@code query} (sort, cursor and limit are ignored)
+     */
+    public int countExpenses(ExpenseQuery query) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        int count = 0;
+
+        List<String> args = new ArrayList<>();
+        String sql = expenseQuerySql(KIND_COUNT, query, args);
+
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]))) {
+            if (cursor != null && cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error counting expenses: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return count;
+    }
+
+    /**
+     * ✅ NEW: Total of the rows matching {@code query} in VND, each row at the rate of its date
+     */
+    public double sumExpensesVnd(ExpenseQuery query) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        double total = 0;
+
+        List<String> args = new ArrayList<>();
+        String sql = expenseQuerySql(KIND_SUM_VND, query, args);
+
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]))) {
+            if (cursor != null && cursor.moveToFirst()) {
+                if (!cursor.isNull(0)) {
+                    total = readAmount(cursor, 0);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error summing expenses: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return total;
+    }
+
+    /**
+     * ✅ NEW: Per-category VND totals of the rows matching {@code query}, largest first
+     *
+     * @return Ordered map category_id -> total amount in VND
+     */
+    public Map<Integer, Double> getCategoryTotals(ExpenseQuery query) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<Integer, Double> categoryTotals = new LinkedHashMap<>();
+
+        List<String> args = new ArrayList<>();
+        String sql = expenseQuerySql(KIND_CATEGORY_TOTALS, query, args);
+
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]))) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    categoryTotals.put(cursor.getInt(0), readAmount(cursor, 1));
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading category totals: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return categoryTotals;
+    }
+
+    /**
+     * ✅ NEW: Fill the subtotals of {@code sections} from {@code fromSection} on
+     * One grouped query over the days those sections span, with the list's own filters, so each
+     * header shows its whole day even when the day continues on a page that isn't loaded yet.
+     * Runs on the loading thread, before the sections are handed to the adapter.
+     */
+    public void loadSectionTotals(ExpenseQuery query, ExpenseSections sections, int fromSection,
+                                  CancellationSignal cancellationSignal) {
+        if (!sections.isSectioned() || fromSection >= sections.getSectionCount()) return;
+
+        long spanStart = Long.MAX_VALUE;
+        long spanEnd = Long.MIN_VALUE;
+        for (int section = fromSection; section < sections.getSectionCount(); section++) {
+            spanStart = Math.min(spanStart, sections.getDayStart(section));
+            spanEnd = Math.max(spanEnd, sections.getDayEnd(section));
+        }
+        // Intersect with the query's own range (0 = open end); the sort order doesn't change the SQL
+        long startDate = query.startDate > 0 ? Math.max(query.startDate, spanStart) : spanStart;
+        long endDate = query.endDate > 0 ? Math.min(query.endDate, spanEnd - 1) : spanEnd - 1;
+        ExpenseQuery days = query.toBuilder()
+                .dateRange(Math.max(1, startDate), endDate)
+                .sort(ExpenseQuery.SORT_DATE_NEWEST)
+                .limit(ExpenseQuery.NO_LIMIT)
+                .build();
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<String> args = new ArrayList<>();
+        String sql = expenseQuerySql(KIND_DAY_TOTALS, days, args);
+
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]), cancellationSignal)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    int section = sections.findSection(cursor.getLong(0), fromSection);
+                    if (section >= 0) {
+                        sections.setTotals(section, readAmount(cursor, 1), readAmount(cursor, 2));
+                    }
+                }
+            }
+        } catch (OperationCanceledException e) {
+            // Superseded by a newer load; the sections are dropped with it
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading section totals: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Row query exactly as queryExpenses runs it
+     */
+    @VisibleForTesting
+    static String buildExpenseQuery(ExpenseQuery query, List<String> args) {
+        return expenseQuerySql(KIND_ROWS, query, args);
+    }
+
+    /**
+     * Per-day subtotal query exactly as loadSectionTotals runs it
+     */
+    @VisibleForTesting
+    static String buildDayTotalsQuery(ExpenseQuery query, List<String> args) {
+        return expenseQuerySql(KIND_DAY_TOTALS, query, args);
+    }
+
+    /**
+     * SQL for {@code kind} + {@code query} (cached per shape); fills {@code args} in bind order
+     */
+    private static String expenseQuerySql(int kind, ExpenseQuery query, List<String> args) {
+        String key = kind + "|" + query.shape();
+        String sql;
+        synchronized (querySqlCache) {
+            sql = querySqlCache.get(key);
+        }
+
+        // Cache hit: walk the same clauses to collect the arguments only
+        SqlWriter writer = new SqlWriter(sql == null, args);
+        writeExpenseQuery(writer, kind, query);
+        if (sql == null) {
+            sql = writer.sql.toString();
+            synchronized (querySqlCache) {
+                querySqlCache.put(key, sql);
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Appends SQL text (unless it is already cached) and bound arguments side by side,
+     * so text and arguments can never get out of step
+     */
+    private static final class SqlWriter {
+        final StringBuilder sql;
+        final List<String> args;
+
+        SqlWriter(boolean writeSql, List<String> args) {
+            this.sql = writeSql ? new StringBuilder() : null;
+            this.args = args;
+        }
+
+        SqlWriter text(String text) {
+            if (sql != null) sql.append(text);
+            return this;
+        }
+
+        SqlWriter arg(long value) {
+            return arg(String.valueOf(value));
+        }
+
+        SqlWriter arg(String value) {
+            args.add(value);
+            return text("?");
+        }
+
+        // "(?,?,?)" for IN lists
+        SqlWriter argList(int[] values) {
+            text("(");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) text(",");
+                arg(values[i]);
+            }
+            return text(")");
+        }
+    }
+
+    private static void writeExpenseQuery(SqlWriter w, int kind, ExpenseQuery q) {
+        boolean byCategory = kind == KIND_ROWS && ExpenseQuery.SORT_CATEGORY.equals(q.sortOrder);
+
+        switch (kind) {
+            case KIND_COUNT:
+                w.text("SELECT COUNT(*) as count");
+                break;
+            case KIND_SUM_VND:
+                w.text("SELECT " + vndSum(inVnd("e")) + " as total");
+                break;
+            case KIND_CATEGORY_TOTALS:
+                w.text("SELECT e." + KEY_EXPENSE_CATEGORY_ID + ", " + vndSum(inVnd("e")) + " as total");
+                break;
+            case KIND_DAY_TOTALS:
+                // Any date of the day identifies its section; expenses and incomes summed apart
+                w.text("SELECT MIN(e." + KEY_EXPENSE_DATE + ") as day_date, "
+                        + vndSum("CASE WHEN e." + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_INCOME
+                        + " THEN 0 ELSE " + inVnd("e") + " END") + " as expense_total, "
+                        + vndSum("CASE WHEN e." + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_INCOME
+                        + " THEN " + inVnd("e") + " ELSE 0 END") + " as income_total");
+                break;
+            default:
+                w.text("SELECT " + EXPENSE_PROJECTION_E);
+                break;
+        }
+        if (byCategory) {
+            // Categories in rank order drive the loop; each one seeks (user_id, category_id, date)
+            w.text(" FROM " + TABLE_CATEGORIES + " c CROSS JOIN " + TABLE_EXPENSES + " e"
+                    + " ON e." + KEY_EXPENSE_CATEGORY_ID + "=c." + KEY_ID);
+        } else {
+            w.text(" FROM " + TABLE_EXPENSES + " e");
+        }
+
+        w.text(" WHERE e." + KEY_EXPENSE_USER_ID + "=").arg(q.userId);
+        writeInFilter(w, "e." + KEY_ID, q.ids);
+        writeInFilter(w, "e." + KEY_EXPENSE_TYPE, q.types);
+        writeInFilter(w, "e." + KEY_EXPENSE_CATEGORY_ID, q.categoryIds);
+        if (q.startDate > 0) {
+            w.text(" AND e." + KEY_EXPENSE_DATE + ">=").arg(q.startDate);
+        }
+        if (q.endDate > 0) {
+            w.text(" AND e." + KEY_EXPENSE_DATE + "<=").arg(q.endDate);
+        }
+        if (q.minAmount != null) {
+            w.text(" AND e." + KEY_EXPENSE_AMOUNT + ">=").arg(q.minAmount.getMinorUnits());
+        }
+        if (q.maxAmount != null) {
+            w.text(" AND e." + KEY_EXPENSE_AMOUNT + "<=").arg(q.maxAmount.getMinorUnits());
+        }
+        if (q.hasSearch) {
+            // Description words via the FTS index, OR a category whose localized label matched
+            w.text(" AND (");
+            if (q.searchMatch != null) {
+                w.text("e." + KEY_ID + " IN (SELECT docid FROM " + TABLE_EXPENSES_FTS
+                        + " WHERE " + TABLE_EXPENSES_FTS + " MATCH ").arg(q.searchMatch).text(")");
+            } else {
+                w.text("0");
+            }
+            if (q.searchCategoryIds.length > 0) {
+                w.text(" OR e." + KEY_EXPENSE_CATEGORY_ID + " IN ").argList(q.searchCategoryIds);
+            }
+            w.text(")");
+        }
+
+        switch (kind) {
+            case KIND_ROWS:
+                if (q.hasCursor) {
+                    writeKeyset(w, q);
+                }
+                w.text(" ORDER BY " + orderByClause(q.sortOrder));
+                if (q.limit > ExpenseQuery.NO_LIMIT) {
+                    w.text(" LIMIT ").arg(q.limit);
+                }
+                break;
+            case KIND_CATEGORY_TOTALS:
+                w.text(" GROUP BY e." + KEY_EXPENSE_CATEGORY_ID + " ORDER BY total DESC");
+                break;
+            case KIND_DAY_TOTALS:
+                w.text(" GROUP BY " + LOCAL_DAY_E);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // One value: "col=?" (keeps the equality seek); several: "col IN (?,?)"
+    private static void writeInFilter(SqlWriter w, String column, int[] values) {
+        if (values.length == 1) {
+            w.text(" AND " + column + "=").arg(values[0]);
+        } else if (values.length > 1) {
+            w.text(" AND " + column + " IN ").argList(values);
+        }
+    }
+
+    private static String orderByClause(String sortOrder) {
+        switch (sortOrder) {
+            case ExpenseQuery.SORT_DATE_OLDEST:
+                return "e." + KEY_EXPENSE_DATE + " ASC, e." + KEY_ID + " ASC";
+            case ExpenseQuery.SORT_AMOUNT_HIGHEST:
+                return "e." + KEY_EXPENSE_AMOUNT + " DESC, e." + KEY_ID + " DESC";
+            case ExpenseQuery.SORT_AMOUNT_LOWEST:
+                return "e." + KEY_EXPENSE_AMOUNT + " ASC, e." + KEY_ID + " ASC";
+            case ExpenseQuery.SORT_CATEGORY:
+                return "c." + KEY_CATEGORY_SORT_RANK + ", c." + KEY_ID + ", e." + KEY_EXPENSE_DATE + " DESC, e."
+                        + KEY_ID + " DESC";
+            case ExpenseQuery.SORT_DATE_NEWEST:
+            default:
+                return "e." + KEY_EXPENSE_DATE + " DESC, e." + KEY_ID + " DESC";
+        }
+    }
+
+    /**
+     * Rows strictly after the query's cursor in its sort order
+     * "key <= ? AND (key < ? OR id < ?)" keeps the seek on the index prefix for the key column
+     */
+    private static void writeKeyset(SqlWriter w, ExpenseQuery q) {
+        switch (q.sortOrder) {
+            case ExpenseQuery.SORT_DATE_OLDEST:
+                writeKeyset(w, "e." + KEY_EXPENSE_DATE, ">", q.afterDate, q.afterId);
+                break;
+            case ExpenseQuery.SORT_AMOUNT_HIGHEST:
+                writeKeyset(w, "e." + KEY_EXPENSE_AMOUNT, "<", q.afterAmount, q.afterId);
+                break;
+            case ExpenseQuery.SORT_AMOUNT_LOWEST:
+                writeKeyset(w, "e." + KEY_EXPENSE_AMOUNT, ">", q.afterAmount, q.afterId);
+                break;
+            case ExpenseQuery.SORT_CATEGORY: {
+                // (rank, category id) of the last row, then newest first inside that category
+                String rank = "(SELECT " + KEY_CATEGORY_SORT_RANK + " FROM " + TABLE_CATEGORIES
+                        + " WHERE " + KEY_ID + "=";
+                w.text(" AND c." + KEY_CATEGORY_SORT_RANK + ">=" + rank).arg(q.afterCategoryId).text(")")
+                        .text(" AND (c." + KEY_CATEGORY_SORT_RANK + ">" + rank).arg(q.afterCategoryId).text(")")
+                        .text(" OR c." + KEY_ID + ">").arg(q.afterCategoryId)
+                        .text(" OR (c." + KEY_ID + "=").arg(q.afterCategoryId);
+                writeKeyset(w, "e." + KEY_EXPENSE_DATE, "<", q.afterDate, q.afterId);
+                w.text("))");
+                break;
+            }
+            case ExpenseQuery.SORT_DATE_NEWEST:
+            default:
+                writeKeyset(w, "e." + KEY_EXPENSE_DATE, "<", q.afterDate, q.afterId);
+                break;
+        }
+    }
+
+    private static void writeKeyset(SqlWriter w, String column, String direction, long value, int id) {
+        w.text(" AND " + column + direction + "=").arg(value)
+                .text(" AND (" + column + direction).arg(value)
+                .text(" OR e." + KEY_ID + direction).arg(id).text(")");
+    }
+
+    // =============== RANGE QUERIES ===============
+    // type: Expense.TYPE_ALL / TYPE_EXPENSE / TYPE_INCOME, categoryId: 0 = all categories
+    // startDate/endDate are inclusive, served by the (user_id, date, ...) index
+
+    private static ExpenseQuery rangeQuery(int userId, long startDate, long endDate, int type, int categoryId) {
+        return ExpenseQuery.forUser(userId)
+                .type(type)
+                .category(categoryId)
+                .dateRange(startDate, endDate)
+                .build();
+    }
+
+    /**
+     * ✅ NEW: Expenses of one user inside [startDate, endDate], newest first
+     */
+    public List<Expense> getExpensesInRange(int userId, long startDate, long endDate,
+                                            int type, int categoryId) {
+        return queryExpenses(rangeQuery(userId, startDate, endDate, type, categoryId));
+    }
+
+    /**
+     * ✅ NEW: SUM(amount) inside [startDate, endDate], converted to VND
+     */
+    public double sumInRange(int userId, long startDate, long endDate, int type, int categoryId) {
+        return sumExpensesVnd(rangeQuery(userId, startDate, endDate, type, categoryId));
+    }
+
+    /**
+     * ✅ NEW: COUNT(*) inside [startDate, endDate]
+     */
+    public int countInRange(int userId, long startDate, long endDate, int type, int categoryId) {
+        return countExpenses(rangeQuery(userId, startDate, endDate, type, categoryId));
+    }
+
+    /**
+     * ✅ NEW: Per-category totals inside [startDate, endDate], largest first
+     *
+     * @return Ordered map category_id -> total amount in VND
+     */
+    public Map<Integer, Double> getCategoryTotalsInRange(int userId, long startDate, long endDate, int type) {
+        return getCategoryTotals(rangeQuery(userId, startDate, endDate, type, 0));
+    }
+
+    public int deleteExpense(int expenseId) {
+        SQLiteStatement delete = getCachedStatement(SQL_DELETE_EXPENSE);
+        int rowsDeleted;
+        synchronized (delete) {
+            delete.bindLong(1, expenseId);
+            rowsDeleted = delete.executeUpdateDelete();
+        }
+        if (rowsDeleted > 0) {
+            expensesChanged();
+        }
+        return rowsDeleted;
+    }
+
+    /**
+     * ✅ DELETE ALL FUTURE OCCURRENCES of a recurring expense
+     * This deletes:
+     * 1. The master recurring expense (stops recurrence)
+     * 2. All future occurrences (date >= current expense date) in the same group
+     *
+     * @param expense The expense being deleted
+     * @return The complete rows deleted (for Undo / the list), read in the same transaction as
+     *         the deletes; empty if nothing was deleted
+     */
+    public List<Expense> deleteAllFutureOccurrences(Expense expense) {
+        List<Expense> deleted = new ArrayList<>();
+        if (expense.getRecurringGroupId() == 0) {
+            Log.w(TAG, "Cannot delete future: expense has no group ID");
+            if (deleteExpense(expense.getId()) > 0) {
+                deleted.add(expense);
+            }
+            return deleted;
+        }
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        String groupId = String.valueOf(expense.getRecurringGroupId());
+        int totalDeleted = 0;
+
+        try {
+            db.beginTransaction();
+
+            // ✅ FIX: Read the rows under the delete's own transaction, so Undo restores exactly them
+            try (Cursor cursor = db.rawQuery(QUERY_FUTURE_OCCURRENCES, new String[]{
+                    groupId, groupId, String.valueOf(expense.getDate())})) {
+                ExpenseColumns columns = new ExpenseColumns(cursor);
+                while (cursor.moveToNext()) {
+                    deleted.add(cursorToExpense(cursor, columns));
+                }
+            }
+
+            // 1. Delete the master recurring expense
+            int masterDeleted = db.delete(TABLE_EXPENSES,
+                    KEY_ID + "=? AND " + KEY_EXPENSE_IS_RECURRING + "=1",
+                    new String[]{groupId});
+
+            totalDeleted += masterDeleted;
+
+            // 2. Delete all FUTURE occurrences in the same group (date >= current expense date)
+            // Only occurrences, future or current
+            String[] whereArgs = new String[]{
+                    groupId,
+                    String.valueOf(expense.getDate())
+            };
+
+            int futureDeleted = db.delete(TABLE_EXPENSES, WHERE_FUTURE_OCCURRENCES, whereArgs);
+            totalDeleted += futureDeleted;
+
+            db.setTransactionSuccessful();
+            expensesChanged();
+            Log.d(TAG, "Deleted all future occurrences: " + totalDeleted + " rows " +
+                    "(Master: " + masterDeleted + ", Future: " + futureDeleted + ")");
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error deleting future occurrences: " + e.getMessage());
+            e.printStackTrace();
+            deleted.clear();
+        } finally {
+            db.endTransaction();
+        }
+
+        return deleted;
+    }
+
+    public long insertBudget(Budget budget) {
+        SQLiteStatement insert = getCachedStatement(SQL_INSERT_BUDGET);
+        try {
+            synchronized (insert) {
+                insert.bindLong(1, budget.getUserId());
+                insert.bindLong(2, budget.getCategoryId());
+                insert.bindLong(3, budget.getMoney().getMinorUnits());
+                insert.bindLong(4, budget.getPeriodStart());
+                insert.bindLong(5, budget.getPeriodEnd());
+                insert.bindLong(6, budget.getCreatedAt());
+                return insert.executeInsert();
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "Error inserting budget: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    public List<Budget> getBudgetsByUser(int userId) {
+        List<Budget> budgets = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_BUDGETS_BY_USER, new String[]{String.valueOf(userId)});
+        if (cursor != null && cursor.moveToFirst()) {
+            BudgetColumns columns = new BudgetColumns(cursor);
+            do {
+                budgets.add(cursorToBudget(cursor, columns));
+            } while (cursor.moveToNext());
+            cursor.close();
+        }
+        return budgets;
+    }
+
+    /**
+     * ✅ NEW: Single budget by primary key
+     *
+     * @param budgetId Budget ID
+     * @return Budget or null if not found
+     */
+    public Budget getBudgetById(int budgetId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Budget budget = null;
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_BUDGET_BY_ID, new String[]{String.valueOf(budgetId)});
+            if (cursor != null) {
+                if (cursor.moveToFirst()) {
+                    budget = cursorToBudget(cursor, new BudgetColumns(cursor));
+                }
+                cursor.close();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading budget " + budgetId + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return budget;
+    }
+
+    /**
+     * ✅ NEW: Spent/limit/percentage for every budget of a user in ONE statement
+     * LEFT JOIN keeps budgets without expenses (spent = 0); category_id 0 = total budget (all categories)
+     *
+     * @param userId User ID
+     * @return Budgets ordered by period end DESC, each with its spent amount
+     */
+    public List<BudgetProgress> getBudgetProgressForUser(int userId) {
+        List<BudgetProgress> progressList = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_BUDGET_PROGRESS, new String[]{String.valueOf(userId)});
+            if (cursor != null) {
+                BudgetColumns columns = new BudgetColumns(cursor);
+                int spentIndex = cursor.getColumnIndexOrThrow("spent");
+                while (cursor.moveToNext()) {
+                    progressList.add(new BudgetProgress(cursorToBudget(cursor, columns), Money.ofMinorUnits(cursor.getLong(spentIndex))));
+                }
+                cursor.close();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading budget progress: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return progressList;
+    }
+
+    public int updateBudget(Budget budget) {
+        SQLiteStatement update = getCachedStatement(SQL_UPDATE_BUDGET);
+        try {
+            synchronized (update) {
+                update.bindLong(1, budget.getCategoryId());
+                update.bindLong(2, budget.getMoney().getMinorUnits());
+                update.bindLong(3, budget.getPeriodStart());
+                update.bindLong(4, budget.getPeriodEnd());
+                update.bindLong(5, budget.getId());
+                return update.executeUpdateDelete();
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "Error updating budget: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public int deleteBudget(int budgetId) {
+        SQLiteStatement delete = getCachedStatement(SQL_DELETE_BUDGET);
+        synchronized (delete) {
+            delete.bindLong(1, budgetId);
+            return delete.executeUpdateDelete();
+        }
+    }
+
+    private static User cursorToUser(Cursor cursor, UserColumns columns) {
+        return new User(
+                cursor.getInt(columns.id),
+                cursor.getString(columns.email),
+                cursor.getString(columns.passwordHash),
+                cursor.getString(columns.name),
+                cursor.getString(columns.address),
+                cursor.getString(columns.phone),
+                cursor.getString(columns.avatarPath),
+                cursor.getInt(columns.darkMode) == 1,
+                cursor.getLong(columns.createdAt)
+        );
+    }
+
+    private static Category cursorToCategory(Cursor cursor, CategoryColumns columns) {
+        return new Category(
+                cursor.getInt(columns.id),
+                cursor.getString(columns.name),
+                cursor.getString(columns.icon)
+        );
+    }
+
+    private static Budget cursorToBudget(Cursor cursor, BudgetColumns columns) {
+        return new Budget(
+                cursor.getInt(columns.id),
+                cursor.getInt(columns.userId),
+                cursor.getInt(columns.categoryId),
+                Money.ofMinorUnits(cursor.getLong(columns.amount)),
+                cursor.getLong(columns.periodStart),
+                cursor.getLong(columns.periodEnd),
+                cursor.getLong(columns.createdAt)
+        );
+    }
+
+    private static final class UserColumns {
+        final int id;
+        final int email;
+        final int passwordHash;
+        final int name;
+        final int address;
+        final int phone;
+        final int avatarPath;
+        final int darkMode;
+        final int createdAt;
+
+        UserColumns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(KEY_ID);
+            email = cursor.getColumnIndexOrThrow(KEY_USER_EMAIL);
+            passwordHash = cursor.getColumnIndexOrThrow(KEY_USER_PASSWORD);
+            name = cursor.getColumnIndexOrThrow(KEY_USER_NAME);
+            address = cursor.getColumnIndexOrThrow(KEY_USER_ADDRESS);
+            phone = cursor.getColumnIndexOrThrow(KEY_USER_PHONE);
+            avatarPath = cursor.getColumnIndexOrThrow(KEY_USER_AVATAR);
+            darkMode = cursor.getColumnIndexOrThrow(KEY_USER_DARK_MODE);
+            createdAt = cursor.getColumnIndexOrThrow(KEY_CREATED_AT);
+        }
+    }
+
+    private static final class CategoryColumns {
+        final int id;
+        final int name;
+        final int icon;
+
+        CategoryColumns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(KEY_ID);
+            name = cursor.getColumnIndexOrThrow(KEY_CATEGORY_NAME);
+            icon = cursor.getColumnIndexOrThrow(KEY_CATEGORY_ICON);
+        }
+    }
+
+    private static final class BudgetColumns {
+        final int id;
+        final int userId;
+        final int categoryId;
+        final int amount;
+        final int periodStart;
+        final int periodEnd;
+        final int createdAt;
+
+        BudgetColumns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(KEY_ID);
+            userId = cursor.getColumnIndexOrThrow(KEY_BUDGET_USER_ID);
+            categoryId = cursor.getColumnIndexOrThrow(KEY_BUDGET_CATEGORY_ID);
+            amount = cursor.getColumnIndexOrThrow(KEY_BUDGET_AMOUNT);
+            periodStart = cursor.getColumnIndexOrThrow(KEY_BUDGET_PERIOD_START);
+            periodEnd = cursor.getColumnIndexOrThrow(KEY_BUDGET_PERIOD_END);
+            createdAt = cursor.getColumnIndexOrThrow(KEY_CREATED_AT);
+        }
     }
 
     // ✅ NEW OPTIMIZED METHODS - Add to DatabaseHelper.java
@@ -1200,12 +3043,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         try {
             // Use SQL SUM instead of Java loop
-            String query = "SELECT SUM(" + KEY_EXPENSE_AMOUNT + ") as total FROM " + TABLE_EXPENSES
-                    + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
-                    + " AND " + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_INCOME
-                    + " AND " + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
-
-            Cursor cursor = db.rawQuery(query, new String[]{
+            Cursor cursor = db.rawQuery(QUERY_TOTAL_INCOME, new String[]{
                     String.valueOf(userId),
                     String.valueOf(startDate),
                     String.valueOf(endDate)
@@ -1214,7 +3052,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null && cursor.moveToFirst()) {
                 int totalIndex = cursor.getColumnIndex("total");
                 if (totalIndex >= 0 && !cursor.isNull(totalIndex)) {
-                    total = cursor.getDouble(totalIndex);
+                    total = readAmount(cursor, totalIndex);
                 }
                 cursor.close();
             }
@@ -1239,12 +3077,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         double total = 0;
 
         try {
-            String query = "SELECT SUM(" + KEY_EXPENSE_AMOUNT + ") as total FROM " + TABLE_EXPENSES
-                    + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
-                    + " AND " + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_EXPENSE
-                    + " AND " + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
-
-            Cursor cursor = db.rawQuery(query, new String[]{
+            Cursor cursor = db.rawQuery(QUERY_TOTAL_EXPENSE, new String[]{
                     String.valueOf(userId),
                     String.valueOf(startDate),
                     String.valueOf(endDate)
@@ -1253,7 +3086,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null && cursor.moveToFirst()) {
                 int totalIndex = cursor.getColumnIndex("total");
                 if (totalIndex >= 0 && !cursor.isNull(totalIndex)) {
-                    total = cursor.getDouble(totalIndex);
+                    total = readAmount(cursor, totalIndex);
                 }
                 cursor.close();
             }
@@ -1278,11 +3111,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         int count = 0;
 
         try {
-            String query = "SELECT COUNT(*) as count FROM " + TABLE_EXPENSES
-                    + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
-                    + " AND " + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
-
-            Cursor cursor = db.rawQuery(query, new String[]{
+            Cursor cursor = db.rawQuery(QUERY_COUNT_IN_RANGE, new String[]{
                     String.valueOf(userId),
                     String.valueOf(startDate),
                     String.valueOf(endDate)
@@ -1309,33 +3138,32 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param userId User ID
      * @param startDate Month start timestamp
      * @param endDate Month end timestamp
-     * @return Map with category_id -> total_amount
+     * @return Map with category_id -> total_amount (VND)
      */
     public Map<Integer, Double> getTopCategoryOptimized(int userId, long startDate, long endDate) {
+        return getTopCategoryOptimized(userId, startDate, endDate, Currency.ID_VND);
+    }
+
+    /**
+     * ✅ v10: Same as above, totalled in {@code targetCurrencyId} (rates applied in SQL)
+     */
+    public Map<Integer, Double> getTopCategoryOptimized(int userId, long startDate, long endDate,
+                                                        int targetCurrencyId) {
         SQLiteDatabase db = this.getReadableDatabase();
         Map<Integer, Double> categoryTotals = new HashMap<>();
 
         try {
             // GROUP BY category and SUM amounts, ORDER BY total DESC
-            String query = "SELECT " + KEY_EXPENSE_CATEGORY_ID + ", "
-                    + "SUM(" + KEY_EXPENSE_AMOUNT + ") as total "
-                    + "FROM " + TABLE_EXPENSES
-                    + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
-                    + " AND " + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_EXPENSE
-                    + " AND " + KEY_EXPENSE_DATE + " BETWEEN ? AND ?"
-                    + " GROUP BY " + KEY_EXPENSE_CATEGORY_ID
-                    + " ORDER BY total DESC"
-                    + " LIMIT 1";
-
-            Cursor cursor = db.rawQuery(query, new String[]{
+            Cursor cursor = db.rawQuery(QUERY_TOP_CATEGORY, new String[]{
                     String.valueOf(userId),
                     String.valueOf(startDate),
-                    String.valueOf(endDate)
+                    String.valueOf(endDate),
+                    String.valueOf(targetCurrencyId)
             });
 
             if (cursor != null && cursor.moveToFirst()) {
                 int categoryId = cursor.getInt(cursor.getColumnIndexOrThrow(KEY_EXPENSE_CATEGORY_ID));
-                double total = cursor.getDouble(cursor.getColumnIndexOrThrow("total"));
+                double total = readAmount(cursor, cursor.getColumnIndexOrThrow("total"));
                 categoryTotals.put(categoryId, total);
                 cursor.close();
             }
@@ -1354,39 +3182,38 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param userId User ID
      * @param startDate Month start timestamp
      * @param endDate Month end timestamp
-     * @return DashboardData object containing all stats
+     * @return DashboardData object containing all stats (VND)
      */
     public DashboardData getDashboardDataOptimized(int userId, long startDate, long endDate) {
+        return getDashboardDataOptimized(userId, startDate, endDate, Currency.ID_VND);
+    }
+
+    /**
+     * ✅ v10: Same as above, totalled in {@code targetCurrencyId} (rates applied in SQL)
+     */
+    public DashboardData getDashboardDataOptimized(int userId, long startDate, long endDate,
+                                                   int targetCurrencyId) {
         SQLiteDatabase db = this.getReadableDatabase();
         DashboardData data = new DashboardData();
 
         try {
             // Single query to get income, expense, and count
-            String query = "SELECT "
-                    + "SUM(CASE WHEN " + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_INCOME
-                    + " THEN " + KEY_EXPENSE_AMOUNT + " ELSE 0 END) as total_income, "
-                    + "SUM(CASE WHEN " + KEY_EXPENSE_TYPE + "=" + Expense.TYPE_EXPENSE
-                    + " THEN " + KEY_EXPENSE_AMOUNT + " ELSE 0 END) as total_expense, "
-                    + "COUNT(*) as expense_count "
-                    + "FROM " + TABLE_EXPENSES
-                    + " WHERE " + KEY_EXPENSE_USER_ID + "=?"
-                    + " AND " + KEY_EXPENSE_DATE + " BETWEEN ? AND ?";
-
-            Cursor cursor = db.rawQuery(query, new String[]{
+            Cursor cursor = db.rawQuery(QUERY_DASHBOARD, new String[]{
                     String.valueOf(userId),
                     String.valueOf(startDate),
-                    String.valueOf(endDate)
+                    String.valueOf(endDate),
+                    String.valueOf(targetCurrencyId)
             });
 
             if (cursor != null && cursor.moveToFirst()) {
-                data.totalIncome = cursor.getDouble(cursor.getColumnIndexOrThrow("total_income"));
-                data.totalExpense = cursor.getDouble(cursor.getColumnIndexOrThrow("total_expense"));
+                data.totalIncome = readAmount(cursor, cursor.getColumnIndexOrThrow("total_income"));
+                data.totalExpense = readAmount(cursor, cursor.getColumnIndexOrThrow("total_expense"));
                 data.expenseCount = cursor.getInt(cursor.getColumnIndexOrThrow("expense_count"));
                 cursor.close();
             }
 
             // Get top category (separate query due to GROUP BY)
-            data.topCategoryMap = getTopCategoryOptimized(userId, startDate, endDate);
+            data.topCategoryMap = getTopCategoryOptimized(userId, startDate, endDate, targetCurrencyId);
 
         } catch (Exception e) {
             Log.e(TAG, "Error getting dashboard data: " + e.getMessage());
@@ -1396,6 +3223,144 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return data;
     }
 
+    /**
+     * ✅ FIX: Re-bucket monthly_summary if the device time zone changed since it was built
+     * The triggers pick a row's month with SQLite 'localtime' when the row is written, while readers
+     * pick months with java.util.Calendar (toYearMonth). Both follow the device zone, so they only
+     * disagree after a zone change, which moves rows near midnight of the 1st into another month.
+     * Called before every summary read; a plain string compare unless the zone actually changed.
+     */
+    private void ensureSummaryTimeZone() {
+        String zone = TimeZone.getDefault().getID();
+        if (zone.equals(summaryTimeZone)) return;
+
+        synchronized (summaryZoneLock) {
+            // Open first: onCreate/onUpgrade record the zone they bucketed in (markSummaryTimeZone)
+            SQLiteDatabase db = this.getWritableDatabase();
+            if (zone.equals(metaPrefs.getString(PREF_SUMMARY_TIME_ZONE, null))) {
+                summaryTimeZone = zone;
+                return;
+            }
+
+            try {
+                db.beginTransaction();
+                backfillMonthlySummary(db);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e(TAG, "Error rebuilding monthly summary: " + e.getMessage());
+                e.printStackTrace();
+                return; // Retried by the next summary read
+            } finally {
+                db.endTransaction();
+            }
+
+            metaPrefs.edit().putString(PREF_SUMMARY_TIME_ZONE, zone).apply();
+            summaryTimeZone = zone;
+            Log.d(TAG, "Monthly summary re-bucketed for time zone " + zone);
+        }
+    }
+
+    /**
+     * Record that monthly_summary was just created or backfilled in the current zone,
+     * so the first summary read after install/upgrade doesn't re-bucket it again
+     */
+    private void markSummaryTimeZone() {
+        String zone = TimeZone.getDefault().getID();
+        metaPrefs.edit().putString(PREF_SUMMARY_TIME_ZONE, zone).apply();
+        summaryTimeZone = zone;
+    }
+
+    /**
+     * ✅ NEW: Dashboard stats for one month read from monthly_summary
+     * Cost depends on the number of categories, not on the number of expense rows.
+     *
+     * @param userId User ID
+     * @param yearMonth Month as yyyymm (see toYearMonth)
+     * @param targetCurrencyId Currency the totals are expressed in (rates applied in SQL)
+     * @return DashboardData object containing all stats
+     */
+    public DashboardData getDashboardDataForMonth(int userId, int yearMonth, int targetCurrencyId) {
+        ensureSummaryTimeZone();
+        SQLiteDatabase db = this.getReadableDatabase();
+        DashboardData data = new DashboardData();
+        String[] args = new String[]{
+                String.valueOf(userId), String.valueOf(yearMonth), String.valueOf(targetCurrencyId)
+        };
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_SUMMARY_DASHBOARD, args);
+            if (cursor != null) {
+                if (cursor.moveToFirst()) {
+                    data.totalIncome = readAmount(cursor, cursor.getColumnIndexOrThrow("total_income"));
+                    data.totalExpense = readAmount(cursor, cursor.getColumnIndexOrThrow("total_expense"));
+                    data.expenseCount = cursor.getInt(cursor.getColumnIndexOrThrow("expense_count"));
+                }
+                cursor.close();
+            }
+
+            cursor = db.rawQuery(QUERY_SUMMARY_TOP_CATEGORY, args);
+            if (cursor != null) {
+                if (cursor.moveToFirst()) {
+                    data.topCategoryMap.put(
+                            cursor.getInt(cursor.getColumnIndexOrThrow(KEY_SUMMARY_CATEGORY_ID)),
+                            readAmount(cursor, cursor.getColumnIndexOrThrow("total")));
+                }
+                cursor.close();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting monthly summary: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return data;
+    }
+
+    /**
+     * ✅ NEW: Per-month totals of one type from monthly_summary (trend chart)
+     *
+     * @param fromYearMonth First month (yyyymm, inclusive)
+     * @param toYearMonth Last month (yyyymm, inclusive)
+     * @param type Expense.TYPE_EXPENSE or Expense.TYPE_INCOME
+     * @return yyyymm -> total in VND; months without rows are absent
+     */
+    public Map<Integer, Double> getMonthlyTotals(int userId, int fromYearMonth, int toYearMonth, int type) {
+        return getMonthlyTotals(userId, fromYearMonth, toYearMonth, type, Currency.ID_VND);
+    }
+
+    /**
+     * ✅ v10: Same as above, totalled in {@code targetCurrencyId} (rates applied in SQL)
+     */
+    public Map<Integer, Double> getMonthlyTotals(int userId, int fromYearMonth, int toYearMonth, int type,
+                                                 int targetCurrencyId) {
+        ensureSummaryTimeZone();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<Integer, Double> totals = new HashMap<>();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_SUMMARY_MONTHLY_TOTALS, new String[]{
+                    String.valueOf(userId),
+                    String.valueOf(fromYearMonth),
+                    String.valueOf(toYearMonth),
+                    String.valueOf(type),
+                    String.valueOf(targetCurrencyId)
+            });
+
+            if (cursor != null) {
+                int monthIndex = cursor.getColumnIndexOrThrow(KEY_SUMMARY_YEAR_MONTH);
+                int totalIndex = cursor.getColumnIndexOrThrow("total");
+                while (cursor.moveToNext()) {
+                    totals.put(cursor.getInt(monthIndex), readAmount(cursor, totalIndex));
+                }
+                cursor.close();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting monthly totals: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return totals;
+    }
+
     /**
      * Helper class to hold dashboard statistics
      */
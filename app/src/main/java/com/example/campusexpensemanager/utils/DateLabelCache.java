@@ -0,0 +1,111 @@
+package com.example.campusexpensemanager.utils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * DateLabelCache - Day-bucketed date labels shared by the expense list, charts and exports
+ * Labels only depend on the local calendar day, so each (pattern, epoch day) is formatted once
+ * and reused while scrolling or exporting a long history.
+ * Dropped when LocaleHelper changes the language; a default locale/time zone change is also
+ * detected on the next call.
+ */
+public final class DateLabelCache {
+
+    public static final String PATTERN_DATE = "dd MMM yyyy";   // list rows, CSV
+    public static final String PATTERN_DAY_MONTH = "dd MMM";   // PDF rows
+    public static final String PATTERN_MONTH = "MMM";          // chart axis
+    public static final String PATTERN_DAY_HEADER = "EEEE, dd MMM yyyy"; // list section headers
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int MAX_DAYS_PER_PATTERN = 1024;
+
+    private static volatile Labels labels;
+
+    private DateLabelCache() {
+    }
+
+    /**
+     * @return {@code new SimpleDateFormat(pattern, Locale.getDefault()).format(timeMillis)},
+     * cached per local day. Only for date patterns (no time fields).
+     */
+    public static String format(String pattern, long timeMillis) {
+        return getLabels().get(pattern).format(timeMillis);
+    }
+
+    /**
+     * Drop cached labels; called by LocaleHelper when the language changes
+     */
+    public static void invalidate() {
+        labels = null;
+    }
+
+    private static Labels getLabels() {
+        Locale locale = Locale.getDefault();
+        TimeZone timeZone = TimeZone.getDefault();
+        Labels current = labels;
+        if (current == null || !current.locale.equals(locale) || !current.timeZone.hasSameRules(timeZone)) {
+            current = new Labels(locale, timeZone);
+            labels = current;
+        }
+        return current;
+    }
+
+    /**
+     * Per-pattern caches for one locale and time zone
+     */
+    private static final class Labels {
+        final Locale locale;
+        final TimeZone timeZone;
+        private final Map<String, PatternCache> byPattern = new HashMap<>();
+
+        Labels(Locale locale, TimeZone timeZone) {
+            this.locale = locale;
+            this.timeZone = (TimeZone) timeZone.clone();
+        }
+
+        synchronized PatternCache get(String pattern) {
+            PatternCache cache = byPattern.get(pattern);
+            if (cache == null) {
+                cache = new PatternCache(new SimpleDateFormat(pattern, locale), timeZone);
+                byPattern.put(pattern, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * epoch day (local) -> label, least recently used days evicted first
+     */
+    private static final class PatternCache {
+        private final SimpleDateFormat format;
+        private final TimeZone timeZone;
+        private final Map<Long, String> byDay = new LinkedHashMap<Long, String>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > MAX_DAYS_PER_PATTERN;
+            }
+        };
+
+        PatternCache(SimpleDateFormat format, TimeZone timeZone) {
+            this.format = format;
+            this.timeZone = timeZone;
+            format.setTimeZone(timeZone);
+        }
+
+        synchronized String format(long timeMillis) {
+            long epochDay = Math.floorDiv(timeMillis + timeZone.getOffset(timeMillis), DAY_MILLIS);
+            String label = byDay.get(epochDay);
+            if (label == null) {
+                label = format.format(new Date(timeMillis));
+                byDay.put(epochDay, label);
+            }
+            return label;
+        }
+    }
+}
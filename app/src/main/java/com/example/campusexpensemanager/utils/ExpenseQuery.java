@@ -0,0 +1,326 @@
+package com.example.campusexpensemanager.utils;
+
+import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.models.Money;
+
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * ExpenseQuery - Immutable description of an expense list/count/sum query
+ * Criteria: user, expense IDs, type set, category set, date range, amount range, search text, sort order,
+ * page size and keyset cursor. DatabaseHelper turns it into one parameterized statement in which
+ * every value is a bound argument, so queries with the same shape (see {@link #shape()}) share
+ * one SQL string - and with it the compiled statement SQLite keeps per connection.
+ */
+public final class ExpenseQuery {
+
+    // Sort orders (ExpenseListActivity sort spinner)
+    public static final String SORT_DATE_NEWEST = "date_newest";
+    public static final String SORT_DATE_OLDEST = "date_oldest";
+    public static final String SORT_AMOUNT_HIGHEST = "amount_highest";
+    public static final String SORT_AMOUNT_LOWEST = "amount_lowest";
+    public static final String SORT_CATEGORY = "category";
+
+    public static final int NO_LIMIT = 0;
+
+    private static final int[] NONE = new int[0];
+
+    final int userId;
+    final int[] ids;                // empty = any row; set = only these rows (patching after an edit)
+    final int[] types;              // empty = all types
+    final int[] categoryIds;        // empty = all categories
+    final long startDate;           // 0 = unbounded, inclusive
+    final long endDate;             // 0 = unbounded, inclusive
+    final Money minAmount;          // null = unbounded; stored currency, like the amount sort
+    final Money maxAmount;
+    final String searchText;
+    final String searchMatch;       // FTS MATCH expression, null = no description match
+    final int[] searchCategoryIds;  // categories whose label matched the search text
+    final boolean hasSearch;
+    final String sortOrder;
+    final int limit;
+
+    // Keyset cursor: the last row of the previous page
+    final boolean hasCursor;
+    final int afterId;
+    final int afterCategoryId;
+    final long afterDate;
+    final long afterAmount;         // minor units
+
+    private final String shape;
+
+    private ExpenseQuery(Builder builder) {
+        this.userId = builder.userId;
+        this.ids = builder.ids;
+        this.types = builder.types;
+        this.categoryIds = builder.categoryIds;
+        this.startDate = builder.startDate;
+        this.endDate = builder.endDate;
+        this.minAmount = builder.minAmount;
+        this.maxAmount = builder.maxAmount;
+        this.searchText = builder.searchText;
+        this.hasSearch = searchText != null && !searchText.trim().isEmpty();
+        this.searchMatch = hasSearch ? toFtsPrefixQuery(searchText) : null;
+        this.searchCategoryIds = hasSearch ? builder.searchCategoryIds : NONE;
+        this.sortOrder = builder.sortOrder;
+        this.limit = builder.limit;
+        this.hasCursor = builder.after != null;
+        this.afterId = hasCursor ? builder.after.getId() : 0;
+        this.afterCategoryId = hasCursor ? builder.after.getCategoryId() : 0;
+        this.afterDate = hasCursor ? builder.after.getDate() : 0;
+        this.afterAmount = hasCursor ? builder.after.getMoney().getMinorUnits() : 0;
+        this.shape = computeShape();
+    }
+
+    public static Builder forUser(int userId) {
+        return new Builder(userId);
+    }
+
+    /**
+     * @return Builder starting from this query's criteria (e.g. to add a cursor for the next page)
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public String getSortOrder() {
+        return sortOrder;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return true for the chronological orders (the list shows day headers for them)
+     */
+    public boolean isDateOrder() {
+        return SORT_DATE_NEWEST.equals(sortOrder) || SORT_DATE_OLDEST.equals(sortOrder);
+    }
+
+    /**
+     * Structure of the statement without its values: two queries with the same shape produce
+     * the same SQL text and differ only in bound arguments
+     */
+    public String shape() {
+        return shape;
+    }
+
+    private String computeShape() {
+        StringBuilder key = new StringBuilder(sortOrder);
+        if (ids.length > 0) key.append("|i").append(ids.length);
+        key.append("|t").append(types.length).append("|c").append(categoryIds.length);
+        if (startDate > 0) key.append("|from");
+        if (endDate > 0) key.append("|to");
+        if (minAmount != null) key.append("|min");
+        if (maxAmount != null) key.append("|max");
+        if (hasSearch) {
+            key.append("|q").append(searchMatch != null ? "fts" : "").append(searchCategoryIds.length);
+        }
+        if (hasCursor) key.append("|after");
+        if (limit > NO_LIMIT) key.append("|limit");
+        return key.toString();
+    }
+
+    /**
+     * ✅ NEW: In-memory twin of the SQL ORDER BY for this query's sort order
+     * Lets a loaded list take changed rows at the position SQL would have returned them.
+     *
+     * @param categoryRanks Category ID -> sort_rank (CategoryResolver.getSortRanks); only the
+     *                      category order reads it
+     */
+    public Comparator<Expense> rowOrder(int[] categoryRanks) {
+        Comparator<Expense> newestFirst = (a, b) -> {
+            int byDate = Long.compare(b.getDate(), a.getDate());
+            return byDate != 0 ? byDate : Integer.compare(b.getId(), a.getId());
+        };
+
+        switch (sortOrder) {
+            case SORT_DATE_OLDEST:
+                return newestFirst.reversed();
+            case SORT_AMOUNT_HIGHEST:
+                return (a, b) -> {
+                    int byAmount = Long.compare(b.getMoney().getMinorUnits(), a.getMoney().getMinorUnits());
+                    return byAmount != 0 ? byAmount : Integer.compare(b.getId(), a.getId());
+                };
+            case SORT_AMOUNT_LOWEST:
+                return (a, b) -> {
+                    int byAmount = Long.compare(a.getMoney().getMinorUnits(), b.getMoney().getMinorUnits());
+                    return byAmount != 0 ? byAmount : Integer.compare(a.getId(), b.getId());
+                };
+            case SORT_CATEGORY:
+                return (a, b) -> {
+                    int byRank = Integer.compare(rankOf(categoryRanks, a.getCategoryId()),
+                            rankOf(categoryRanks, b.getCategoryId()));
+                    if (byRank != 0) return byRank;
+                    int byCategory = Integer.compare(a.getCategoryId(), b.getCategoryId());
+                    return byCategory != 0 ? byCategory : newestFirst.compare(a, b);
+                };
+            case SORT_DATE_NEWEST:
+            default:
+                return newestFirst;
+        }
+    }
+
+    private static int rankOf(int[] ranks, int categoryId) {
+        return ranks != null && categoryId >= 0 && categoryId < ranks.length ? ranks[categoryId] : 0;
+    }
+
+    /**
+     * ✅ v12: User input -> FTS prefix query: every word must start a word of the description
+     * Punctuation is dropped so input can never form FTS operators or unbalanced quotes.
+     *
+     * @return MATCH expression (e.g. "an* sang*"), or null if the input has no words
+     */
+    public static String toFtsPrefixQuery(String text) {
+        if (text == null) return null;
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC)
+                .toLowerCase(Locale.ROOT); // lowercase: "or"/"and"/"not" are plain words
+        StringBuilder match = new StringBuilder();
+        int length = normalized.length();
+        int i = 0;
+        while (i < length) {
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(normalized.codePointAt(i))) {
+                i += Character.charCount(normalized.codePointAt(i));
+            }
+            if (i > start) {
+                if (match.length() > 0) match.append(' ');
+                match.append(normalized, start, i).append('*');
+            } else {
+                i += Character.charCount(normalized.codePointAt(i));
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseQuery{user=" + userId + ", shape=" + shape + "}";
+    }
+
+    /**
+     * Mutable builder; setters copy arrays they are given, so a built query never changes
+     */
+    public static final class Builder {
+        private final int userId;
+        private int[] ids = NONE;
+        private int[] types = NONE;
+        private int[] categoryIds = NONE;
+        private long startDate;
+        private long endDate;
+        private Money minAmount;
+        private Money maxAmount;
+        private String searchText;
+        private int[] searchCategoryIds = NONE;
+        private String sortOrder = SORT_DATE_NEWEST;
+        private int limit = NO_LIMIT;
+        private Expense after;
+
+        private Builder(int userId) {
+            this.userId = userId;
+        }
+
+        private Builder(ExpenseQuery query) {
+            this.userId = query.userId;
+            this.ids = query.ids;
+            this.types = query.types;
+            this.categoryIds = query.categoryIds;
+            this.startDate = query.startDate;
+            this.endDate = query.endDate;
+            this.minAmount = query.minAmount;
+            this.maxAmount = query.maxAmount;
+            this.searchText = query.searchText;
+            this.searchCategoryIds = query.searchCategoryIds;
+            this.sortOrder = query.sortOrder;
+            this.limit = query.limit;
+        }
+
+        /**
+         * Only these rows (still subject to the other criteria); no IDs clears the filter
+         */
+        public Builder ids(int... ids) {
+            this.ids = ids != null ? ids.clone() : NONE;
+            return this;
+        }
+
+        /**
+         * One type; Expense.TYPE_ALL clears the type filter
+         */
+        public Builder type(int type) {
+            this.types = type == Expense.TYPE_ALL ? NONE : new int[]{type};
+            return this;
+        }
+
+        public Builder types(int... types) {
+            this.types = types != null ? types.clone() : NONE;
+            return this;
+        }
+
+        /**
+         * One category; 0 clears the category filter
+         */
+        public Builder category(int categoryId) {
+            this.categoryIds = categoryId > 0 ? new int[]{categoryId} : NONE;
+            return this;
+        }
+
+        public Builder categories(int... categoryIds) {
+            this.categoryIds = categoryIds != null ? categoryIds.clone() : NONE;
+            return this;
+        }
+
+        /**
+         * Inclusive date range; 0 leaves that end open
+         */
+        public Builder dateRange(long startDate, long endDate) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            return this;
+        }
+
+        /**
+         * Inclusive amount range in the stored currency; null leaves that end open
+         */
+        public Builder amountRange(Money minAmount, Money maxAmount) {
+            this.minAmount = minAmount;
+            this.maxAmount = maxAmount;
+            return this;
+        }
+
+        /**
+         * Rows whose description words start with the typed words, or whose category is one of
+         * {@code matchingCategoryIds} (labels are localized, see CategoryResolver.findCategoryIds)
+         */
+        public Builder search(String text, int... matchingCategoryIds) {
+            this.searchText = text;
+            this.searchCategoryIds = matchingCategoryIds != null ? matchingCategoryIds.clone() : NONE;
+            return this;
+        }
+
+        public Builder sort(String sortOrder) {
+            this.sortOrder = sortOrder != null ? sortOrder : SORT_DATE_NEWEST;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            this.limit = Math.max(NO_LIMIT, limit);
+            return this;
+        }
+
+        /**
+         * Keyset cursor: rows after {@code lastRow} in the sort order (null = first page)
+         */
+        public Builder after(Expense lastRow) {
+            this.after = lastRow;
+            return this;
+        }
+
+        public ExpenseQuery build() {
+            return new ExpenseQuery(this);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.campusexpensemanager.utils;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.campusexpensemanager.models.BudgetProgress;
+import com.example.campusexpensemanager.models.Expense;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ExpenseRepository - Asynchronous front for DatabaseHelper
+ * Runs SQLite work on a small background pool and delivers results on the main thread.
+ * Pending work bound to a LifecycleOwner is cancelled when it is destroyed, so callbacks
+ * never touch a dead activity.
+ */
+public class ExpenseRepository {
+
+    private static final String TAG = "ExpenseRepository";
+    private static final int THREAD_COUNT = 2; // WAL allows reads in parallel with one writer
+
+    private static volatile ExpenseRepository instance;
+
+    private final DatabaseHelper dbHelper;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    /**
+     * ✅ NEW: Told on the main thread when the work threw (never for a cancelled task),
+     * so callers can clear their "loading" state instead of waiting for a result that won't come
+     */
+    public interface ErrorCallback {
+        void onError(Exception error);
+    }
+
+    /**
+     * ✅ NEW: Database work that can be aborted mid-query (pass the signal to rawQuery)
+     */
+    public interface CancellableWork<T> {
+        T call(CancellationSignal signal) throws Exception;
+    }
+
+    /**
+     * Handle to a submitted load; cancel() drops the pending result and aborts a running query
+     */
+    public static final class Task {
+        private volatile boolean cancelled;
+        private Future<?> future;
+        private Runnable onFinished;    // main thread only
+        private Handler mainHandler;
+        private final CancellationSignal signal = new CancellationSignal();
+
+        public void cancel() {
+            cancelled = true;
+            Future<?> pending = future;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            signal.cancel();
+
+            // ✅ FIX: A task cancelled before it ran never posts onFinished from the pool,
+            // so release the lifecycle observer here (finish() ignores the second call)
+            if (mainHandler != null) {
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    finish();
+                } else {
+                    mainHandler.post(this::finish);
+                }
+            }
+        }
+
+        /**
+         * Remove the lifecycle observer once; main thread only
+         */
+        private void finish() {
+            Runnable finished = onFinished;
+            onFinished = null;
+            if (finished != null) {
+                finished.run();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private ExpenseRepository(Context context) {
+        this.dbHelper = DatabaseHelper.getInstance(context);
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "expense-db-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Warm the category and rate snapshots so the first list bind doesn't query on the main thread
+        executor.execute(dbHelper::getCategorySnapshot);
+        executor.execute(CurrencyConverter.getInstance(context)::refresh);
+    }
+
+    public static ExpenseRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ExpenseRepository.class) {
+                if (instance == null) {
+                    instance = new ExpenseRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Run {@code work} off the main thread and hand its result to {@code callback} on the main thread.
+     * Must be called from the main thread (it registers a lifecycle observer).
+     *
+     * @param owner Activity whose destruction cancels the work
+     * @param work Database work (runs on a background thread)
+     * @param callback Receives the result on the main thread unless cancelled
+     * @return Task that can be cancelled early (e.g. when a newer load supersedes it)
+     */
+    public <T> Task execute(@NonNull LifecycleOwner owner, @NonNull Callable<T> work,
+                            @NonNull Callback<T> callback) {
+        return execute(owner, signal -> work.call(), callback, null);
+    }
+
+    /**
+     * Same as {@link #execute(LifecycleOwner, Callable, Callback)}, but {@code work} receives the
+     * task's CancellationSignal so a superseded query (e.g. an outdated search) stops early
+     */
+    public <T> Task execute(@NonNull LifecycleOwner owner, @NonNull CancellableWork<T> work,
+                            @NonNull Callback<T> callback) {
+        return execute(owner, work, callback, null);
+    }
+
+    /**
+     * Same as {@link #execute(LifecycleOwner, CancellableWork, Callback)}, plus {@code onError}
+     * (may be null) when {@code work} throws instead of returning a result
+     */
+    public <T> Task execute(@NonNull LifecycleOwner owner, @NonNull CancellableWork<T> work,
+                            @NonNull Callback<T> callback, ErrorCallback onError) {
+        Task task = new Task();
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            task.cancelled = true;
+            return task;
+        }
+
+        LifecycleEventObserver observer = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                task.cancel();
+            }
+        };
+        lifecycle.addObserver(observer);
+        task.onFinished = () -> lifecycle.removeObserver(observer);
+        task.mainHandler = mainHandler;
+
+        task.future = executor.submit(() -> {
+            if (task.cancelled) {
+                mainHandler.post(task::finish);
+                return;
+            }
+
+            T result;
+            try {
+                result = work.call(task.signal);
+            } catch (Exception e) {
+                // DatabaseHelper already logs and falls back; anything reaching here is a bug
+                Log.e(TAG, "Background load failed: " + e.getMessage());
+                e.printStackTrace();
+                mainHandler.post(() -> {
+                    task.finish();
+                    if (!task.cancelled && onError != null) {
+                        onError.onError(e);
+                    }
+                });
+                return;
+            }
+
+            mainHandler.post(() -> {
+                task.finish();
+                if (!task.cancelled) {
+                    callback.onResult(result);
+                }
+            });
+        });
+        return task;
+    }
+
+    // =============== TYPED LOADS ===============
+
+    public Task loadDashboard(LifecycleOwner owner, int userId, int yearMonth, int targetCurrencyId,
+                              Callback<DatabaseHelper.DashboardData> callback) {
+        return execute(owner,
+                () -> dbHelper.getDashboardDataForMonth(userId, yearMonth, targetCurrencyId), callback);
+    }
+
+    public Task loadBudgetProgress(LifecycleOwner owner, int userId,
+                                   Callback<List<BudgetProgress>> callback) {
+        return execute(owner, () -> dbHelper.getBudgetProgressForUser(userId), callback);
+    }
+
+    public Task loadExpenses(LifecycleOwner owner, ExpenseQuery query, Callback<List<Expense>> callback) {
+        return execute(owner, signal -> dbHelper.queryExpenses(query, signal), callback);
+    }
+
+    public Task loadExpensesInRange(LifecycleOwner owner, int userId, long startDate, long endDate,
+                                    int type, int categoryId, Callback<List<Expense>> callback) {
+        return execute(owner,
+                () -> dbHelper.getExpensesInRange(userId, startDate, endDate, type, categoryId), callback);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.campusexpensemanager.utils;
+
+import com.example.campusexpensemanager.models.Expense;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * ExpenseSections - Local-day sections of a date-sorted expense list, as flat arrays
+ * Built on the loading thread once per page (append extends the previous pages' arrays), so the
+ * adapter maps an adapter position to its header or row with one int-array read per bind.
+ * Layout: every section is one header position followed by the rows of that day.
+ * Subtotals are full-day VND totals from SQL (DatabaseHelper.loadSectionTotals), so a day that
+ * continues on the next page still shows the whole day's total.
+ */
+public final class ExpenseSections {
+
+    private static final int[] NO_INTS = new int[0];
+    private static final long[] NO_LONGS = new long[0];
+    private static final double[] NO_DOUBLES = new double[0];
+
+    private final boolean sectioned;
+    private final int rowCount;
+    private final int[] positionToRow;      // row index, -1 for a header (sectioned only)
+    private final int[] positionToSection;  // section of each position (sectioned only)
+    private final int[] headerPositions;    // adapter position of each section header
+    private final long[] dayStarts;         // local midnight of each section
+    private final long[] dayEnds;           // next local midnight (exclusive)
+    private final double[] expenseTotals;   // VND, filled before the sections reach the adapter
+    private final double[] incomeTotals;
+
+    private ExpenseSections(boolean sectioned, int rowCount, int[] positionToRow, int[] positionToSection,
+                            int[] headerPositions, long[] dayStarts, long[] dayEnds,
+                            double[] expenseTotals, double[] incomeTotals) {
+        this.sectioned = sectioned;
+        this.rowCount = rowCount;
+        this.positionToRow = positionToRow;
+        this.positionToSection = positionToSection;
+        this.headerPositions = headerPositions;
+        this.dayStarts = dayStarts;
+        this.dayEnds = dayEnds;
+        this.expenseTotals = expenseTotals;
+        this.incomeTotals = incomeTotals;
+    }
+
+    /**
+     * Rows without headers (amount and category orders): position = row index
+     */
+    public static ExpenseSections flat(int rowCount) {
+        return new ExpenseSections(false, rowCount, NO_INTS, NO_INTS, NO_INTS,
+                NO_LONGS, NO_LONGS, NO_DOUBLES, NO_DOUBLES);
+    }
+
+    /**
+     * One section per local day; {@code rows} must be sorted by date (either direction)
+     */
+    public static ExpenseSections byDay(List<Expense> rows) {
+        return new ExpenseSections(true, 0, NO_INTS, NO_INTS, NO_INTS,
+                NO_LONGS, NO_LONGS, NO_DOUBLES, NO_DOUBLES).append(rows);
+    }
+
+    /**
+     * Sections for these rows followed by {@code page}; this object is left unchanged.
+     * Only the page's rows are examined - the arrays of the earlier pages are copied as they are,
+     * and a page that starts on the last section's day continues that section.
+     */
+    public ExpenseSections append(List<Expense> page) {
+        if (!sectioned) {
+            return flat(rowCount + page.size());
+        }
+
+        int oldSections = dayStarts.length;
+        long[] starts = Arrays.copyOf(dayStarts, oldSections + page.size());
+        long[] ends = Arrays.copyOf(dayEnds, oldSections + page.size());
+        int[] sectionOfRow = new int[page.size()];
+        int sections = oldSections;
+
+        // Pass 1: section of each new row; Calendar only runs where the day changes
+        Calendar calendar = Calendar.getInstance();
+        for (int i = 0; i < page.size(); i++) {
+            long date = page.get(i).getDate();
+            if (sections == 0 || date < starts[sections - 1] || date >= ends[sections - 1]) {
+                calendar.setTimeInMillis(date);
+                calendar.set(Calendar.HOUR_OF_DAY, 0);
+                calendar.set(Calendar.MINUTE, 0);
+                calendar.set(Calendar.SECOND, 0);
+                calendar.set(Calendar.MILLISECOND, 0);
+                starts[sections] = calendar.getTimeInMillis();
+                calendar.add(Calendar.DAY_OF_MONTH, 1); // 23 or 25 hours across DST
+                ends[sections] = calendar.getTimeInMillis();
+                sections++;
+            }
+            sectionOfRow[i] = sections - 1;
+        }
+
+        // Pass 2: extend the position arrays (one header before the first row of each new section)
+        int oldPositions = positionToRow.length;
+        int positions = oldPositions + page.size() + (sections - oldSections);
+        int[] toRow = Arrays.copyOf(positionToRow, positions);
+        int[] toSection = Arrays.copyOf(positionToSection, positions);
+        int[] headers = Arrays.copyOf(headerPositions, sections);
+
+        int position = oldPositions;
+        for (int i = 0; i < page.size(); i++) {
+            int section = sectionOfRow[i];
+            if (section >= oldSections && (i == 0 || sectionOfRow[i - 1] != section)) {
+                headers[section] = position;
+                toRow[position] = -1;
+                toSection[position] = section;
+                position++;
+            }
+            toRow[position] = rowCount + i;
+            toSection[position] = section;
+            position++;
+        }
+
+        return new ExpenseSections(true, rowCount + page.size(), toRow, toSection, headers,
+                Arrays.copyOf(starts, sections), Arrays.copyOf(ends, sections),
+                Arrays.copyOf(expenseTotals, sections), Arrays.copyOf(incomeTotals, sections));
+    }
+
+    public boolean isSectioned() {
+        return sectioned;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return Adapter positions: rows + one header per section
+     */
+    public int getItemCount() {
+        return sectioned ? positionToRow.length : rowCount;
+    }
+
+    public int getSectionCount() {
+        return dayStarts.length;
+    }
+
+    public boolean isHeader(int position) {
+        return sectioned && positionToRow[position] < 0;
+    }
+
+    /**
+     * @return Row index shown at {@code position}, or -1 for a header
+     */
+    public int rowAt(int position) {
+        return sectioned ? positionToRow[position] : position;
+    }
+
+    /**
+     * @return Section of {@code position} (header or row), or -1 when unsectioned
+     */
+    public int sectionAt(int position) {
+        return sectioned ? positionToSection[position] : -1;
+    }
+
+    public int getHeaderPosition(int section) {
+        return headerPositions[section];
+    }
+
+    public long getDayStart(int section) {
+        return dayStarts[section];
+    }
+
+    public long getDayEnd(int section) {
+        return dayEnds[section];
+    }
+
+    public double getExpenseTotal(int section) {
+        return expenseTotals[section];
+    }
+
+    public double getIncomeTotal(int section) {
+        return incomeTotals[section];
+    }
+
+    /**
+     * Store one day's SQL subtotals; only for the loading thread, before the sections are published
+     */
+    void setTotals(int section, double expenseTotal, double incomeTotal) {
+        expenseTotals[section] = expenseTotal;
+        incomeTotals[section] = incomeTotal;
+    }
+
+    /**
+     * @return Section whose day contains {@code date} (searching from {@code fromSection}), or -1
+     */
+    int findSection(long date, int fromSection) {
+        int low = fromSection;
+        int high = dayStarts.length - 1;
+        boolean descending = high > low && dayStarts[low] > dayStarts[high];
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (date < dayStarts[mid]) {
+                if (descending) low = mid + 1; else high = mid - 1;
+            } else if (date >= dayEnds[mid]) {
+                if (descending) high = mid - 1; else low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
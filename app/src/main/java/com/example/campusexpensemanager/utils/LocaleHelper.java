@@ -26,6 +26,10 @@ public class LocaleHelper {
     public static void setLocale(Context context, String languageCode) {
         // Save preference
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (!languageCode.equals(prefs.getString(KEY_LANGUAGE, DEFAULT_LANGUAGE))) {
+            CategoryResolver.invalidate(); // Category labels are resolved per language
+            DateLabelCache.invalidate();   // So are month names in date labels
+        }
         prefs.edit().putString(KEY_LANGUAGE, languageCode).apply();
 
         // Apply locale
@@ -0,0 +1,141 @@
+package com.example.campusexpensemanager.utils;
+
+import com.example.campusexpensemanager.models.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RateHistory - Immutable in-memory copy of the currency_rates table (v11)
+ * Per currency, effective dates and rates are kept in parallel sorted arrays, so the rate in
+ * force on an expense date is one binary search; reports and exports price thousands of rows
+ * without a query per row. Lookups match DatabaseHelper's SQL (latest rate with
+ * effective_from <= date, rate 1 when none is known, half-up rounding per row).
+ */
+public final class RateHistory {
+
+    public static final RateHistory EMPTY = new RateHistory(Collections.emptyMap());
+
+    private static final double UNKNOWN_RATE = 1.0;
+
+    private final Map<Integer, Series> byCurrency;
+
+    private RateHistory(Map<Integer, Series> byCurrency) {
+        this.byCurrency = byCurrency;
+    }
+
+    /**
+     * Rates of one currency, ascending by effective date
+     */
+    private static final class Series {
+        final long[] effectiveFrom;
+        final double[] rates;
+
+        Series(long[] effectiveFrom, double[] rates) {
+            this.effectiveFrom = effectiveFrom;
+            this.rates = rates;
+        }
+
+        double rateAt(long date) {
+            int index = Arrays.binarySearch(effectiveFrom, date);
+            if (index < 0) {
+                index = -index - 2; // last entry before the insertion point
+            }
+            return index >= 0 ? rates[index] : UNKNOWN_RATE;
+        }
+
+        Series with(long date, double rate) {
+            int index = Arrays.binarySearch(effectiveFrom, date);
+            if (index >= 0) {
+                double[] newRates = rates.clone();
+                newRates[index] = rate;
+                return new Series(effectiveFrom, newRates);
+            }
+            int insertAt = -index - 1;
+            long[] newDates = new long[effectiveFrom.length + 1];
+            double[] newRates = new double[rates.length + 1];
+            System.arraycopy(effectiveFrom, 0, newDates, 0, insertAt);
+            System.arraycopy(rates, 0, newRates, 0, insertAt);
+            newDates[insertAt] = date;
+            newRates[insertAt] = rate;
+            System.arraycopy(effectiveFrom, insertAt, newDates, insertAt + 1, effectiveFrom.length - insertAt);
+            System.arraycopy(rates, insertAt, newRates, insertAt + 1, rates.length - insertAt);
+            return new Series(newDates, newRates);
+        }
+    }
+
+    /**
+     * @return Rate to VND in force for {@code currencyId} at {@code date} (1 if none is known)
+     */
+    public double rateAt(int currencyId, long date) {
+        Series series = byCurrency.get(currencyId);
+        return series != null ? series.rateAt(date) : UNKNOWN_RATE;
+    }
+
+    /**
+     * Value of {@code amount} in VND at the rate in force on {@code date}
+     */
+    public Money toVnd(Money amount, int currencyId, long date) {
+        return Money.ofMinorUnits(roundHalfUp(amount.getMinorUnits() * rateAt(currencyId, date)));
+    }
+
+    /**
+     * Copy of this history with one more (or a replaced) entry; this instance is unchanged
+     */
+    public RateHistory withRate(int currencyId, long effectiveFrom, double rate) {
+        Map<Integer, Series> updated = new HashMap<>(byCurrency);
+        Series series = byCurrency.get(currencyId);
+        updated.put(currencyId, series != null
+                ? series.with(effectiveFrom, rate)
+                : new Series(new long[]{effectiveFrom}, new double[]{rate}));
+        return new RateHistory(Collections.unmodifiableMap(updated));
+    }
+
+    // Same as SQLite ROUND(x): half away from zero
+    private static long roundHalfUp(double value) {
+        return (long) (value + (value < 0 ? -0.5 : 0.5));
+    }
+
+    /**
+     * Collects (currency, effective_from, rate) rows in any order
+     */
+    public static final class Builder {
+        private final Map<Integer, List<long[]>> rows = new HashMap<>();
+
+        public Builder add(int currencyId, long effectiveFrom, double rate) {
+            List<long[]> series = rows.get(currencyId);
+            if (series == null) {
+                series = new ArrayList<>();
+                rows.put(currencyId, series);
+            }
+            series.add(new long[]{effectiveFrom, Double.doubleToRawLongBits(rate)});
+            return this;
+        }
+
+        public RateHistory build() {
+            Map<Integer, Series> byCurrency = new HashMap<>();
+            for (Map.Entry<Integer, List<long[]>> entry : rows.entrySet()) {
+                List<long[]> series = entry.getValue();
+                Collections.sort(series, (a, b) -> Long.compare(a[0], b[0]));
+
+                long[] dates = new long[series.size()];
+                double[] rates = new double[series.size()];
+                int size = 0;
+                for (long[] row : series) {
+                    if (size > 0 && dates[size - 1] == row[0]) {
+                        size--; // duplicate date: the later row wins, like INSERT OR REPLACE
+                    }
+                    dates[size] = row[0];
+                    rates[size] = Double.longBitsToDouble(row[1]);
+                    size++;
+                }
+                byCurrency.put(entry.getKey(), new Series(Arrays.copyOf(dates, size), Arrays.copyOf(rates, size)));
+            }
+            return new RateHistory(Collections.unmodifiableMap(byCurrency));
+        }
+    }
+}
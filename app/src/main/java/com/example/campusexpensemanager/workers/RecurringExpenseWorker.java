@@ -10,6 +10,7 @@ import androidx.work.WorkerParameters;
 import com.example.campusexpensemanager.models.Expense;
 import com.example.campusexpensemanager.utils.DatabaseHelper;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -36,7 +37,9 @@ public class RecurringExpenseWorker extends Worker {
                 Log.d(TAG, "No recurring expenses due");
                 return Result.success();
             }
-            int created = 0;
+            // ✅ Collect every missed occurrence first, then write them in ONE transaction
+            List<Expense> occurrences = new ArrayList<>();
+            List<Expense> mastersToUpdate = new ArrayList<>();
             long currentTime = System.currentTimeMillis();
             for (Expense expense : dueExpenses) {
                 // FIX: Catch up ALL missed occurrences
@@ -55,19 +58,15 @@ public class RecurringExpenseWorker extends Worker {
                         // Cập nhật ngày tiếp theo (để lưu trạng thái cuối)
                         expense.setNextOccurrenceDate(nextOcc);
 
-                        // Lưu vào DB ngay lập tức
-                        dbHelper.updateExpense(expense);
+                        // Lưu sau khi ghi xong các lần phát sinh
+                        mastersToUpdate.add(expense);
                         isEnded = true;
                         break; // Thoát khỏi vòng lặp tạo mới
                     }
 
                     // Create occurrence for this date
-                    long newId = dbHelper.createRecurringOccurrence(expense);
-                    if (newId != -1) {
-                        created++;
-                        Log.d(TAG, "Created recurring expense: " + newId +
-                                " (Original: " + expense.getId() + ", Date: " + nextOcc + ")");
-                    }
+                    occurrences.add(DatabaseHelper.buildRecurringOccurrence(expense, nextOcc));
+
                     // Move to next occurrence
                     nextOcc = calculateNextOccurrence(nextOcc, expense.getRecurrencePeriod());
                 }
@@ -79,10 +78,17 @@ public class RecurringExpenseWorker extends Worker {
                     if (expense.getRecurringEndDate() > 0 && nextOcc > expense.getRecurringEndDate()) {
                         expense.setIsRecurring(false);
                     }
-                    dbHelper.updateExpense(expense);
+                    mastersToUpdate.add(expense);
                 }
             }
-            Log.d(TAG, "RecurringExpenseWorker completed: " + created + " expenses created");
+
+            // Occurrences and master dates commit together: a crash in between can't duplicate a date
+            if (!dbHelper.insertRecurringOccurrences(occurrences, mastersToUpdate)) {
+                // Rolled back - masters unchanged, so the next run retries the same dates
+                Log.e(TAG, "Failed to store recurring occurrences, will retry");
+                return Result.retry();
+            }
+            Log.d(TAG, "RecurringExpenseWorker completed: " + occurrences.size() + " expenses created");
             return Result.success();
 
         } catch (Exception e) {
@@ -0,0 +1,40 @@
+package com.example.campusexpensemanager.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MoneyTest {
+
+    @Test
+    public void ofRoundsToNearestMinorUnit() {
+        assertEquals(150000000L, Money.of(1500000).getMinorUnits());
+        assertEquals(29L, Money.of(0.29).getMinorUnits());   // 0.29 * 100 = 28.999999999999996
+        assertEquals(101L, Money.of(1.005).getMinorUnits());
+        assertEquals(-1250L, Money.of(-12.5).getMinorUnits());
+    }
+
+    @Test
+    public void sumOfManyAmountsIsExact() {
+        Money total = Money.ZERO;
+        double floatingTotal = 0;
+        for (int i = 0; i < 1000; i++) {
+            total = total.plus(Money.of(0.1));
+            floatingTotal += 0.1;
+        }
+        assertEquals(10000L, total.getMinorUnits());
+        assertEquals(100.0, total.toDouble(), 0);
+        assertTrue(floatingTotal != 100.0); // what REAL SUM used to accumulate
+    }
+
+    @Test
+    public void thresholdComparisonIsExact() {
+        Money limit = Money.of(1000000);
+        assertTrue(Money.of(800000).reachesPercentOf(limit, 80));
+        assertFalse(Money.of(799999.99).reachesPercentOf(limit, 80));
+        assertFalse(Money.of(1).reachesPercentOf(Money.ZERO, 80));
+        assertEquals(80.0, Money.of(800000).percentOf(limit), 0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.campusexpensemanager.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * AmountFormatter must be a drop-in replacement: every output is compared byte for byte
+ * with the NumberFormat / String.format calls it replaced.
+ */
+public class AmountFormatterTest {
+
+    private static final double[] EDGE_CASES = {
+            0, -0.0, 1, 999, 1000, 1234567, 0.5, 12.5, 1.005, 0.125, 2.675, 0.29, 123456.78,
+            -5, -1234.5, 1e15, 9007199254740992.0, 1e20,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    private Locale defaultLocale;
+
+    @Before
+    public void saveLocale() {
+        defaultLocale = Locale.getDefault();
+    }
+
+    @After
+    public void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    public void vndMatchesNumberFormat() {
+        NumberFormat reference = NumberFormat.getInstance(new Locale("vi", "VN"));
+        for (double amount : sampleAmounts()) {
+            assertEquals("amount " + amount, reference.format(amount), AmountFormatter.formatVnd(amount));
+        }
+    }
+
+    @Test
+    public void usdMatchesStringFormatInEveryAppLocale() {
+        for (Locale locale : new Locale[]{Locale.US, new Locale("vi", "VN"), Locale.GERMANY}) {
+            Locale.setDefault(locale);
+            for (double amount : sampleAmounts()) {
+                assertEquals(locale + " amount " + amount,
+                        String.format("%.2f", amount), AmountFormatter.formatUsd(amount));
+            }
+        }
+    }
+
+    @Test
+    public void formatAddsCurrencySymbol() {
+        Locale.setDefault(Locale.US);
+        assertEquals("1.250.000₫", AmountFormatter.format(1250000, "VND"));
+        assertEquals("$12.50", AmountFormatter.format(12.5, "USD"));
+    }
+
+    private static double[] sampleAmounts() {
+        Random random = new Random(42);
+        double[] amounts = new double[EDGE_CASES.length + 40_000];
+        System.arraycopy(EDGE_CASES, 0, amounts, 0, EDGE_CASES.length);
+        for (int i = EDGE_CASES.length; i < amounts.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    amounts[i] = random.nextInt(100_000_000);          // whole VND
+                    break;
+                case 1:
+                    amounts[i] = random.nextInt(1_000_000) / 100.0;    // cents
+                    break;
+                case 2:
+                    amounts[i] = random.nextDouble() * 1_000_000;      // arbitrary fractions
+                    break;
+                default:
+                    amounts[i] = random.nextLong() >> random.nextInt(64); // any magnitude/sign
+                    break;
+            }
+        }
+        return amounts;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.campusexpensemanager.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cached labels must equal a fresh SimpleDateFormat for every instant, including DST
+ * transitions and after the default locale or time zone changes.
+ */
+public class DateLabelCacheTest {
+
+    private static final String[] PATTERNS = {
+            DateLabelCache.PATTERN_DATE, DateLabelCache.PATTERN_DAY_MONTH, DateLabelCache.PATTERN_MONTH,
+            DateLabelCache.PATTERN_DAY_HEADER
+    };
+
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void saveDefaults() {
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+        DateLabelCache.invalidate();
+    }
+
+    @After
+    public void restoreDefaults() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+        DateLabelCache.invalidate();
+    }
+
+    @Test
+    public void matchesSimpleDateFormatAcrossZonesAndLocales() {
+        String[] zones = {"Asia/Ho_Chi_Minh", "America/New_York", "Australia/Lord_Howe", "UTC"};
+        Locale[] locales = {Locale.ENGLISH, new Locale("vi"), new Locale("zh")};
+        Random random = new Random(11);
+
+        for (String zone : zones) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            for (Locale locale : locales) {
+                Locale.setDefault(locale);
+                for (int i = 0; i < 2_000; i++) {
+                    // 2020-2030; half on the hour, where local midnights and DST switches fall
+                    long time = 1577836800000L + (long) (random.nextDouble() * 315_360_000_000L);
+                    if (i % 2 == 0) {
+                        time -= time % 3_600_000L;
+                    }
+                    for (String pattern : PATTERNS) {
+                        assertEquals(zone + " " + locale + " " + time,
+                                new SimpleDateFormat(pattern, locale).format(new Date(time)),
+                                DateLabelCache.format(pattern, time));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void invalidateDropsLabelsOfPreviousLanguage() {
+        long time = 1700000000000L;
+        Locale.setDefault(Locale.ENGLISH);
+        String english = DateLabelCache.format(DateLabelCache.PATTERN_MONTH, time);
+
+        Locale.setDefault(new Locale("vi"));
+        DateLabelCache.invalidate();
+        assertEquals(new SimpleDateFormat(DateLabelCache.PATTERN_MONTH, new Locale("vi")).format(new Date(time)),
+                DateLabelCache.format(DateLabelCache.PATTERN_MONTH, time));
+        assertEquals("Nov", english);
+    }
+}
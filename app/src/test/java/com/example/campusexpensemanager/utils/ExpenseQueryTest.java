@@ -0,0 +1,111 @@
+package com.example.campusexpensemanager.utils;
+
+import com.example.campusexpensemanager.models.Expense;
+import com.example.campusexpensemanager.models.Money;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Queries that differ only in values must share a shape (and so one SQL string / compiled
+ * statement); queries with different clauses must not.
+ */
+public class ExpenseQueryTest {
+
+    @Test
+    public void sameClausesDifferentValues_shareShape() {
+        ExpenseQuery a = ExpenseQuery.forUser(1).type(Expense.TYPE_EXPENSE).category(3)
+                .dateRange(100, 200).search("an sang", 4).limit(50).build();
+        ExpenseQuery b = ExpenseQuery.forUser(2).type(Expense.TYPE_INCOME).category(7)
+                .dateRange(300, 900).search("cafe", 9).limit(20).build();
+        assertEquals(a.shape(), b.shape());
+    }
+
+    @Test
+    public void differentClauses_differentShape() {
+        ExpenseQuery base = ExpenseQuery.forUser(1).build();
+        Expense last = new Expense(1, 1, 1000, 1000L, "cursor");
+
+        assertNotEquals(base.shape(), ExpenseQuery.forUser(1).type(Expense.TYPE_EXPENSE).build().shape());
+        assertNotEquals(base.shape(), ExpenseQuery.forUser(1).categories(1, 2).build().shape());
+        assertNotEquals(ExpenseQuery.forUser(1).categories(1, 2).build().shape(),
+                ExpenseQuery.forUser(1).categories(1, 2, 3).build().shape());
+        assertNotEquals(base.shape(), ExpenseQuery.forUser(1).dateRange(0, 5).build().shape());
+        assertNotEquals(base.shape(), ExpenseQuery.forUser(1).amountRange(Money.of(1), null).build().shape());
+        assertNotEquals(base.shape(), ExpenseQuery.forUser(1).sort(ExpenseQuery.SORT_CATEGORY).build().shape());
+        assertNotEquals(base.shape(), ExpenseQuery.forUser(1).after(last).build().shape());
+        assertNotEquals(base.shape(), ExpenseQuery.forUser(1).limit(50).build().shape());
+        // Punctuation only: no FTS match, category labels only
+        assertNotEquals(ExpenseQuery.forUser(1).search("an", 1).build().shape(),
+                ExpenseQuery.forUser(1).search("!!", 1).build().shape());
+    }
+
+    @Test
+    public void clearingFilters_restoresBaseShape() {
+        String base = ExpenseQuery.forUser(1).build().shape();
+        assertEquals(base, ExpenseQuery.forUser(1).type(Expense.TYPE_ALL).category(0).search("  ").build().shape());
+    }
+
+    @Test
+    public void builtQuery_doesNotSeeLaterArrayChanges() {
+        int[] categories = {1, 2};
+        ExpenseQuery.Builder builder = ExpenseQuery.forUser(1).categories(categories);
+        ExpenseQuery query = builder.build();
+        categories[0] = 9;
+        builder.categories(5, 6, 7);
+
+        assertEquals(1, query.categoryIds[0]);
+        assertEquals(2, query.categoryIds.length);
+        assertEquals(3, query.toBuilder().categories(5, 6, 7).build().categoryIds.length);
+    }
+
+    @Test
+    public void rowOrder_matchesSqlOrderBy() {
+        Expense a = expense(1, 2, 500, 3000L);
+        Expense b = expense(2, 1, 500, 3000L);
+        Expense c = expense(3, 2, 900, 1000L);
+        int[] ranks = {0, 1, 0}; // category 2 sorts before category 1
+        List<Expense> rows = Arrays.asList(a, b, c);
+
+        assertEquals(Arrays.asList(b, a, c), sorted(rows, ExpenseQuery.SORT_DATE_NEWEST, ranks));
+        assertEquals(Arrays.asList(c, a, b), sorted(rows, ExpenseQuery.SORT_DATE_OLDEST, ranks));
+        assertEquals(Arrays.asList(c, b, a), sorted(rows, ExpenseQuery.SORT_AMOUNT_HIGHEST, ranks));
+        assertEquals(Arrays.asList(a, b, c), sorted(rows, ExpenseQuery.SORT_AMOUNT_LOWEST, ranks));
+        assertEquals(Arrays.asList(a, c, b), sorted(rows, ExpenseQuery.SORT_CATEGORY, ranks));
+    }
+
+    @Test
+    public void idFilter_isPartOfShape() {
+        assertNotEquals(ExpenseQuery.forUser(1).build().shape(), ExpenseQuery.forUser(1).ids(5).build().shape());
+        assertEquals(ExpenseQuery.forUser(1).ids(5, 6).build().shape(),
+                ExpenseQuery.forUser(1).ids(7, 8).build().shape());
+    }
+
+    @Test
+    public void ftsPrefixQuery_dropsOperatorsAndPunctuation() {
+        assertEquals("ăn* sáng*", ExpenseQuery.toFtsPrefixQuery("  Ăn   sáng "));
+        assertEquals("cafe* or* tra*", ExpenseQuery.toFtsPrefixQuery("Cafe OR \"tra"));
+        assertEquals("a* b*", ExpenseQuery.toFtsPrefixQuery("a-b*"));
+        assertNull(ExpenseQuery.toFtsPrefixQuery("\"*()"));
+        assertNull(ExpenseQuery.toFtsPrefixQuery(null));
+    }
+
+    private static Expense expense(int id, int categoryId, double amount, long date) {
+        Expense expense = new Expense(1, categoryId, amount, date, "row " + id);
+        expense.setId(id);
+        return expense;
+    }
+
+    private static List<Expense> sorted(List<Expense> rows, String sortOrder, int[] ranks) {
+        List<Expense> copy = new ArrayList<>(rows);
+        copy.sort(ExpenseQuery.forUser(1).sort(sortOrder).build().rowOrder(ranks));
+        return copy;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.campusexpensemanager.utils;
+
+import com.example.campusexpensemanager.models.Expense;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sections built page by page must equal sections built from all rows at once, and every
+ * position must map to the right header or row.
+ */
+public class ExpenseSectionsTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void saveDefaults() {
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    @After
+    public void restoreDefaults() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void oneHeaderPerDay_newestFirst() {
+        long day1 = localMidnight(2024, Calendar.MARCH, 12);
+        long day0 = localMidnight(2024, Calendar.MARCH, 11);
+        List<Expense> rows = Arrays.asList(
+                expense(1, day1 + 20 * HOUR), expense(2, day1 + 8 * HOUR), expense(3, day0 + 23 * HOUR));
+
+        ExpenseSections sections = ExpenseSections.byDay(rows);
+
+        assertEquals(2, sections.getSectionCount());
+        assertEquals(5, sections.getItemCount());
+        assertTrue(sections.isHeader(0));
+        assertEquals(0, sections.rowAt(1));
+        assertEquals(1, sections.rowAt(2));
+        assertTrue(sections.isHeader(3));
+        assertEquals(2, sections.rowAt(4));
+        assertEquals(-1, sections.rowAt(3));
+        assertEquals(1, sections.sectionAt(4));
+        assertEquals(3, sections.getHeaderPosition(1));
+        assertEquals(day1, sections.getDayStart(0));
+        assertEquals(day0, sections.getDayStart(1));
+    }
+
+    @Test
+    public void dstDay_isOneSection() {
+        // 10 Mar 2024 has 23 hours in New York
+        long dstDay = localMidnight(2024, Calendar.MARCH, 10);
+        long nextDay = localMidnight(2024, Calendar.MARCH, 11);
+        List<Expense> rows = Arrays.asList(expense(1, nextDay - 1), expense(2, dstDay + HOUR), expense(3, dstDay));
+
+        ExpenseSections sections = ExpenseSections.byDay(rows);
+
+        assertEquals(1, sections.getSectionCount());
+        assertEquals(23 * HOUR, sections.getDayEnd(0) - sections.getDayStart(0));
+    }
+
+    @Test
+    public void appendedPages_matchOneShotBuild() {
+        List<Expense> rows = new ArrayList<>();
+        long date = localMidnight(2024, Calendar.NOVEMBER, 5);
+        for (int i = 0; i < 120; i++) {
+            date -= (i % 3 == 0 ? 13 : 2) * HOUR; // several rows per day, days split across pages
+            rows.add(expense(i + 1, date));
+        }
+
+        ExpenseSections paged = ExpenseSections.byDay(rows.subList(0, 50));
+        paged = paged.append(rows.subList(50, 100)).append(rows.subList(100, 120));
+        ExpenseSections whole = ExpenseSections.byDay(rows);
+
+        assertEquals(whole.getItemCount(), paged.getItemCount());
+        assertEquals(whole.getSectionCount(), paged.getSectionCount());
+        for (int position = 0; position < whole.getItemCount(); position++) {
+            assertEquals(whole.rowAt(position), paged.rowAt(position));
+            assertEquals(whole.sectionAt(position), paged.sectionAt(position));
+        }
+        for (int section = 0; section < whole.getSectionCount(); section++) {
+            assertEquals(whole.getDayStart(section), paged.getDayStart(section));
+            assertEquals(section, paged.findSection(paged.getDayStart(section) + HOUR, 0));
+        }
+    }
+
+    @Test
+    public void appendKeepsEarlierTotals() {
+        long day = localMidnight(2024, Calendar.JUNE, 1);
+        ExpenseSections first = ExpenseSections.byDay(Arrays.asList(expense(1, day + 10 * HOUR)));
+        first.setTotals(0, 500, 0);
+
+        ExpenseSections next = first.append(Arrays.asList(expense(2, day + HOUR), expense(3, day - HOUR)));
+
+        assertEquals(2, next.getSectionCount());
+        assertEquals(500, next.getExpenseTotal(0), 0);
+        assertEquals(0, next.getExpenseTotal(1), 0);
+        assertFalse(next.isHeader(2)); // same day as the previous page: no second header
+    }
+
+    @Test
+    public void flat_hasNoHeaders() {
+        ExpenseSections sections = ExpenseSections.flat(3).append(Arrays.asList(expense(4, 0L)));
+
+        assertFalse(sections.isSectioned());
+        assertEquals(4, sections.getItemCount());
+        assertFalse(sections.isHeader(3));
+        assertEquals(3, sections.rowAt(3));
+    }
+
+    private static long localMidnight(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar.getTimeInMillis();
+    }
+
+    private static Expense expense(int id, long date) {
+        Expense expense = new Expense(1, 1, 1000, date, "row " + id);
+        expense.setId(id);
+        return expense;
+    }
+}
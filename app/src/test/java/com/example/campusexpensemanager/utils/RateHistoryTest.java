@@ -0,0 +1,93 @@
+package com.example.campusexpensemanager.utils;
+
+import com.example.campusexpensemanager.models.Money;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateHistoryTest {
+
+    private static final int USD = 2;
+
+    @Test
+    public void rateAtUsesLatestEntryNotAfterDate() {
+        RateHistory history = new RateHistory.Builder()
+                .add(USD, 2000, 25000)
+                .add(USD, 0, 24000)
+                .add(USD, 1000, 24500)
+                .build();
+
+        assertEquals(24000, history.rateAt(USD, 0), 0);
+        assertEquals(24000, history.rateAt(USD, 999), 0);
+        assertEquals(24500, history.rateAt(USD, 1000), 0);
+        assertEquals(24500, history.rateAt(USD, 1999), 0);
+        assertEquals(25000, history.rateAt(USD, Long.MAX_VALUE), 0);
+    }
+
+    @Test
+    public void unknownCurrencyOrDateCountsAtRateOne() {
+        RateHistory history = new RateHistory.Builder().add(USD, 1000, 24000).build();
+
+        assertEquals(1, history.rateAt(USD, 999), 0);
+        assertEquals(1, history.rateAt(99, 5000), 0);
+        assertEquals(1, RateHistory.EMPTY.rateAt(USD, 5000), 0);
+    }
+
+    @Test
+    public void duplicateDateKeepsLastRow() {
+        RateHistory history = new RateHistory.Builder()
+                .add(USD, 0, 24000)
+                .add(USD, 0, 23000)
+                .build();
+
+        assertEquals(23000, history.rateAt(USD, 10), 0);
+    }
+
+    @Test
+    public void withRateLeavesOriginalUnchanged() {
+        RateHistory original = new RateHistory.Builder().add(USD, 0, 24000).build();
+        RateHistory updated = original.withRate(USD, 1000, 25000).withRate(USD, 500, 24500);
+
+        assertEquals(24000, original.rateAt(USD, 2000), 0);
+        assertEquals(24000, updated.rateAt(USD, 499), 0);
+        assertEquals(24500, updated.rateAt(USD, 999), 0);
+        assertEquals(25000, updated.rateAt(USD, 2000), 0);
+        assertEquals(26000, updated.withRate(USD, 1000, 26000).rateAt(USD, 2000), 0);
+    }
+
+    @Test
+    public void toVndRoundsHalfAwayFromZeroLikeSqlite() {
+        RateHistory history = new RateHistory.Builder().add(USD, 0, 2.5).build();
+
+        assertEquals(3L, history.toVnd(Money.ofMinorUnits(1), USD, 0).getMinorUnits());
+        assertEquals(-3L, history.toVnd(Money.ofMinorUnits(-1), USD, 0).getMinorUnits());
+        assertEquals(24000_00L, new RateHistory.Builder().add(USD, 0, 24000).build()
+                .toVnd(Money.of(1), USD, 0).getMinorUnits());
+    }
+
+    @Test
+    public void binarySearchMatchesLinearScan() {
+        Random random = new Random(7);
+        long[] dates = new long[200];
+        double[] rates = new double[dates.length];
+        RateHistory.Builder builder = new RateHistory.Builder();
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = i * 1000L + random.nextInt(1000);
+            rates[i] = 20000 + random.nextInt(10000);
+            builder.add(USD, dates[i], rates[i]);
+        }
+        RateHistory history = builder.build();
+
+        for (int i = 0; i < 20_000; i++) {
+            long date = random.nextInt(dates.length * 1000 + 1000) - 500;
+            double expected = 1;
+            for (int j = 0; j < dates.length && dates[j] <= date; j++) {
+                expected = rates[j];
+            }
+            assertEquals("date " + date, expected, history.rateAt(USD, date), 0);
+        }
+    }
+}